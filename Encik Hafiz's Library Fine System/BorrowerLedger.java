@@ -0,0 +1,272 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Persistent count of late returns per borrower ID, so prevLate no longer has to come
+// from the input file.
+//
+// Layout (all off-heap, nothing per borrower lives on the Java heap):
+//   ledger.dat     : memory-mapped open-addressing hash table, 16-byte slots
+//                    [long borrowerId + 1 (0 = empty)][int lateReturns][int unused]
+//                    after a 4 KB header (magic, capacity, size, clean-shutdown flag)
+//   ledger.journal : append-only log of (long borrowerId, int lateReturns) records
+//
+// Every update is applied to the mapped table and appended to the journal. The journal is
+// written and fsynced at least once a second (SYNC_INTERVAL_NANOS) and on checkpoint(),
+// so a power failure loses at most about the last second of updates. checkpoint() forces
+// the table to disk and then empties the journal. After a crash, open() replays the
+// journal on top of the table; records hold the new count (not +1) and counts only grow,
+// so replay keeps the larger of table and journal and replaying a record twice is harmless.
+// A torn record at the end of the journal is dropped.
+//
+// The size in the header is only right after close(): open() clears the clean-shutdown
+// flag, close() sets it again, and a ledger opened without it has its used slots counted.
+public final class BorrowerLedger implements AutoCloseable {
+
+    public static final long DEFAULT_CAPACITY = 1L << 25; // 32M slots, 512 MB sparse file
+
+    private static final long MAGIC = 0x4C45444745523031L; // "LEDGER01"
+    private static final int HEADER_SIZE = 4096;
+    private static final int SLOT_SIZE = 16;
+    private static final int JOURNAL_RECORD_SIZE = 12;
+    private static final int SEGMENT_SHIFT = 30;            // 1 GB per mapped segment
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+    private static final double MAX_LOAD = 0.9;
+    private static final long SYNC_INTERVAL_NANOS = 1_000_000_000L;
+    private static final long CLEAN = 1;
+
+    private final FileChannel tableChannel;
+    private final FileChannel journalChannel;
+    private final MappedByteBuffer header;
+    private final MappedByteBuffer[] segments;
+    private final long capacity;
+    private final long mask;
+    private long size;
+    private long lastSync = System.nanoTime();
+
+    private final ByteBuffer journalBuffer = ByteBuffer.allocateDirect(JOURNAL_RECORD_SIZE * 4096);
+
+    private BorrowerLedger(FileChannel tableChannel, FileChannel journalChannel, long capacity) throws IOException {
+        this.tableChannel = tableChannel;
+        this.journalChannel = journalChannel;
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+
+        long tableBytes = capacity * SLOT_SIZE;
+        this.header = tableChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        int segmentCount = (int) ((tableBytes + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+        this.segments = new MappedByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            long offset = (long) i << SEGMENT_SHIFT;
+            long length = Math.min(SEGMENT_SIZE, tableBytes - offset);
+            segments[i] = tableChannel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + offset, length);
+        }
+    }
+
+    // Opens the ledger in dir, creating it with the given capacity (a power of two) if needed,
+    // and replays whatever the journal holds since the last checkpoint
+    public static BorrowerLedger open(Path dir, long capacity) throws IOException {
+        if (Long.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        Files.createDirectories(dir);
+        Path tablePath = dir.resolve("ledger.dat");
+        boolean exists = Files.exists(tablePath) && Files.size(tablePath) >= HEADER_SIZE;
+
+        FileChannel table = FileChannel.open(tablePath,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        FileChannel journal = FileChannel.open(dir.resolve("ledger.journal"),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        if (exists) {
+            ByteBuffer head = ByteBuffer.allocate(16);
+            table.read(head, 0);
+            head.flip();
+            if (head.getLong() != MAGIC) {
+                table.close();
+                journal.close();
+                throw new IOException("Not a borrower ledger: " + tablePath);
+            }
+            capacity = head.getLong(); // an existing ledger keeps its own capacity
+        }
+
+        BorrowerLedger ledger = new BorrowerLedger(table, journal, capacity);
+        if (exists) {
+            boolean clean = ledger.header.getLong(24) == CLEAN;
+            //after a crash the size in the header is older than the table, count the slots instead
+            ledger.size = clean ? ledger.header.getLong(16) : ledger.countUsedSlots();
+            ledger.replayJournal();
+        } else {
+            ledger.header.putLong(0, MAGIC);
+            ledger.header.putLong(8, capacity);
+            ledger.header.putLong(16, 0);
+        }
+        //open until close() says otherwise
+        ledger.header.putLong(24, 0);
+        ledger.header.force();
+        return ledger;
+    }
+
+    public long size() { return size; }
+
+    public long capacity() { return capacity; }
+
+    // Number of late returns recorded so far (the prevLate for the next return)
+    public int lateReturns(long borrowerId) {
+        long slot = find(borrowerId);
+        return slot < 0 ? 0 : getInt(slot + 8);
+    }
+
+    // Records one processed return and gives back the prevLate it should be charged with.
+    // Only overdue returns (days > 0) count as late.
+    public int recordReturn(long borrowerId, int days) throws IOException {
+        if (days <= 0) return lateReturns(borrowerId);
+
+        //a borrower only gets a slot with their first late return, so every slot is journaled
+        long slot = findOrInsert(borrowerId);
+        int prevLate = getInt(slot + 8);
+        int updated = prevLate == Integer.MAX_VALUE ? prevLate : prevLate + 1;
+        putInt(slot + 8, updated);
+        appendJournal(borrowerId, updated);
+        return prevLate;
+    }
+
+    // Makes everything so far durable and starts an empty journal
+    public void checkpoint() throws IOException {
+        flushJournal();
+        journalChannel.force(false);
+        header.putLong(16, size);
+        for (MappedByteBuffer segment : segments) segment.force();
+        header.force();
+        //the table now holds every journaled update, so the journal can be dropped
+        journalChannel.truncate(0);
+        journalChannel.position(0);
+        journalChannel.force(true);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            checkpoint();
+            header.putLong(24, CLEAN);
+            header.force();
+        } finally {
+            journalChannel.close();
+            tableChannel.close();
+        }
+    }
+
+    private void replayJournal() throws IOException {
+        long journalSize = journalChannel.size();
+        long complete = journalSize - journalSize % JOURNAL_RECORD_SIZE; // drop a torn last record
+
+        ByteBuffer buf = ByteBuffer.allocate(JOURNAL_RECORD_SIZE * 4096);
+        long position = 0;
+        while (position < complete) {
+            buf.limit((int) Math.min(buf.capacity(), buf.position() + complete - position));
+            int n = journalChannel.read(buf, position);
+            if (n <= 0) break;
+            position += n;
+            buf.flip();
+            while (buf.remaining() >= JOURNAL_RECORD_SIZE) {
+                long borrowerId = buf.getLong();
+                int lateReturns = buf.getInt();
+                long slot = findOrInsert(borrowerId) + 8;
+                //counts only grow, and the table may already be ahead of the journal
+                putInt(slot, Math.max(getInt(slot), lateReturns));
+            }
+            buf.compact();
+        }
+        journalChannel.truncate(complete);
+        checkpoint();
+    }
+
+    private long countUsedSlots() {
+        long used = 0;
+        for (long offset = 0; offset < capacity * SLOT_SIZE; offset += SLOT_SIZE) {
+            if (getLong(offset) != 0) used++;
+        }
+        return used;
+    }
+
+    private void appendJournal(long borrowerId, int lateReturns) throws IOException {
+        if (journalBuffer.remaining() < JOURNAL_RECORD_SIZE) flushJournal();
+        journalBuffer.putLong(borrowerId).putInt(lateReturns);
+        long now = System.nanoTime();
+        if (now - lastSync >= SYNC_INTERVAL_NANOS) {
+            flushJournal();
+            journalChannel.force(false);
+            lastSync = now;
+        }
+    }
+
+    private void flushJournal() throws IOException {
+        journalBuffer.flip();
+        while (journalBuffer.hasRemaining()) journalChannel.write(journalBuffer);
+        journalBuffer.clear();
+    }
+
+    // Byte offset (within the table) of the borrower's slot, or -1
+    private long find(long borrowerId) {
+        long key = borrowerId + 1;
+        long i = mix(borrowerId) & mask;
+        for (long probes = 0; probes < capacity; probes++, i = (i + 1) & mask) {
+            long offset = i * SLOT_SIZE;
+            long stored = getLong(offset);
+            if (stored == key) return offset;
+            if (stored == 0) return -1;
+        }
+        return -1;   //every slot is used and none is this borrower
+    }
+
+    private long findOrInsert(long borrowerId) {
+        if (borrowerId < 0 || borrowerId == Long.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid borrower ID: " + borrowerId);
+        }
+        long key = borrowerId + 1;
+        long i = mix(borrowerId) & mask;
+        for (long probes = 0; probes < capacity; probes++, i = (i + 1) & mask) {
+            long offset = i * SLOT_SIZE;
+            long stored = getLong(offset);
+            if (stored == key) return offset;
+            if (stored == 0) {
+                if (size + 1 > capacity * MAX_LOAD) break;
+                putLong(offset, key);
+                size++;
+                return offset;
+            }
+        }
+        throw new IllegalStateException("Borrower ledger is full (" + size
+                + " borrowers); create a new ledger with a larger capacity");
+    }
+
+    // Spreads sequential IDs over the table (murmur3 finalizer)
+    private static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+        return x;
+    }
+
+    private long getLong(long offset) {
+        return segments[(int) (offset >>> SEGMENT_SHIFT)].getLong((int) (offset & (SEGMENT_SIZE - 1)));
+    }
+
+    private void putLong(long offset, long value) {
+        segments[(int) (offset >>> SEGMENT_SHIFT)].putLong((int) (offset & (SEGMENT_SIZE - 1)), value);
+    }
+
+    private int getInt(long offset) {
+        return segments[(int) (offset >>> SEGMENT_SHIFT)].getInt((int) (offset & (SEGMENT_SIZE - 1)));
+    }
+
+    private void putInt(long offset, int value) {
+        segments[(int) (offset >>> SEGMENT_SHIFT)].putInt((int) (offset & (SEGMENT_SIZE - 1)), value);
+    }
+}
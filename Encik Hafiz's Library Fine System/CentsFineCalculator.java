@@ -0,0 +1,121 @@
+import java.io.PrintStream;
+import java.math.BigDecimal;
+
+// Fast path for LibraryFineCalculator: the same rules worked out in whole sen (long),
+// so nothing is allocated per record. Every rate is a whole number of sen, and the two
+// discounts are whole percentages, so the only rounding is the final HALF_UP to 1 sen.
+// LibraryFineCalculator (BigDecimal) stays the reference; verify() cross-checks the two.
+public final class CentsFineCalculator {
+
+    // Rates in sen (RM 1.00 = 100 sen), same values as the BigDecimal constants
+    static final long MAGAZINES_FINE = 20;
+    static final long GENERAL_BOOKS_TIER1 = 50;
+    static final long GENERAL_BOOKS_TIER2 = 100;
+    static final long GENERAL_BOOKS_TIER3 = 200;
+    static final long THESIS_FINE = 1_000;
+    static final long REF_BOOKS_FINE = 10_000;
+    static final long THESIS_OVERDUE = 20_000;
+    static final long CD_FIRST_10_DAYS = 200;
+    static final long CD_OVERDUE = 500;
+
+    static final long PENALTY_OVER_60 = 2_500;
+    static final long PENALTY_HABITUAL = 1_000;
+    static final int STAFF_DISCOUNT_PERCENT = 20;
+    static final int GOODBORROWER_DISCOUNT_PERCENT = 50;
+
+    private CentsFineCalculator() { }
+
+    // Same tiers as LibraryFineCalculator.calculateBaseFine
+    public static long baseFineSen(librarySystem.BookType bookType, int days) {
+        if (days <= 0) return 0;
+
+        switch (bookType) {
+            case REFERENCE:
+                return REF_BOOKS_FINE;
+            case GENERAL: {
+                long fine = GENERAL_BOOKS_TIER1 * Math.min(days, 7);
+                if (days >= 8) fine += GENERAL_BOOKS_TIER2 * (Math.min(days, 30) - 7);
+                if (days > 30) fine += GENERAL_BOOKS_TIER3 * (long) (days - 30);
+                return fine;
+            }
+            case MAGAZINE:
+                return MAGAZINES_FINE * days;
+            case MULTIMEDIA: {
+                long fine = CD_FIRST_10_DAYS * Math.min(days, 10);
+                if (days > 10) fine += CD_OVERDUE * (long) (days - 10);
+                return fine;
+            }
+            case THESIS: {
+                long fine = THESIS_FINE * days;
+                if (days > 15) fine += THESIS_OVERDUE;
+                return fine;
+            }
+            default:
+                return 0;
+        }
+    }
+
+    public static long applyPenaltiesSen(long currentFine, int days, int prevLate) {
+        if (days <= 0) return currentFine;
+        long result = currentFine;
+        if (days > 60) result += PENALTY_OVER_60;
+        if (prevLate >= 3) result += PENALTY_HABITUAL;
+        return result;
+    }
+
+    // Staff has precedence over Good Borrower; result is already rounded HALF_UP to 1 sen
+    public static long applyDiscountsSen(long fineBeforeDiscounts, librarySystem.Borrower borrower, int days, int prevLate) {
+        if (fineBeforeDiscounts == 0) return 0;
+
+        if (borrower == librarySystem.Borrower.STAFF) {
+            return percentOf(fineBeforeDiscounts, 100 - STAFF_DISCOUNT_PERCENT);
+        }
+        if (prevLate == 0 && days > 0 && days <= 3) {
+            return percentOf(fineBeforeDiscounts, 100 - GOODBORROWER_DISCOUNT_PERCENT);
+        }
+        return fineBeforeDiscounts;
+    }
+
+    // Whole pipeline, equal to calculateFinalFine(...).unscaledValue()
+    public static long calculateFinalFineSen(librarySystem.BookType bookType, librarySystem.Borrower borrower, int days, int prevLate) {
+        long base = baseFineSen(bookType, days);
+        long withPenalties = applyPenaltiesSen(base, days, prevLate);
+        return applyDiscountsSen(withPenalties, borrower, days, prevLate);
+    }
+
+    // sen * percent / 100 rounded HALF_UP (fines are never negative), same as setScale(2, HALF_UP)
+    static long percentOf(long sen, int percent) {
+        return (sen * percent + 50) / 100;
+    }
+
+    // Runs both implementations (and the FineTable lookup and the compiled default FinePlan)
+    // over every (BookType, days, Borrower, prevLate) combination up to the given limits and
+    // prints each mismatch; returns the number of mismatches
+    public static long verify(int maxDays, int maxPrevLate, PrintStream report) {
+        FinePlan plan = FinePlan.defaultPlan();
+        long checked = 0;
+        long mismatches = 0;
+        for (librarySystem.BookType bookType : librarySystem.BookType.values()) {
+            for (librarySystem.Borrower borrower : librarySystem.Borrower.values()) {
+                for (int days = 0; days <= maxDays; days++) {
+                    for (int prevLate = 0; prevLate <= maxPrevLate; prevLate++) {
+                        BigDecimal expected = librarySystem.LibraryFineCalculator.calculateFinalFine(bookType, borrower, days, prevLate);
+                        long actual = calculateFinalFineSen(bookType, borrower, days, prevLate);
+                        long fromTable = FineTable.of(bookType).calculateFinalFineSen(borrower, days, prevLate);
+                        long fromPlan = plan.calculateFinalFineSen(bookType, borrower, days, prevLate);
+                        checked++;
+                        if (expected.unscaledValue().longValueExact() != actual || expected.scale() != 2
+                                || fromTable != actual || fromPlan != actual) {
+                            mismatches++;
+                            report.println("Mismatch: " + bookType + " " + borrower + " days=" + days
+                                    + " prevLate=" + prevLate + " BigDecimal=" + expected.toPlainString()
+                                    + " sen=" + actual + " table=" + fromTable + " plan=" + fromPlan);
+                        }
+                    }
+                }
+            }
+        }
+        report.println("Checked " + checked + " combinations, " + mismatches + " mismatches");
+        return mismatches;
+    }
+}
@@ -0,0 +1,379 @@
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+
+// Batch mode for end-of-term runs: same input and rules as librarySystem.main, but the
+// loan file is parsed with LoanRecordReader and results go through one FineOutputSink
+//
+// Usage: java librarySystem --batch <input file | -> [--out <file>] [--format=cases|compact]
+//                            [--engine=cents|bigdecimal] [--parallel[=threads]] [--chunk=records]
+//                            [--ledger=<dir>] [--ledger-capacity=slots] [--checkpoint=records]
+//                            [--rules=<file> [--watch-rules]]
+//                            [--metrics=stdout|stderr|<file> [--metrics-interval=ms] [--metrics-sample=N]]
+//   cases   : the usual "--- Case N ---" / "Total Fine: RM x.xx" output (default)
+//   compact : one "N x.xx" row per case, errors as "N ERROR <message>"
+//   cents   : the compiled FinePolicy plan (long sen, FineTable lookups, no allocation) - default
+//   bigdecimal : LibraryFineCalculator, the reference implementation
+//   parallel   : parse the whole file first, then compute on a fork/join pool (ParallelFineEngine)
+//   ledger     : the 4th column is a borrower ID instead of prevLate; prevLate comes from the
+//                BorrowerLedger in <dir>, which is updated as returns are processed
+//   checkpoint : make the ledger durable every N ledger updates, N > 0 (default 1000000)
+//   rules      : fine rules file, cents engine only (see FinePlan), reloaded while the batch
+//                runs when --watch-rules is given; without it the built-in policy is used
+//   metrics    : periodic JSON snapshot of case counts, rejects, penalties and stage
+//                latencies (see FineMetrics); stdout only when --out sends fines to a file
+public class FineBatchProcessor {
+
+    public enum Format { CASES, COMPACT }
+
+    public enum Engine { CENTS, BIGDECIMAL }
+
+    static final String MISSING_CASES = "Missing number ofhas test cases.";
+    static final String INCOMPLETE_INPUT = "Invalid or incomplete test case input.";
+
+    private final Format format;
+    private final Engine engine;
+    private BorrowerLedger ledger;
+    private long checkpointEvery = 1_000_000;
+    private FineMetrics metrics;
+
+    // records that reached the calculator or were rejected, for the throughput report
+    private long records;
+    // returns written to the ledger; rejected records do not count towards a checkpoint
+    private long ledgerUpdates;
+
+    public FineBatchProcessor(Format format, Engine engine) {
+        this.format = format;
+        this.engine = engine;
+    }
+
+    public long records() { return records; }
+
+    // With a ledger, each case reads a borrower ID where prevLate used to be
+    public void useLedger(BorrowerLedger ledger, long checkpointEvery) {
+        if (checkpointEvery <= 0) {
+            throw new IllegalArgumentException("checkpointEvery must be positive: " + checkpointEvery);
+        }
+        this.ledger = ledger;
+        this.checkpointEvery = checkpointEvery;
+    }
+
+    public void useMetrics(FineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public static void run(String[] args) throws IOException {
+        String input = null;
+        String output = null;
+        Format format = Format.CASES;
+        Engine engine = Engine.CENTS;
+        int parallelism = 0; // 0 = sequential
+        int chunkSize = ParallelFineEngine.DEFAULT_CHUNK_SIZE;
+        String ledgerDir = null;
+        long ledgerCapacity = BorrowerLedger.DEFAULT_CAPACITY;
+        long checkpointEvery = 1_000_000;
+        String rules = null;
+        boolean watchRules = false;
+        String metricsTarget = null;
+        long metricsInterval = FineMetrics.DEFAULT_INTERVAL_MILLIS;
+        int metricsSample = FineMetrics.DEFAULT_SAMPLE_EVERY;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--batch") && i + 1 < args.length) {
+                input = args[++i];
+            } else if (arg.equals("--out") && i + 1 < args.length) {
+                output = args[++i];
+            } else if (arg.startsWith("--format=")) {
+                format = Format.valueOf(arg.substring("--format=".length()).toUpperCase());
+            } else if (arg.startsWith("--engine=")) {
+                engine = Engine.valueOf(arg.substring("--engine=".length()).toUpperCase());
+            } else if (arg.equals("--parallel")) {
+                parallelism = Runtime.getRuntime().availableProcessors();
+            } else if (arg.startsWith("--parallel=")) {
+                parallelism = Integer.parseInt(arg.substring("--parallel=".length()));
+            } else if (arg.startsWith("--chunk=")) {
+                chunkSize = Integer.parseInt(arg.substring("--chunk=".length()));
+            } else if (arg.startsWith("--ledger=")) {
+                ledgerDir = arg.substring("--ledger=".length());
+            } else if (arg.startsWith("--ledger-capacity=")) {
+                ledgerCapacity = Long.parseLong(arg.substring("--ledger-capacity=".length()));
+            } else if (arg.startsWith("--checkpoint=")) {
+                checkpointEvery = Long.parseLong(arg.substring("--checkpoint=".length()));
+                if (checkpointEvery <= 0) {
+                    System.err.println("--checkpoint must be a positive number of records");
+                    return;
+                }
+            } else if (arg.startsWith("--rules=")) {
+                rules = arg.substring("--rules=".length());
+            } else if (arg.equals("--watch-rules")) {
+                watchRules = true;
+            } else if (arg.startsWith("--metrics=")) {
+                metricsTarget = arg.substring("--metrics=".length());
+            } else if (arg.startsWith("--metrics-interval=")) {
+                metricsInterval = Long.parseLong(arg.substring("--metrics-interval=".length()));
+            } else if (arg.startsWith("--metrics-sample=")) {
+                metricsSample = Integer.parseInt(arg.substring("--metrics-sample=".length()));
+            } else {
+                System.err.println("Unknown option: " + arg);
+                return;
+            }
+        }
+        if (input == null) {
+            System.err.println("Usage: --batch <input file | -> [--out <file>] [--format=cases|compact]"
+                    + " [--engine=cents|bigdecimal] [--parallel[=threads]] [--chunk=records]"
+                    + " [--ledger=<dir>] [--ledger-capacity=slots] [--checkpoint=records (> 0)]"
+                    + " [--rules=<file> [--watch-rules]]"
+                    + " [--metrics=stdout|stderr|<file> [--metrics-interval=ms] [--metrics-sample=N]]");
+            return;
+        }
+        if (rules != null && engine == Engine.BIGDECIMAL) {
+            //LibraryFineCalculator has the rules built in; a rules file would only change the metrics
+            System.err.println("--rules needs --engine=cents (the bigdecimal engine always uses the built-in rules)");
+            return;
+        }
+        if ("stdout".equals(metricsTarget) && output == null) {
+            //the snapshots would end up in the middle of the fines
+            System.err.println("--metrics=stdout needs --out <file> for the fines");
+            return;
+        }
+        FineMetrics metrics = metricsTarget == null ? null : new FineMetrics(metricsSample);
+        Thread reporter = metrics == null ? null : metrics.startReporter(metricsTarget, metricsInterval);
+        try {
+            run(input, output, format, engine, parallelism, chunkSize, ledgerDir, ledgerCapacity,
+                    checkpointEvery, rules, watchRules, metrics);
+        } finally {
+            if (reporter != null) {
+                reporter.interrupt();
+                try {
+                    reporter.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                metrics.writeSnapshot(metricsTarget);
+            }
+        }
+    }
+
+    private static void run(String input, String output, Format format, Engine engine, int parallelism,
+                            int chunkSize, String ledgerDir, long ledgerCapacity, long checkpointEvery,
+                            String rules, boolean watchRules, FineMetrics metrics) throws IOException {
+        if (rules != null) {
+            java.nio.file.Path rulesPath = java.nio.file.Path.of(rules);
+            FinePolicy.load(rulesPath);
+            if (watchRules) FinePolicy.watch(rulesPath, 1000);
+        }
+        if (parallelism > 0 && ledgerDir != null) {
+            //each return changes the next prevLate of that borrower, so the order matters
+            System.err.println("--ledger cannot be combined with --parallel");
+            return;
+        }
+        if (parallelism > 0) {
+            runParallel(input, output, format, engine, parallelism, chunkSize, metrics);
+            return;
+        }
+
+        InputStream in = input.equals("-") ? System.in : new FileInputStream(input);
+        OutputStream out = output == null ? System.out : new FileOutputStream(output);
+        FineBatchProcessor processor = new FineBatchProcessor(format, engine);
+        BorrowerLedger ledger = ledgerDir == null ? null
+                : BorrowerLedger.open(java.nio.file.Path.of(ledgerDir), ledgerCapacity);
+        if (ledger != null) processor.useLedger(ledger, checkpointEvery);
+        if (metrics != null) processor.useMetrics(metrics);
+
+        long start = System.nanoTime();
+        try (FineOutputSink sink = new FineOutputSink(out)) {
+            processor.process(new LoanRecordReader(in), sink);
+        } finally {
+            if (in != System.in) in.close();
+            if (ledger != null) ledger.close();
+        }
+        long elapsed = System.nanoTime() - start;
+        reportThroughput(processor.records(), elapsed);
+    }
+
+    private static void runParallel(String input, String output, Format format, Engine engine,
+                                    int parallelism, int chunkSize, FineMetrics metrics) throws IOException {
+        long start = System.nanoTime();
+        LoanBatch batch = input.equals("-")
+                ? LoanBatch.parse(new LoanRecordReader(System.in), metrics)
+                : LoanBatch.load(java.nio.file.Path.of(input), metrics);
+
+        ParallelFineEngine parallel = new ParallelFineEngine(parallelism, chunkSize, format, engine);
+        if (metrics != null) parallel.useMetrics(metrics);
+        try {
+            ParallelFineEngine.Result result = parallel.process(batch);
+            parallel.write(batch, result, output == null ? System.out : new FileOutputStream(output));
+            long elapsed = System.nanoTime() - start;
+            reportThroughput(batch.size(), elapsed);
+            ParallelFineEngine.reportTotals(result);
+        } finally {
+            parallel.shutdown();
+        }
+    }
+
+    // Same control flow and messages as librarySystem.main, case by case
+    public void process(LoanRecordReader reader, FineOutputSink sink) throws IOException {
+        if (!reader.nextInt()) {
+            sink.ascii(MISSING_CASES).newline();
+            sink.flush();
+            return;
+        }
+        int testCases = reader.intValue();
+        FineMetrics.Recorder recorder = metrics == null ? null : metrics.recorder();
+
+        for (int caseNum = 1; caseNum <= testCases; caseNum++) {
+            //1 record in N has its parse/compute/write stages timed
+            boolean timed = recorder != null && metrics.sampled(caseNum);
+            long parseStart = timed ? System.nanoTime() : 0;
+
+            if (!reader.nextInt()) {
+                incomplete(sink, caseNum);
+                break;
+            }
+            int days = reader.intValue();
+
+            if (!reader.nextToken()) {
+                incomplete(sink, caseNum);
+                break;
+            }
+            //array lookup on the raw first byte; the token only becomes a String if it is invalid
+            int bookChar = reader.firstByte();
+            librarySystem.BookType bookType = bookChar < 128 ? librarySystem.BookType.lookup(bookChar)
+                    : librarySystem.BookType.lookupToken(reader.tokenString());
+            String bookToken = bookType == null ? reader.tokenString() : null;
+
+            if (!reader.nextToken()) {
+                incomplete(sink, caseNum);
+                break;
+            }
+            int borrowerChar = reader.firstByte();
+            librarySystem.Borrower borrower = borrowerChar < 128 ? librarySystem.Borrower.lookup(borrowerChar)
+                    : librarySystem.Borrower.lookupToken(reader.tokenString());
+            String borrowerToken = borrower == null ? reader.tokenString() : null;
+
+            int prevLate;
+            long borrowerId = -1;
+            if (ledger == null) {
+                if (!reader.nextInt()) {
+                    incomplete(sink, caseNum);
+                    break;
+                }
+                prevLate = reader.intValue();
+            } else {
+                if (!reader.nextLong()) {
+                    incomplete(sink, caseNum);
+                    break;
+                }
+                borrowerId = reader.longValue();
+                prevLate = borrowerId < 0 ? -1 : 0; // a negative ID is reported like a negative prevLate
+            }
+            records++;
+            long computeStart = timed ? System.nanoTime() : 0;
+            if (timed) metrics.recordStage(FineMetrics.Stage.PARSE, computeStart - parseStart);
+
+            if (days < 0 || prevLate < 0) {
+                if (recorder != null) recorder.reject(FineMetrics.Reject.INVALID_NUMERIC);
+                error(sink, caseNum, "Invalid numeric input");
+                continue;
+            }
+            if (bookToken != null) {
+                if (recorder != null) recorder.reject(FineMetrics.Reject.INVALID_BOOK_CODE);
+                error(sink, caseNum, "Invalid book code: " + bookToken);
+                continue;
+            }
+            if (borrowerToken != null) {
+                if (recorder != null) recorder.reject(FineMetrics.Reject.INVALID_BORROWER_CODE);
+                error(sink, caseNum, "Invalid borrower code: " + borrowerToken);
+                continue;
+            }
+            if (ledger != null) {
+                prevLate = ledger.recordReturn(borrowerId, days);
+                if (++ledgerUpdates % checkpointEvery == 0) ledger.checkpoint();
+            }
+
+            FinePlan plan = FinePolicy.current();
+            long writeStart;
+            if (engine == Engine.CENTS) {
+                long fineSen = plan.calculateFinalFineSen(bookType, borrower, days, prevLate);
+                writeStart = timed ? System.nanoTime() : 0;
+                result(sink, caseNum, fineSen);
+                if (recorder != null) record(recorder, plan, bookType, borrower, days, prevLate, fineSen);
+            } else {
+                BigDecimal finalFine = librarySystem.LibraryFineCalculator.calculateFinalFine(
+                        bookType, borrower, days, prevLate);
+                writeStart = timed ? System.nanoTime() : 0;
+                result(sink, caseNum, finalFine.toPlainString());
+                if (recorder != null) {
+                    record(recorder, plan, bookType, borrower, days, prevLate, finalFine.unscaledValue().longValue());
+                }
+            }
+            if (timed) {
+                metrics.recordStage(FineMetrics.Stage.COMPUTE, writeStart - computeStart);
+                metrics.recordStage(FineMetrics.Stage.WRITE, System.nanoTime() - writeStart);
+            }
+        }
+        sink.flush();
+        if (recorder != null) recorder.flush();
+    }
+
+    static void record(FineMetrics.Recorder recorder, FinePlan plan, librarySystem.BookType bookType,
+                       librarySystem.Borrower borrower, int days, int prevLate, long fineSen) {
+        recorder.fine(bookType, borrower, fineSen,
+                plan.overduePenaltyApplies(days), plan.habitualPenaltyApplies(days, prevLate));
+    }
+
+    private void result(FineOutputSink sink, int caseNum, String fine) throws IOException {
+        if (format == Format.CASES) {
+            sink.ascii("--- Case ").decimal(caseNum).ascii(" ---").newline();
+            sink.ascii("Total Fine: RM ").ascii(fine).newline();
+        } else {
+            sink.decimal(caseNum).ascii(" ").ascii(fine).newline();
+        }
+    }
+
+    private void result(FineOutputSink sink, int caseNum, long fineSen) throws IOException {
+        writeResult(sink, format, caseNum, fineSen);
+    }
+
+    private void error(FineOutputSink sink, int caseNum, String message) throws IOException {
+        writeError(sink, format, caseNum, message);
+    }
+
+    private void incomplete(FineOutputSink sink, int caseNum) throws IOException {
+        if (metrics != null) {
+            FineMetrics.Recorder recorder = metrics.recorder();
+            recorder.reject(FineMetrics.Reject.INCOMPLETE_INPUT);
+            recorder.flush();
+        }
+        error(sink, caseNum, INCOMPLETE_INPUT);
+    }
+
+    // Shared with ParallelFineEngine so both runs render the exact same bytes
+    static void writeResult(FineOutputSink sink, Format format, int caseNum, long fineSen) throws IOException {
+        if (format == Format.CASES) {
+            sink.ascii("--- Case ").decimal(caseNum).ascii(" ---").newline();
+            sink.ascii("Total Fine: RM ").money(fineSen).newline();
+        } else {
+            sink.decimal(caseNum).ascii(" ").money(fineSen).newline();
+        }
+    }
+
+    static void writeError(FineOutputSink sink, Format format, int caseNum, String message) throws IOException {
+        if (format == Format.CASES) {
+            sink.text(message).newline();
+        } else {
+            sink.decimal(caseNum).ascii(" ERROR ").text(message).newline();
+        }
+    }
+
+    // Report goes to stderr so it never mixes with the fine output
+    static void reportThroughput(long records, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        double perSecond = seconds > 0 ? records / seconds : 0;
+        System.err.printf("Processed %d records in %.3f s (%.0f records/s)%n", records, seconds, perSecond);
+    }
+}
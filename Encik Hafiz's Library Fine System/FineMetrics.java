@@ -0,0 +1,201 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.concurrent.atomic.LongAdder;
+
+// What a batch run did: cases per BookType and Borrower, fines per BookType, rejected cases
+// by reason, how often the over-60-day and habitual-offender penalties applied, and latency
+// histograms for the parse, compute and write stages.
+//
+// Usage: java librarySystem --batch <file> --metrics=stdout|stderr|<file>
+//                           [--metrics-interval=ms] [--metrics-sample=N]
+//   A JSON snapshot is written every interval (default 5000 ms) and once more at the end.
+//   stdout/stderr get one JSON object per line; a file is replaced on every snapshot, so
+//   a scraper always reads a complete document.
+//
+// Keeping the overhead low enough to leave on:
+//   - each worker counts into its own Recorder (plain long fields) and adds them to the
+//     shared LongAdders every FLUSH_EVERY cases, so the hot loop has no atomics at all
+//   - the counters are exact; the stage timings are taken on 1 record in N (default 64,
+//     must be a power of two; 1 times every record) because System.nanoTime costs about as
+//     much as computing a fine
+public final class FineMetrics {
+
+    public enum Stage { PARSE, COMPUTE, WRITE }
+
+    public enum Reject { INVALID_NUMERIC, INVALID_BOOK_CODE, INVALID_BORROWER_CODE, INCOMPLETE_INPUT }
+
+    public static final int DEFAULT_SAMPLE_EVERY = 64;
+    public static final long DEFAULT_INTERVAL_MILLIS = 5000;
+
+    static final int FLUSH_EVERY = 4096;
+
+    private static final librarySystem.BookType[] BOOK_TYPES = librarySystem.BookType.values();
+    private static final librarySystem.Borrower[] BORROWERS = librarySystem.Borrower.values();
+
+    private final LongAdder[] casesByBookType = adders(BOOK_TYPES.length);
+    private final LongAdder[] fineSenByBookType = adders(BOOK_TYPES.length);
+    private final LongAdder[] casesByBorrower = adders(BORROWERS.length);
+    private final LongAdder[] rejected = adders(Reject.values().length);
+    private final LongAdder overduePenalties = new LongAdder();
+    private final LongAdder habitualPenalties = new LongAdder();
+    private final LatencyHistogram[] stages = new LatencyHistogram[Stage.values().length];
+    private final long sampleMask;
+    private final Instant started = Instant.now();
+
+    public FineMetrics(int sampleEvery) {
+        if (sampleEvery < 1 || Integer.bitCount(sampleEvery) != 1) {
+            throw new IllegalArgumentException("sample rate must be a power of two: " + sampleEvery);
+        }
+        this.sampleMask = sampleEvery - 1;
+        for (int i = 0; i < stages.length; i++) stages[i] = new LatencyHistogram();
+    }
+
+    private static LongAdder[] adders(int n) {
+        LongAdder[] adders = new LongAdder[n];
+        for (int i = 0; i < n; i++) adders[i] = new LongAdder();
+        return adders;
+    }
+
+    // true when this record's stages should be timed
+    public boolean sampled(long recordNumber) {
+        return (recordNumber & sampleMask) == 0;
+    }
+
+    public void recordStage(Stage stage, long nanos) {
+        stages[stage.ordinal()].record(nanos);
+    }
+
+    // One per worker thread (or per chunk); not thread-safe itself
+    public Recorder recorder() {
+        return new Recorder();
+    }
+
+    public final class Recorder {
+        private final long[] cases = new long[BOOK_TYPES.length];
+        private final long[] fineSen = new long[BOOK_TYPES.length];
+        private final long[] borrowers = new long[BORROWERS.length];
+        private final long[] rejects = new long[Reject.values().length];
+        private long overdue;
+        private long habitual;
+        private int pending;
+
+        public void fine(librarySystem.BookType bookType, librarySystem.Borrower borrower, long sen,
+                         boolean overduePenalty, boolean habitualPenalty) {
+            cases[bookType.ordinal()]++;
+            fineSen[bookType.ordinal()] += sen;
+            borrowers[borrower.ordinal()]++;
+            if (overduePenalty) overdue++;
+            if (habitualPenalty) habitual++;
+            if (++pending == FLUSH_EVERY) flush();
+        }
+
+        public void reject(Reject reason) {
+            rejects[reason.ordinal()]++;
+            if (++pending == FLUSH_EVERY) flush();
+        }
+
+        // adds the local counts to the shared totals and starts again from zero
+        public void flush() {
+            drain(cases, casesByBookType);
+            drain(fineSen, fineSenByBookType);
+            drain(borrowers, casesByBorrower);
+            drain(rejects, rejected);
+            if (overdue != 0) overduePenalties.add(overdue);
+            if (habitual != 0) habitualPenalties.add(habitual);
+            overdue = 0;
+            habitual = 0;
+            pending = 0;
+        }
+
+        private void drain(long[] local, LongAdder[] shared) {
+            for (int i = 0; i < local.length; i++) {
+                if (local[i] != 0) {
+                    shared[i].add(local[i]);
+                    local[i] = 0;
+                }
+            }
+        }
+    }
+
+    public String toJson() {
+        StringBuilder json = new StringBuilder(1024);
+        json.append("{\"timestamp\":\"").append(Instant.now())
+            .append("\",\"started\":\"").append(started).append('"');
+
+        json.append(",\"casesByBookType\":{");
+        for (int i = 0; i < BOOK_TYPES.length; i++) {
+            if (i > 0) json.append(',');
+            json.append('"').append(BOOK_TYPES[i]).append("\":").append(casesByBookType[i].sum());
+        }
+        json.append("},\"fineSenByBookType\":{");
+        for (int i = 0; i < BOOK_TYPES.length; i++) {
+            if (i > 0) json.append(',');
+            json.append('"').append(BOOK_TYPES[i]).append("\":").append(fineSenByBookType[i].sum());
+        }
+        json.append("},\"casesByBorrower\":{");
+        for (int i = 0; i < BORROWERS.length; i++) {
+            if (i > 0) json.append(',');
+            json.append('"').append(BORROWERS[i]).append("\":").append(casesByBorrower[i].sum());
+        }
+        json.append("},\"rejected\":{");
+        Reject[] reasons = Reject.values();
+        for (int i = 0; i < reasons.length; i++) {
+            if (i > 0) json.append(',');
+            json.append('"').append(reasons[i]).append("\":").append(rejected[i].sum());
+        }
+        json.append("},\"penalties\":{\"overdue\":").append(overduePenalties.sum())
+            .append(",\"habitual\":").append(habitualPenalties.sum()).append('}');
+
+        json.append(",\"stageSampleEvery\":").append(sampleMask + 1);
+        json.append(",\"stages\":{");
+        Stage[] stageNames = Stage.values();
+        for (int i = 0; i < stageNames.length; i++) {
+            if (i > 0) json.append(',');
+            json.append('"').append(stageNames[i].name().toLowerCase()).append("\":");
+            stages[i].snapshot().appendJson(json);
+        }
+        return json.append("}}").toString();
+    }
+
+    // Writes a snapshot to "stdout", "stderr" or a file path
+    public void writeSnapshot(String target) throws IOException {
+        String json = toJson();
+        if (target.equals("stdout") || target.equals("stderr")) {
+            PrintStream stream = target.equals("stdout") ? System.out : System.err;
+            stream.println(json);
+            stream.flush();
+            return;
+        }
+        Path path = Path.of(target);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        Files.write(temp, (json + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Daemon thread writing a snapshot every interval; interrupt it and call
+    // writeSnapshot once more to get the final numbers
+    public Thread startReporter(String target, long intervalMillis) {
+        Thread reporter = new Thread(() -> {
+            while (true) {
+                try {
+                    Thread.sleep(intervalMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                try {
+                    writeSnapshot(target);
+                } catch (IOException e) {
+                    System.err.println("Could not write metrics: " + e.getMessage());
+                }
+            }
+        }, "fine-metrics-reporter");
+        reporter.setDaemon(true);
+        reporter.start();
+        return reporter;
+    }
+}
@@ -0,0 +1,101 @@
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Single buffered sink for batch output: results are collected in one byte array
+// and written to the stream in large chunks instead of one println per line
+public final class FineOutputSink implements AutoCloseable {
+
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes();
+
+    private final OutputStream out;
+    private final byte[] buf = new byte[CHUNK_SIZE];
+    private int count;
+
+    public FineOutputSink(OutputStream out) {
+        this.out = out;
+    }
+
+    // Only for ASCII text (labels, numbers); codes typed by the user go through text()
+    public FineOutputSink ascii(String s) throws IOException {
+        int len = s.length();
+        for (int i = 0; i < len; i++) {
+            if (count == buf.length) flushBuffer();
+            buf[count++] = (byte) s.charAt(i);
+        }
+        return this;
+    }
+
+    public FineOutputSink text(String s) throws IOException {
+        return bytes(s.getBytes());
+    }
+
+    public FineOutputSink bytes(byte[] b) throws IOException {
+        if (b.length > buf.length - count) {
+            flushBuffer();
+            if (b.length > buf.length) {
+                out.write(b);
+                return this;
+            }
+        }
+        System.arraycopy(b, 0, buf, count, b.length);
+        count += b.length;
+        return this;
+    }
+
+    public FineOutputSink decimal(long value) throws IOException {
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) return ascii(Long.toString(value));
+            ascii("-");
+            value = -value;
+        }
+        if (buf.length - count < 20) flushBuffer();
+        //write the digits backwards into place
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) digits++;
+        int end = count + digits;
+        for (int i = end - 1; i >= count; i--) {
+            buf[i] = (byte) ('0' + (value % 10));
+            value /= 10;
+        }
+        count = end;
+        return this;
+    }
+
+    // Amount in sen written as RM text with 2 decimals, e.g. 650 -> "6.50" (same as toPlainString at scale 2)
+    public FineOutputSink money(long sen) throws IOException {
+        if (sen < 0) {
+            ascii("-");
+            sen = -sen;
+        }
+        decimal(sen / 100);
+        if (buf.length - count < 3) flushBuffer();
+        int cents = (int) (sen % 100);
+        buf[count++] = '.';
+        buf[count++] = (byte) ('0' + cents / 10);
+        buf[count++] = (byte) ('0' + cents % 10);
+        return this;
+    }
+
+    public FineOutputSink newline() throws IOException {
+        return bytes(LINE_SEPARATOR);
+    }
+
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buf, 0, count);
+            count = 0;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        out.close();
+    }
+}
@@ -0,0 +1,249 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+// A fine policy compiled from a rule file into flat arrays, so evaluating a record does no
+// interpretation: one FineTable read for the base fine, two threshold checks for penalties
+// and a short loop over the discount arrays (first match wins).
+//
+// Rule file format (java.util.Properties, amounts in RM, see DEFAULT_RULES):
+//   book.<code>.tiers   = <up to day>:<RM per day>, ..., *:<RM per day>
+//   book.<code>.flat    = <RM>                 charged once when overdue
+//   book.<code>.after   = <day>:<RM>           charged once when days > day
+//   penalty.overdue     = <days>:<RM>          when days > days
+//   penalty.habitual    = <prevLate>:<RM>      when prevLate >= prevLate
+//   discount.<n>        = percent=<p> [, borrower=<codes>] [, maxPrevLate=<n>] [, maxDays=<n>]
+//                         checked in order of n, only the first matching discount applies
+public final class FinePlan {
+
+    // The policy that used to be hard-coded in LibraryFineCalculator
+    public static final String DEFAULT_RULES = String.join("\n",
+            "book.R.flat = 100.00",
+            "book.G.tiers = 7:0.50, 30:1.00, *:2.00",
+            "book.M.tiers = *:0.20",
+            "book.C.tiers = 10:2.00, *:5.00",
+            "book.T.tiers = *:10.00",
+            "book.T.after = 15:200.00",
+            "penalty.overdue = 60:25.00",
+            "penalty.habitual = 3:10.00",
+            "discount.1 = percent=20, borrower=T",
+            "discount.2 = percent=50, maxPrevLate=0, maxDays=3",
+            "");
+
+    private static final int NO_LIMIT = Integer.MAX_VALUE;
+
+    private final FineTable[] tables;          // by BookType ordinal
+    private final int overdueDays;
+    private final long overduePenalty;
+    private final int habitualPrevLate;
+    private final long habitualPenalty;
+    private final int[] discountBorrowers;     // bit per Borrower ordinal
+    private final int[] discountMaxPrevLate;
+    private final int[] discountMaxDays;
+    private final int[] discountKeepPercent;   // 100 - discount percent
+
+    private FinePlan(FineTable[] tables, int overdueDays, long overduePenalty, int habitualPrevLate,
+                     long habitualPenalty, int[] discountBorrowers, int[] discountMaxPrevLate,
+                     int[] discountMaxDays, int[] discountKeepPercent) {
+        this.tables = tables;
+        this.overdueDays = overdueDays;
+        this.overduePenalty = overduePenalty;
+        this.habitualPrevLate = habitualPrevLate;
+        this.habitualPenalty = habitualPenalty;
+        this.discountBorrowers = discountBorrowers;
+        this.discountMaxPrevLate = discountMaxPrevLate;
+        this.discountMaxDays = discountMaxDays;
+        this.discountKeepPercent = discountKeepPercent;
+    }
+
+    public static FinePlan defaultPlan() {
+        try {
+            return parse(new StringReader(DEFAULT_RULES));
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringReader does not throw
+        }
+    }
+
+    public static FinePlan load(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path)) {
+            return parse(reader);
+        }
+    }
+
+    public static FinePlan parse(Reader reader) throws IOException {
+        Properties rules = new Properties();
+        rules.load(reader);
+        return compile(rules);
+    }
+
+    // Everything is checked and precomputed here; a bad rule file never reaches a batch
+    public static FinePlan compile(Properties rules) {
+        librarySystem.BookType[] bookTypes = librarySystem.BookType.values();
+        FineTable[] tables = new FineTable[bookTypes.length];
+        for (librarySystem.BookType bt : bookTypes) {
+            String prefix = "book." + bt.getCode() + ".";
+            long flat = toSen(rules.getProperty(prefix + "flat", "0"));
+            int[] tierDays = new int[0];
+            long[] tierRates = new long[0];
+            String tiers = rules.getProperty(prefix + "tiers");
+            if (tiers != null) {
+                String[] parts = tiers.split(",");
+                tierDays = new int[parts.length];
+                tierRates = new long[parts.length];
+                for (int i = 0; i < parts.length; i++) {
+                    String[] pair = pair(parts[i], prefix + "tiers");
+                    tierDays[i] = pair[0].equals("*") ? NO_LIMIT : Integer.parseInt(pair[0]);
+                    tierRates[i] = toSen(pair[1]);
+                    if (i > 0 && tierDays[i] <= tierDays[i - 1]) {
+                        throw new IllegalArgumentException(prefix + "tiers must be in increasing day order");
+                    }
+                }
+                if (tierDays[parts.length - 1] != NO_LIMIT) {
+                    throw new IllegalArgumentException(prefix + "tiers must end with *:<rate>");
+                }
+            }
+            int afterDays = NO_LIMIT;
+            long afterCharge = 0;
+            String after = rules.getProperty(prefix + "after");
+            if (after != null) {
+                String[] pair = pair(after, prefix + "after");
+                afterDays = Integer.parseInt(pair[0]);
+                afterCharge = toSen(pair[1]);
+            }
+
+            // the table has to reach past the last boundary so its tail is a straight line
+            int lastBoundary = afterDays == NO_LIMIT ? 0 : afterDays;
+            for (int d : tierDays) if (d != NO_LIMIT) lastBoundary = Math.max(lastBoundary, d);
+            int dayLimit = Math.max(FineTable.defaultDayLimit(), lastBoundary + 2);
+
+            int[] days = tierDays;
+            long[] rates = tierRates;
+            long flatFine = flat;
+            int afterLimit = afterDays;
+            long afterFine = afterCharge;
+            tables[bt.ordinal()] = new FineTable(d -> baseFine(d, flatFine, days, rates, afterLimit, afterFine), dayLimit);
+        }
+
+        String[] overdue = pair(rules.getProperty("penalty.overdue", NO_LIMIT + ":0"), "penalty.overdue");
+        String[] habitual = pair(rules.getProperty("penalty.habitual", NO_LIMIT + ":0"), "penalty.habitual");
+
+        List<String> discounts = new ArrayList<>();
+        for (int n = 1; rules.getProperty("discount." + n) != null; n++) {
+            discounts.add(rules.getProperty("discount." + n));
+        }
+        int count = discounts.size();
+        int[] borrowers = new int[count];
+        int[] maxPrevLate = new int[count];
+        int[] maxDays = new int[count];
+        int[] keepPercent = new int[count];
+        for (int i = 0; i < count; i++) {
+            borrowers[i] = -1; // every borrower unless restricted
+            maxPrevLate[i] = NO_LIMIT;
+            maxDays[i] = NO_LIMIT;
+            keepPercent[i] = -1;
+            for (String condition : discounts.get(i).split(",")) {
+                String[] kv = condition.trim().split("=");
+                String key = kv[0].trim();
+                String value = kv.length > 1 ? kv[1].trim() : "";
+                switch (key) {
+                    case "percent":
+                        int percent = Integer.parseInt(value);
+                        if (percent < 0 || percent > 100) {
+                            throw new IllegalArgumentException("discount." + (i + 1) + " percent must be 0..100");
+                        }
+                        keepPercent[i] = 100 - percent;
+                        break;
+                    case "borrower":
+                        borrowers[i] = 0;
+                        for (char c : value.toCharArray()) {
+                            librarySystem.Borrower b = librarySystem.Borrower.lookup(c);
+                            if (b == null) throw new IllegalArgumentException("Unknown borrower code in discount." + (i + 1) + ": " + c);
+                            borrowers[i] |= 1 << b.ordinal();
+                        }
+                        break;
+                    case "maxPrevLate":
+                        maxPrevLate[i] = Integer.parseInt(value);
+                        break;
+                    case "maxDays":
+                        maxDays[i] = Integer.parseInt(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown condition in discount." + (i + 1) + ": " + key);
+                }
+            }
+            if (keepPercent[i] < 0) {
+                throw new IllegalArgumentException("discount." + (i + 1) + " needs percent=<p>");
+            }
+        }
+
+        return new FinePlan(tables, Integer.parseInt(overdue[0]), toSen(overdue[1]),
+                Integer.parseInt(habitual[0]), toSen(habitual[1]),
+                borrowers, maxPrevLate, maxDays, keepPercent);
+    }
+
+    // Base fine in sen for one book type; only used while the FineTable is being built
+    private static long baseFine(int days, long flat, int[] tierDays, long[] tierRates, int afterDays, long afterCharge) {
+        if (days <= 0) return 0;
+        long fine = flat;
+        int from = 0;
+        for (int i = 0; i < tierDays.length && from < days; i++) {
+            int to = Math.min(days, tierDays[i]);
+            fine += tierRates[i] * (to - from);
+            from = to;
+        }
+        if (days > afterDays) fine += afterCharge;
+        return fine;
+    }
+
+    public long baseFineSen(librarySystem.BookType bookType, int days) {
+        return tables[bookType.ordinal()].baseFineSen(days);
+    }
+
+    public boolean overduePenaltyApplies(int days) {
+        return days > 0 && days > overdueDays;
+    }
+
+    public boolean habitualPenaltyApplies(int days, int prevLate) {
+        return days > 0 && prevLate >= habitualPrevLate;
+    }
+
+    public long calculateFinalFineSen(librarySystem.BookType bookType, librarySystem.Borrower borrower, int days, int prevLate) {
+        long fine = tables[bookType.ordinal()].baseFineSen(days);
+        if (days <= 0) return fine;
+
+        if (days > overdueDays) fine += overduePenalty;
+        if (prevLate >= habitualPrevLate) fine += habitualPenalty;
+        if (fine == 0) return 0;
+
+        int borrowerBit = 1 << borrower.ordinal();
+        for (int i = 0; i < discountKeepPercent.length; i++) {
+            if ((discountBorrowers[i] & borrowerBit) != 0
+                    && prevLate <= discountMaxPrevLate[i]
+                    && days <= discountMaxDays[i]) {
+                return CentsFineCalculator.percentOf(fine, discountKeepPercent[i]);
+            }
+        }
+        return fine;
+    }
+
+    private static String[] pair(String text, String rule) {
+        String[] pair = text.trim().split(":");
+        if (pair.length != 2) {
+            throw new IllegalArgumentException(rule + " must look like <number>:<amount>, got: " + text);
+        }
+        pair[0] = pair[0].trim();
+        pair[1] = pair[1].trim();
+        return pair;
+    }
+
+    // "0.50" -> 50 sen; amounts finer than 1 sen are rejected
+    private static long toSen(String rm) {
+        return new BigDecimal(rm.trim()).movePointRight(2).longValueExact();
+    }
+}
@@ -0,0 +1,59 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+// Holds the FinePlan in use. A new plan is compiled completely before it is published with
+// one volatile write, so a running batch sees either the old plan or the new one for each
+// record, never a half-loaded policy. Starts with FinePlan.DEFAULT_RULES.
+public final class FinePolicy {
+
+    private static volatile FinePlan current = FinePlan.defaultPlan();
+
+    private FinePolicy() { }
+
+    public static FinePlan current() {
+        return current;
+    }
+
+    public static void install(FinePlan plan) {
+        current = plan;
+    }
+
+    public static FinePlan load(Path rules) throws IOException {
+        FinePlan plan = FinePlan.load(rules);
+        install(plan);
+        return plan;
+    }
+
+    // Polls the rule file and swaps in the new plan whenever it changes; a file that fails
+    // to compile is reported once and the previous plan stays in place until the file
+    // changes again
+    public static Thread watch(Path rules, long intervalMillis) {
+        Thread watcher = new Thread(() -> {
+            FileTime lastModified = null;
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    FileTime modified = Files.getLastModifiedTime(rules);
+                    FileTime previous = lastModified;
+                    //recorded first, so a version that does not compile is not tried again every poll
+                    lastModified = modified;
+                    if (previous != null && !modified.equals(previous)) {
+                        load(rules);
+                        System.err.println("Reloaded fine rules from " + rules);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    System.err.println("Could not reload fine rules: " + e.getMessage());
+                }
+                try {
+                    Thread.sleep(intervalMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "fine-rules-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        return watcher;
+    }
+}
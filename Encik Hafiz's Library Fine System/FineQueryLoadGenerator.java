@@ -0,0 +1,208 @@
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Load test for FineQueryServer: opens all the connections first (like kiosks that stay
+// connected all day), then every connection sends its requests in rounds and checks each
+// answer against LibraryFineCalculator. Latency is measured per request, from the write of
+// its round to the read of its answer, and reported as percentiles.
+//
+// Usage: java FineQueryLoadGenerator [--host=127.0.0.1] [--port=7878 | --embedded]
+//                                    [--connections=1000] [--requests=100]
+//                                    [--pipeline=1] [--batch]
+//   embedded : starts a FineQueryServer in this JVM on a free port
+//   pipeline : requests written per round before reading the answers (1 = request/response)
+//   batch    : send each round as "BATCH n" + n lines instead of n pipelined lines
+//
+// Each connection uses two file descriptors with --embedded, so raise `ulimit -n` for tens
+// of thousands of connections.
+public final class FineQueryLoadGenerator {
+
+    private static final String[] BOOKS = {"R", "G", "M", "C", "T", "g", "X"};
+    private static final String[] BORROWERS = {"S", "T", "s", "Q"};
+
+    public static void main(String[] args) throws Exception {
+        String host = "127.0.0.1";
+        int port = FineQueryServer.DEFAULT_PORT;
+        boolean embedded = false;
+        int connections = 1000;
+        int requests = 100;
+        int pipeline = 1;
+        boolean batch = false;
+        for (String arg : args) {
+            if (arg.startsWith("--host=")) {
+                host = arg.substring("--host=".length());
+            } else if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.equals("--embedded")) {
+                embedded = true;
+            } else if (arg.startsWith("--connections=")) {
+                connections = Integer.parseInt(arg.substring("--connections=".length()));
+            } else if (arg.startsWith("--requests=")) {
+                requests = Integer.parseInt(arg.substring("--requests=".length()));
+            } else if (arg.startsWith("--pipeline=")) {
+                pipeline = Math.max(1, Integer.parseInt(arg.substring("--pipeline=".length())));
+            } else if (arg.equals("--batch")) {
+                batch = true;
+            } else {
+                System.err.println("Usage: java FineQueryLoadGenerator [--host=h] [--port=p | --embedded]"
+                        + " [--connections=n] [--requests=n] [--pipeline=n] [--batch]");
+                return;
+            }
+        }
+
+        FineQueryServer server = null;
+        if (embedded) {
+            server = new FineQueryServer(0, InetAddress.getLoopbackAddress(), Math.max(4096, connections));
+            FineQueryServer started = server;
+            Thread acceptor = new Thread(() -> {
+                try {
+                    started.serve();
+                } catch (IOException e) {
+                    System.err.println("Server stopped: " + e.getMessage());
+                }
+            }, "fine-query-acceptor");
+            acceptor.setDaemon(true);
+            acceptor.start();
+            host = "127.0.0.1";
+            port = server.port();
+        }
+
+        LatencyHistogram latency = new LatencyHistogram();
+        AtomicLong wrongAnswers = new AtomicLong();
+        AtomicLong failedConnections = new AtomicLong();
+        CountDownLatch connected = new CountDownLatch(connections);
+        CountDownLatch go = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(connections);
+        InetSocketAddress address = new InetSocketAddress(host, port);
+
+        ExecutorService clients = FineQueryServer.connectionExecutor("fine-query-client");
+        for (int c = 0; c < connections; c++) {
+            Client client = new Client(c, address, requests, pipeline, batch, latency, wrongAnswers);
+            clients.execute(() -> {
+                try {
+                    client.run(connected, go);
+                } catch (IOException | InterruptedException e) {
+                    failedConnections.incrementAndGet();
+                    connected.countDown();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        connected.await();
+        System.err.printf("%d connections open (%s)%n", connections - failedConnections.get(),
+                FineQueryServer.virtualThreads() ? "virtual threads" : "platform threads");
+        long start = System.nanoTime();
+        go.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        clients.shutdown();
+        clients.awaitTermination(10, TimeUnit.SECONDS);
+        if (server != null) server.close();
+
+        LatencyHistogram.Snapshot s = latency.snapshot();
+        double seconds = elapsed / 1e9;
+        System.out.printf("connections=%d pipeline=%d%s requests=%d failedConnections=%d wrongAnswers=%d%n",
+                connections, pipeline, batch ? " (batch)" : "", s.count(), failedConnections.get(), wrongAnswers.get());
+        System.out.printf("elapsed=%.3f s throughput=%.0f req/s%n", seconds, s.count() / seconds);
+        System.out.printf("latency us: p50=%.1f p90=%.1f p99=%.1f p99.9=%.1f max=%.1f mean=%.1f%n",
+                s.percentile(50) / 1e3, s.percentile(90) / 1e3, s.percentile(99) / 1e3,
+                s.percentile(99.9) / 1e3, s.max() / 1e3, s.mean() / 1e3);
+    }
+
+    private static final class Client {
+        private final InetSocketAddress address;
+        private final int requests;
+        private final int pipeline;
+        private final boolean batch;
+        private final LatencyHistogram latency;
+        private final AtomicLong wrongAnswers;
+        private final SplittableRandom random;
+
+        Client(int id, InetSocketAddress address, int requests, int pipeline, boolean batch,
+               LatencyHistogram latency, AtomicLong wrongAnswers) {
+            this.address = address;
+            this.requests = requests;
+            this.pipeline = pipeline;
+            this.batch = batch;
+            this.latency = latency;
+            this.wrongAnswers = wrongAnswers;
+            this.random = new SplittableRandom(id);
+        }
+
+        void run(CountDownLatch connected, CountDownLatch go) throws IOException, InterruptedException {
+            try (Socket socket = new Socket()) {
+                socket.setTcpNoDelay(true);
+                socket.connect(address, 30_000);
+                connected.countDown();
+                go.await();
+
+                OutputStream out = socket.getOutputStream();
+                InputStream in = new BufferedInputStream(socket.getInputStream(), 8192);
+                String[] expected = new String[pipeline];
+                StringBuilder round = new StringBuilder(pipeline * 16);
+                byte[] answer = new byte[256];
+
+                for (int sent = 0; sent < requests; ) {
+                    int n = Math.min(pipeline, requests - sent);
+                    round.setLength(0);
+                    if (batch) round.append("BATCH ").append(n).append('\n');
+                    for (int i = 0; i < n; i++) expected[i] = nextRequest(round);
+
+                    long roundStart = System.nanoTime();
+                    out.write(round.toString().getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                    for (int i = 0; i < n; i++) {
+                        int length = readLine(in, answer);
+                        if (length < 0) throw new IOException("server closed the connection");
+                        latency.record(System.nanoTime() - roundStart);
+                        if (!expected[i].equals(new String(answer, 0, length, StandardCharsets.US_ASCII))) {
+                            wrongAnswers.incrementAndGet();
+                        }
+                    }
+                    sent += n;
+                }
+            }
+        }
+
+        // Appends one request line and returns the answer the server should give
+        private String nextRequest(StringBuilder round) {
+            int days = random.nextInt(100) < 95 ? random.nextInt(0, 90) : -1;
+            String book = BOOKS[random.nextInt(100) < 95 ? random.nextInt(5) : random.nextInt(5, BOOKS.length)];
+            String borrower = BORROWERS[random.nextInt(100) < 95 ? random.nextInt(2) : random.nextInt(2, BORROWERS.length)];
+            int prevLate = random.nextInt(0, 6);
+            round.append(days).append(' ').append(book).append(' ').append(borrower).append(' ')
+                 .append(prevLate).append('\n');
+
+            if (days < 0) return "ERROR Invalid numeric input";
+            librarySystem.BookType bookType = librarySystem.BookType.lookupToken(book);
+            if (bookType == null) return "ERROR Invalid book code: " + book;
+            librarySystem.Borrower b = librarySystem.Borrower.lookupToken(borrower);
+            if (b == null) return "ERROR Invalid borrower code: " + borrower;
+            return librarySystem.LibraryFineCalculator.calculateFinalFine(bookType, b, days, prevLate).toPlainString();
+        }
+
+        private static int readLine(InputStream in, byte[] line) throws IOException {
+            int length = 0;
+            int b = in.read();
+            if (b < 0) return -1;
+            while (b >= 0 && b != '\n') {
+                if (length < line.length) line[length++] = (byte) b;
+                b = in.read();
+            }
+            return length;
+        }
+    }
+}
@@ -0,0 +1,271 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Fine lookups for the circulation desk and the self-checkout kiosks over a plain TCP socket.
+// Each request is one case in the usual input format, each answer is one line:
+//
+//   request : <days> <book code> <borrower code> <prevLate>      e.g. 12 G S 1
+//   answer  : <fine>  or  ERROR <message>                        e.g. 7.00
+//
+// Pipelining: a client may send many requests before reading; answers come back in order, and
+// the server only flushes when it has answered everything that has arrived, so a burst of
+// requests goes back in one write.
+// Batching: "BATCH n" followed by n request lines (like the test case count of the input
+// file) is answered with n lines in a single flush.
+//
+// One thread per connection with blocking I/O. On Java 21+ the threads are virtual threads,
+// so tens of thousands of idle kiosks cost a few KB each; on older JDKs it falls back to
+// platform threads with small stacks.
+//
+// Usage: java FineQueryServer [--port=7878] [--bind=127.0.0.1] [--backlog=4096]
+//   load test: java FineQueryLoadGenerator (see that file)
+public final class FineQueryServer {
+
+    public static final int DEFAULT_PORT = 7878;
+
+    static final String INCOMPLETE = "ERROR " + FineBatchProcessor.INCOMPLETE_INPUT;
+
+    private static final int MAX_LINE = 256;
+    private static final int MAX_BATCH = 1_000_000;
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = connectionExecutor("fine-query");
+    private final AtomicInteger openConnections = new AtomicInteger();
+
+    public FineQueryServer(int port, InetAddress bind, int backlog) throws IOException {
+        this.serverSocket = new ServerSocket(port, backlog, bind);
+    }
+
+    public int port() { return serverSocket.getLocalPort(); }
+
+    public int openConnections() { return openConnections.get(); }
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        String bind = "127.0.0.1";
+        int backlog = 4096;
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--bind=")) {
+                bind = arg.substring("--bind=".length());
+            } else if (arg.startsWith("--backlog=")) {
+                backlog = Integer.parseInt(arg.substring("--backlog=".length()));
+            } else {
+                System.err.println("Usage: java FineQueryServer [--port=7878] [--bind=127.0.0.1] [--backlog=4096]");
+                return;
+            }
+        }
+        FineQueryServer server = new FineQueryServer(port, InetAddress.getByName(bind), backlog);
+        System.err.println("Fine query server on " + bind + ":" + server.port()
+                + (virtualThreads() ? " (virtual threads)" : " (platform threads)"));
+        server.serve();
+    }
+
+    // Accept loop; returns when the server socket is closed
+    public void serve() throws IOException {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (serverSocket.isClosed()) break;
+                throw e;
+            }
+            openConnections.incrementAndGet();
+            connections.execute(() -> {
+                try (Socket s = socket) {
+                    s.setTcpNoDelay(true);
+                    handle(s.getInputStream(), s.getOutputStream());
+                } catch (IOException e) {
+                    //client went away; nothing to answer
+                } finally {
+                    openConnections.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+
+    // Answers requests until the client closes the connection
+    static void handle(InputStream socketIn, OutputStream socketOut) throws IOException {
+        InputStream in = new BufferedInputStream(socketIn, 8192);
+        OutputStream out = new BufferedOutputStream(socketOut, 8192);
+        byte[] line = new byte[MAX_LINE];
+        int[] bounds = new int[8];
+        int batchRemaining = 0;
+
+        while (true) {
+            int length = readLine(in, line);
+            if (length < 0) break;
+
+            if (batchRemaining == 0 && startsWith(line, length, "BATCH")) {
+                int n = parseBatchSize(line, length, bounds);
+                if (n < 0) {
+                    writeLine(out, INCOMPLETE);
+                } else {
+                    batchRemaining = n;
+                }
+            } else {
+                answer(line, length, bounds, out);
+                if (batchRemaining > 0) batchRemaining--;
+            }
+            //flush once everything that has arrived is answered (and never inside a batch)
+            if (batchRemaining == 0 && in.available() == 0) out.flush();
+        }
+        out.flush();
+    }
+
+    // Reads one line without the line ending; longer lines are cut at MAX_LINE. -1 at end of stream
+    private static int readLine(InputStream in, byte[] line) throws IOException {
+        int length = 0;
+        int b = in.read();
+        if (b < 0) return -1;
+        while (b >= 0 && b != '\n') {
+            if (b != '\r' && length < line.length) line[length++] = (byte) b;
+            b = in.read();
+        }
+        return length;
+    }
+
+    // Same checks and messages as librarySystem.main, for one case
+    static void answer(byte[] line, int length, int[] bounds, OutputStream out) throws IOException {
+        int tokens = tokenize(line, length, bounds);
+        if (tokens != 4) {
+            writeLine(out, INCOMPLETE);
+            return;
+        }
+        long days = parseInt(line, bounds[0], bounds[1]);
+        long prevLate = parseInt(line, bounds[6], bounds[7]);
+        if (days == Long.MIN_VALUE || prevLate == Long.MIN_VALUE) {
+            writeLine(out, INCOMPLETE);
+            return;
+        }
+        if (days < 0 || prevLate < 0) {
+            writeLine(out, "ERROR Invalid numeric input");
+            return;
+        }
+        //array lookup on the first byte, as in the batch mode; a String only for error messages
+        int bookChar = line[bounds[2]] & 0xFF;
+        librarySystem.BookType bookType = bookChar < 128 ? librarySystem.BookType.lookup(bookChar)
+                : librarySystem.BookType.lookupToken(token(line, bounds[2], bounds[3]));
+        if (bookType == null) {
+            writeLine(out, "ERROR Invalid book code: " + token(line, bounds[2], bounds[3]));
+            return;
+        }
+        int borrowerChar = line[bounds[4]] & 0xFF;
+        librarySystem.Borrower borrower = borrowerChar < 128 ? librarySystem.Borrower.lookup(borrowerChar)
+                : librarySystem.Borrower.lookupToken(token(line, bounds[4], bounds[5]));
+        if (borrower == null) {
+            writeLine(out, "ERROR Invalid borrower code: " + token(line, bounds[4], bounds[5]));
+            return;
+        }
+        BigDecimal fine = librarySystem.LibraryFineCalculator.calculateFinalFine(
+                bookType, borrower, (int) days, (int) prevLate);
+        writeLine(out, fine.toPlainString());
+    }
+
+    // Start/end offsets of up to 4 whitespace-separated tokens; returns the token count (5 = too many)
+    private static int tokenize(byte[] line, int length, int[] bounds) {
+        int tokens = 0;
+        int i = 0;
+        while (true) {
+            while (i < length && (line[i] == ' ' || line[i] == '\t')) i++;
+            if (i == length) return tokens;
+            if (tokens == 4) return 5;
+            bounds[tokens * 2] = i;
+            while (i < length && line[i] != ' ' && line[i] != '\t') i++;
+            bounds[tokens * 2 + 1] = i;
+            tokens++;
+        }
+    }
+
+    // int value of the token, or Long.MIN_VALUE if it is not an int (like !hasNextInt())
+    private static long parseInt(byte[] line, int from, int to) {
+        boolean negative = line[from] == '-';
+        int i = negative || line[from] == '+' ? from + 1 : from;
+        if (i == to || to - i > 10) return Long.MIN_VALUE;
+        long value = 0;
+        for (; i < to; i++) {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9) return Long.MIN_VALUE;
+            value = value * 10 + digit;
+        }
+        value = negative ? -value : value;
+        return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? Long.MIN_VALUE : value;
+    }
+
+    private static String token(byte[] line, int from, int to) {
+        return new String(line, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    private static boolean startsWith(byte[] line, int length, String word) {
+        if (length < word.length()) return false;
+        for (int i = 0; i < word.length(); i++) {
+            if (line[i] != word.charAt(i)) return false;
+        }
+        return length == word.length() || line[word.length()] == ' ';
+    }
+
+    private static int parseBatchSize(byte[] line, int length, int[] bounds) {
+        if (tokenize(line, length, bounds) != 2) return -1;
+        long n = parseInt(line, bounds[2], bounds[3]);
+        return n < 0 || n > MAX_BATCH ? -1 : (int) n;
+    }
+
+    private static void writeLine(OutputStream out, String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 128) {
+                //only an invalid code typed with non-ASCII characters gets here
+                out.write(text.getBytes(StandardCharsets.UTF_8));
+                out.write('\n');
+                return;
+            }
+        }
+        for (int i = 0; i < text.length(); i++) out.write(text.charAt(i));
+        out.write('\n');
+    }
+
+    // --- threads ---
+
+    // A virtual thread per task when the JDK has them (21+), else a cached pool of platform
+    // threads with 256 KB stacks; looked up by reflection so the code still compiles on 17
+    static ExecutorService connectionExecutor(String name) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            ThreadFactory factory = task -> {
+                Thread thread = new Thread(null, task, name + "-" + count.incrementAndGet(), 256 * 1024);
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newCachedThreadPool(factory);
+        }
+    }
+
+    static boolean virtualThreads() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+import java.util.function.IntToLongFunction;
+
+// Precomputed base fines (in sen) for one BookType.
+// Every book type is piecewise linear in days, so the table holds the exact base fine for
+// 0..dayLimit and past the limit continues with the slope of the last segment:
+//   base(days) = table[dayLimit] + slope * (days - dayLimit)
+// The hot path is then one array read per record instead of the tiered switch.
+public final class FineTable {
+
+    // All tier boundaries (7, 10, 15, 30) lie below this, so the last segment is straight
+    public static final int MIN_DAY_LIMIT = 32;
+    public static final int DEFAULT_DAY_LIMIT = 366;
+
+    // -Dlibrary.fineTableDays=N changes the dense part of the tables built at startup
+    private static final int DAY_LIMIT =
+            Math.max(MIN_DAY_LIMIT, Integer.getInteger("library.fineTableDays", DEFAULT_DAY_LIMIT));
+
+    // One table per BookType, indexed by ordinal(), built once when the class loads
+    private static final FineTable[] TABLES = new FineTable[librarySystem.BookType.values().length];
+    static {
+        for (librarySystem.BookType bt : librarySystem.BookType.values()) {
+            TABLES[bt.ordinal()] = new FineTable(days -> CentsFineCalculator.baseFineSen(bt, days), DAY_LIMIT);
+        }
+    }
+
+    private final long[] baseSen;
+    private final int dayLimit;
+    private final long slope;
+
+    // baseFine must be linear past dayLimit (checked only at the limit itself)
+    public FineTable(IntToLongFunction baseFine, int dayLimit) {
+        if (dayLimit < MIN_DAY_LIMIT) {
+            throw new IllegalArgumentException("dayLimit must be at least " + MIN_DAY_LIMIT);
+        }
+        this.dayLimit = dayLimit;
+        this.baseSen = new long[dayLimit + 1];
+        for (int days = 1; days <= dayLimit; days++) {
+            baseSen[days] = baseFine.applyAsLong(days);
+        }
+        this.slope = baseSen[dayLimit] - baseSen[dayLimit - 1];
+    }
+
+    // Dense part used for the startup tables (and as the minimum for FinePlan tables)
+    public static int defaultDayLimit() { return DAY_LIMIT; }
+
+    public static FineTable of(librarySystem.BookType bookType) {
+        return TABLES[bookType.ordinal()];
+    }
+
+    public int dayLimit() { return dayLimit; }
+
+    public long baseFineSen(int days) {
+        if (days <= 0) return 0;
+        if (days <= dayLimit) return baseSen[days];
+        return baseSen[dayLimit] + slope * (long) (days - dayLimit);
+    }
+
+    // Same as CentsFineCalculator.calculateFinalFineSen, with the base fine looked up here
+    public long calculateFinalFineSen(librarySystem.Borrower borrower, int days, int prevLate) {
+        long withPenalties = CentsFineCalculator.applyPenaltiesSen(baseFineSen(days), days, prevLate);
+        return CentsFineCalculator.applyDiscountsSen(withPenalties, borrower, days, prevLate);
+    }
+}
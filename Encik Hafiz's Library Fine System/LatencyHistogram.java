@@ -0,0 +1,95 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// HDR-style latency histogram in nanoseconds: exact below 128 ns, then 64 sub-buckets for
+// every power of two, so any recorded value is off by less than 1/64 (about 1.6%) and the
+// whole range up to Long.MAX_VALUE fits in a fixed table of counters. Recording is a shift,
+// an atomic increment of the bucket, an add to the running total and a compare-and-set of
+// the max only when the value is a new max; safe from any number of threads.
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;                 // 64 sub-buckets per power of two
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;      // values below 128 get their own bucket
+    private static final int SIZE = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(SIZE);
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(index(nanos));
+        totalNanos.add(nanos);
+        if (nanos > max.get()) max.accumulateAndGet(nanos, Math::max);
+    }
+
+    static int index(long value) {
+        if (value < LINEAR_LIMIT) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    // largest value that falls in the bucket, so percentiles never under-report
+    static long highestValue(int index) {
+        if (index < LINEAR_LIMIT) return index;
+        int shift = (index - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+        long subBucket = (index - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    // Copy of the counters at one moment, for percentiles and the JSON report
+    public Snapshot snapshot() {
+        long[] copy = new long[SIZE];
+        long count = 0;
+        for (int i = 0; i < SIZE; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, totalNanos.sum(), max.get());
+    }
+
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long totalNanos;
+        private final long max;
+
+        Snapshot(long[] counts, long count, long totalNanos, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.max = max;
+        }
+
+        public long count() { return count; }
+
+        public long max() { return max; }
+
+        public double mean() { return count == 0 ? 0 : (double) totalNanos / count; }
+
+        // value at the given percentile (0-100)
+        public long percentile(double percentile) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(highestValue(i), max);
+            }
+            return max;
+        }
+
+        void appendJson(StringBuilder json) {
+            json.append("{\"count\":").append(count)
+                .append(",\"meanNs\":").append(Math.round(mean()))
+                .append(",\"p50Ns\":").append(percentile(50))
+                .append(",\"p90Ns\":").append(percentile(90))
+                .append(",\"p99Ns\":").append(percentile(99))
+                .append(",\"p999Ns\":").append(percentile(99.9))
+                .append(",\"maxNs\":").append(max)
+                .append('}');
+        }
+    }
+}
@@ -0,0 +1,141 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+// A whole loan file parsed into primitive columns (one slot per case), so the records can be
+// split into chunks and processed in parallel by ParallelFineEngine.
+// Parsing follows FineBatchProcessor.process exactly: same validation order and same
+// messages, with the message that stops the run (missing/incomplete input) kept at the end.
+public final class LoanBatch {
+
+    // status of each case
+    static final byte OK = 0;
+    static final byte INVALID_NUMERIC = 1;
+    static final byte INVALID_BOOK = 2;
+    static final byte INVALID_BORROWER = 3;
+
+    int size;
+    int[] days;
+    int[] prevLate;
+    byte[] bookType;   // BookType ordinal
+    byte[] borrower;   // Borrower ordinal
+    byte[] status;
+
+    // "Invalid book code: X" style messages, only for the (rare) rejected cases
+    final Map<Integer, String> errorMessages = new HashMap<>();
+
+    // message printed after the last case when the input ends early, or null
+    String trailingMessage;
+
+    private LoanBatch(int capacity) {
+        days = new int[capacity];
+        prevLate = new int[capacity];
+        bookType = new byte[capacity];
+        borrower = new byte[capacity];
+        status = new byte[capacity];
+    }
+
+    public int size() { return size; }
+
+    // Maps the file when it fits in one buffer, otherwise streams it
+    public static LoanBatch load(Path path) throws IOException {
+        return load(path, null);
+    }
+
+    public static LoanBatch load(Path path, FineMetrics metrics) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize <= Integer.MAX_VALUE) {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+                return parse(new LoanRecordReader(mapped), metrics);
+            }
+        }
+        try (InputStream in = new FileInputStream(path.toFile())) {
+            return parse(new LoanRecordReader(in), metrics);
+        }
+    }
+
+    public static LoanBatch parse(LoanRecordReader reader) throws IOException {
+        return parse(reader, null);
+    }
+
+    // With metrics, 1 record in N has its parse time recorded and an early end of input is
+    // counted as a rejected case; the other rejects are counted when the chunks are computed
+    public static LoanBatch parse(LoanRecordReader reader, FineMetrics metrics) throws IOException {
+        if (!reader.nextInt()) {
+            LoanBatch empty = new LoanBatch(0);
+            empty.trailingMessage = FineBatchProcessor.MISSING_CASES;
+            return empty;
+        }
+        int testCases = reader.intValue();
+        //the header may promise more cases than the file holds, so grow on demand
+        LoanBatch batch = new LoanBatch(Math.max(0, Math.min(testCases, 1 << 20)));
+
+        for (int caseNum = 1; caseNum <= testCases; caseNum++) {
+            boolean timed = metrics != null && metrics.sampled(caseNum);
+            long parseStart = timed ? System.nanoTime() : 0;
+
+            if (!reader.nextInt()) break;
+            int days = reader.intValue();
+
+            if (!reader.nextToken()) break;
+            int bookChar = reader.firstByte();
+            librarySystem.BookType book = bookChar < 128 ? librarySystem.BookType.lookup(bookChar)
+                    : librarySystem.BookType.lookupToken(reader.tokenString());
+            String bookToken = book == null ? reader.tokenString() : null;
+
+            if (!reader.nextToken()) break;
+            int borrowerChar = reader.firstByte();
+            librarySystem.Borrower borrower = borrowerChar < 128 ? librarySystem.Borrower.lookup(borrowerChar)
+                    : librarySystem.Borrower.lookupToken(reader.tokenString());
+            String borrowerToken = borrower == null ? reader.tokenString() : null;
+
+            if (!reader.nextInt()) break;
+            int prevLate = reader.intValue();
+            if (timed) metrics.recordStage(FineMetrics.Stage.PARSE, System.nanoTime() - parseStart);
+
+            int i = batch.size++;
+            batch.ensureCapacity(batch.size);
+            batch.days[i] = days;
+            batch.prevLate[i] = prevLate;
+            if (days < 0 || prevLate < 0) {
+                batch.status[i] = INVALID_NUMERIC;
+                batch.errorMessages.put(i, "Invalid numeric input");
+            } else if (bookToken != null) {
+                batch.status[i] = INVALID_BOOK;
+                batch.errorMessages.put(i, "Invalid book code: " + bookToken);
+            } else if (borrowerToken != null) {
+                batch.status[i] = INVALID_BORROWER;
+                batch.errorMessages.put(i, "Invalid borrower code: " + borrowerToken);
+            } else {
+                batch.bookType[i] = (byte) book.ordinal();
+                batch.borrower[i] = (byte) borrower.ordinal();
+            }
+        }
+        if (batch.size < testCases) {
+            batch.trailingMessage = FineBatchProcessor.INCOMPLETE_INPUT;
+            if (metrics != null) {
+                FineMetrics.Recorder recorder = metrics.recorder();
+                recorder.reject(FineMetrics.Reject.INCOMPLETE_INPUT);
+                recorder.flush();
+            }
+        }
+        return batch;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= days.length) return;
+        int capacity = Math.max(needed, days.length * 2);
+        days = java.util.Arrays.copyOf(days, capacity);
+        prevLate = java.util.Arrays.copyOf(prevLate, capacity);
+        bookType = java.util.Arrays.copyOf(bookType, capacity);
+        borrower = java.util.Arrays.copyOf(borrower, capacity);
+        status = java.util.Arrays.copyOf(status, capacity);
+    }
+}
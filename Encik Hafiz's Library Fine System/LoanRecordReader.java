@@ -0,0 +1,124 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+// Byte-level tokenizer for loan files, used by the batch mode instead of java.util.Scanner
+// Reads the same whitespace-separated tokens as Scanner.next()/nextInt() but without regex
+// matching or a String per token (the raw token bytes are kept in a reusable array)
+public final class LoanRecordReader {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    //exactly one of the two sources is set
+    private final InputStream in;
+    private final ByteBuffer mapped;
+    private final byte[] buf = new byte[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+
+    //last token read, only turned into a String when an error message needs it
+    private byte[] token = new byte[32];
+    private int tokenLength;
+    private int intValue;
+    private long longValue;
+
+    public LoanRecordReader(InputStream in) {
+        this.in = in;
+        this.mapped = null;
+    }
+
+    // Reads from an in-memory or memory-mapped buffer (e.g. FileChannel.map) without copying the file
+    public LoanRecordReader(ByteBuffer mapped) {
+        this.in = null;
+        this.mapped = mapped;
+    }
+
+    // Reads the next whitespace-separated token, false at end of input (like !hasNext())
+    public boolean nextToken() throws IOException {
+        int b;
+        do {
+            b = read();
+            if (b < 0) return false;
+        } while (isWhitespace(b));
+
+        tokenLength = 0;
+        do {
+            if (tokenLength == token.length) {
+                byte[] bigger = new byte[token.length * 2];
+                System.arraycopy(token, 0, bigger, 0, tokenLength);
+                token = bigger;
+            }
+            token[tokenLength++] = (byte) b;
+            b = read();
+        } while (b >= 0 && !isWhitespace(b));
+        return true;
+    }
+
+    // Reads the next token as an int; false if missing or not an int (like !hasNextInt())
+    public boolean nextInt() throws IOException {
+        if (!nextLong()) return false;
+        if (longValue < Integer.MIN_VALUE || longValue > Integer.MAX_VALUE) return false;
+        intValue = (int) longValue;
+        return true;
+    }
+
+    // Reads the next token as a long (borrower IDs); false if missing or not a long
+    public boolean nextLong() throws IOException {
+        if (!nextToken()) return false;
+
+        int i = 0;
+        boolean negative = false;
+        if (token[0] == '-' || token[0] == '+') {
+            negative = token[0] == '-';
+            i = 1;
+        }
+        if (i == tokenLength) return false;
+
+        //accumulate as a negative number so Long.MIN_VALUE parses without overflow
+        long value = 0;
+        for (; i < tokenLength; i++) {
+            int digit = token[i] - '0';
+            if (digit < 0 || digit > 9) return false;
+            if (value < (Long.MIN_VALUE + digit) / 10) return false;
+            value = value * 10 - digit;
+        }
+        if (!negative && value == Long.MIN_VALUE) return false;
+        longValue = negative ? value : -value;
+        return true;
+    }
+
+    public int intValue() { return intValue; }
+
+    public long longValue() { return longValue; }
+
+    // First byte of the last token (the code character for book / borrower tokens)
+    public int firstByte() { return token[0] & 0xFF; }
+
+    public String tokenString() {
+        return new String(token, 0, tokenLength, java.nio.charset.StandardCharsets.UTF_8);
+    }
+
+    private int read() throws IOException {
+        if (pos == limit) {
+            limit = fill();
+            pos = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buf[pos++] & 0xFF;
+    }
+
+    private int fill() throws IOException {
+        if (in != null) return in.read(buf, 0, buf.length);
+        int n = Math.min(buf.length, mapped.remaining());
+        mapped.get(buf, 0, n);
+        return n;
+    }
+
+    //same set Scanner treats as delimiters for ASCII input (Character.isWhitespace)
+    private static boolean isWhitespace(int b) {
+        return b == ' ' || (b >= '\t' && b <= '\r') || (b >= 0x1C && b <= 0x1F);
+    }
+}
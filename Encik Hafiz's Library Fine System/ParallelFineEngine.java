@@ -0,0 +1,193 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Fork/join version of the batch run for multi-core servers.
+// The parsed LoanBatch is split into chunks; each leaf task computes its fines, renders its
+// own output bytes and keeps its own totals, and the partial results are merged on join in
+// case order. Nothing is shared between tasks, so no lock is needed and the output is
+// byte-for-byte the same as FineBatchProcessor.
+//
+// Usage: java librarySystem --batch <file> --parallel[=threads] [--chunk=records] ...
+public final class ParallelFineEngine {
+
+    public static final int DEFAULT_CHUNK_SIZE = 16_384;
+
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final FineBatchProcessor.Format format;
+    private final FineBatchProcessor.Engine engine;
+    private FineMetrics metrics;
+
+    public ParallelFineEngine(int parallelism, int chunkSize,
+                              FineBatchProcessor.Format format, FineBatchProcessor.Engine engine) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.chunkSize = Math.max(1, chunkSize);
+        this.format = format;
+        this.engine = engine;
+    }
+
+    public int parallelism() { return pool.getParallelism(); }
+
+    // Each chunk counts into its own recorder and flushes it once, at the end of the chunk
+    public void useMetrics(FineMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // Partial result of one range of cases: rendered output plus totals, in case order
+    public static final class Result {
+        final List<byte[]> output = new ArrayList<>();
+        final long[] totalByBookType = new long[librarySystem.BookType.values().length];
+        final long[] countByBookType = new long[librarySystem.BookType.values().length];
+        final long[] totalByBorrower = new long[librarySystem.Borrower.values().length];
+        final long[] countByBorrower = new long[librarySystem.Borrower.values().length];
+
+        // right-hand results always come after this one in case order
+        void merge(Result right) {
+            output.addAll(right.output);
+            for (int i = 0; i < totalByBookType.length; i++) {
+                totalByBookType[i] += right.totalByBookType[i];
+                countByBookType[i] += right.countByBookType[i];
+            }
+            for (int i = 0; i < totalByBorrower.length; i++) {
+                totalByBorrower[i] += right.totalByBorrower[i];
+                countByBorrower[i] += right.countByBorrower[i];
+            }
+        }
+
+        public long totalSen(librarySystem.BookType bookType) { return totalByBookType[bookType.ordinal()]; }
+
+        public long totalSen(librarySystem.Borrower borrower) { return totalByBorrower[borrower.ordinal()]; }
+    }
+
+    public Result process(LoanBatch batch) {
+        return pool.invoke(new ChunkTask(batch, 0, batch.size()));
+    }
+
+    // Writes the merged chunks (and the trailing message, if the input ended early) in order
+    public void write(LoanBatch batch, Result result, OutputStream out) throws IOException {
+        try (FineOutputSink sink = new FineOutputSink(out)) {
+            for (byte[] chunk : result.output) sink.bytes(chunk);
+            if (batch.trailingMessage != null) {
+                if (batch.trailingMessage.equals(FineBatchProcessor.MISSING_CASES)) {
+                    sink.ascii(batch.trailingMessage).newline();
+                } else {
+                    FineBatchProcessor.writeError(sink, format, batch.size() + 1, batch.trailingMessage);
+                }
+            }
+        }
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    // Totals go to stderr, next to the throughput line
+    public static void reportTotals(Result result) {
+        for (librarySystem.BookType bt : librarySystem.BookType.values()) {
+            System.err.printf("%-10s %12d cases  RM %s%n", bt, result.countByBookType[bt.ordinal()],
+                    BigDecimal.valueOf(result.totalByBookType[bt.ordinal()], 2).toPlainString());
+        }
+        for (librarySystem.Borrower b : librarySystem.Borrower.values()) {
+            System.err.printf("%-10s %12d cases  RM %s%n", b, result.countByBorrower[b.ordinal()],
+                    BigDecimal.valueOf(result.totalByBorrower[b.ordinal()], 2).toPlainString());
+        }
+    }
+
+    private final class ChunkTask extends RecursiveTask<Result> {
+        private static final long serialVersionUID = 1L;
+
+        private final LoanBatch batch;
+        private final int from;
+        private final int to;
+
+        ChunkTask(LoanBatch batch, int from, int to) {
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Result compute() {
+            if (to - from <= chunkSize) {
+                return computeChunk();
+            }
+            int mid = (from + to) >>> 1;
+            ChunkTask left = new ChunkTask(batch, from, mid);
+            ChunkTask right = new ChunkTask(batch, mid, to);
+            left.fork();
+            Result rightResult = right.compute();
+            Result leftResult = left.join();
+            leftResult.merge(rightResult);
+            return leftResult;
+        }
+
+        private Result computeChunk() {
+            Result result = new Result();
+            librarySystem.BookType[] bookTypes = librarySystem.BookType.values();
+            librarySystem.Borrower[] borrowers = librarySystem.Borrower.values();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream((to - from) * 40);
+            //one plan per chunk, so a rule reload never splits a chunk between two policies
+            FinePlan plan = FinePolicy.current();
+            FineMetrics.Recorder recorder = metrics == null ? null : metrics.recorder();
+
+            try (FineOutputSink sink = new FineOutputSink(bytes)) {
+                for (int i = from; i < to; i++) {
+                    int caseNum = i + 1;
+                    if (batch.status[i] != LoanBatch.OK) {
+                        if (recorder != null) recorder.reject(reject(batch.status[i]));
+                        FineBatchProcessor.writeError(sink, format, caseNum, batch.errorMessages.get(i));
+                        continue;
+                    }
+                    boolean timed = recorder != null && metrics.sampled(caseNum);
+                    long computeStart = timed ? System.nanoTime() : 0;
+                    int bt = batch.bookType[i];
+                    int b = batch.borrower[i];
+                    long fineSen = fineSen(plan, bookTypes[bt], borrowers[b], batch.days[i], batch.prevLate[i]);
+
+                    result.totalByBookType[bt] += fineSen;
+                    result.countByBookType[bt]++;
+                    result.totalByBorrower[b] += fineSen;
+                    result.countByBorrower[b]++;
+                    long writeStart = timed ? System.nanoTime() : 0;
+                    FineBatchProcessor.writeResult(sink, format, caseNum, fineSen);
+                    if (recorder != null) {
+                        FineBatchProcessor.record(recorder, plan, bookTypes[bt], borrowers[b],
+                                batch.days[i], batch.prevLate[i], fineSen);
+                    }
+                    if (timed) {
+                        metrics.recordStage(FineMetrics.Stage.COMPUTE, writeStart - computeStart);
+                        metrics.recordStage(FineMetrics.Stage.WRITE, System.nanoTime() - writeStart);
+                    }
+                }
+            } catch (IOException e) {
+                //ByteArrayOutputStream does not throw
+                throw new UncheckedIOException(e);
+            }
+            result.output.add(bytes.toByteArray());
+            if (recorder != null) recorder.flush();
+            return result;
+        }
+
+        private FineMetrics.Reject reject(byte status) {
+            if (status == LoanBatch.INVALID_BOOK) return FineMetrics.Reject.INVALID_BOOK_CODE;
+            if (status == LoanBatch.INVALID_BORROWER) return FineMetrics.Reject.INVALID_BORROWER_CODE;
+            return FineMetrics.Reject.INVALID_NUMERIC;
+        }
+
+        private long fineSen(FinePlan plan, librarySystem.BookType bookType, librarySystem.Borrower borrower,
+                             int days, int prevLate) {
+            if (engine == FineBatchProcessor.Engine.CENTS) {
+                return plan.calculateFinalFineSen(bookType, borrower, days, prevLate);
+            }
+            return librarySystem.LibraryFineCalculator.calculateFinalFine(bookType, borrower, days, prevLate)
+                    .unscaledValue().longValueExact();
+        }
+    }
+}
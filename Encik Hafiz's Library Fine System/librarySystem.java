@@ -1,5 +1,3 @@
-import java.util.Map;
-import java.util.HashMap;
 import java.util.Optional;
 import java.util.Scanner;
 import java.math.BigDecimal;
@@ -106,6 +104,14 @@ public class librarySystem {
             }
             return result;
         }
+
+        // Full pipeline for one case: base fine -> penalties -> discounts, rounded to 2 decimal places
+        public static BigDecimal calculateFinalFine(BookType bookType, Borrower borrower, int days, int prevLate) {
+            BigDecimal base = calculateBaseFine(bookType, days);
+            BigDecimal withPenalties = applyPenalties(base, days, prevLate);
+            BigDecimal finalFine = applyDiscounts(withPenalties, borrower, days, prevLate);
+            return finalFine.setScale(2, RoundingMode.HALF_UP);
+        }
     }
 
     // Enum for BookType with helper lookup
@@ -122,11 +128,15 @@ public class librarySystem {
         BookType(char code) { this.code = code; } 
         public char getCode() { return code; }
 
-        //reverse lookup (from code --> enum)
-        private static final Map<Character, BookType> CODE_MAP = new HashMap<>();
+        //reverse lookup (from code --> enum), indexed directly by the ASCII code
+        //both 'G' and 'g' are filled in, so no toUpperCase and no boxed Character is needed
+        private static final BookType[] BY_CODE = new BookType[128];
         static {
             //values() returns an array of all enum constants ('R' --> REFERENCE)
-            for (BookType bt : values()) CODE_MAP.put(bt.code, bt);
+            for (BookType bt : values()) {
+                BY_CODE[bt.code] = bt;
+                BY_CODE[Character.toLowerCase(bt.code)] = bt;
+            }
         }
 
         /*helper converts a char code to the corresponding BookType, 
@@ -135,7 +145,19 @@ public class librarySystem {
         Optional.ofNullable(value): Returns an Optional describing the value if non-null, otherwise empty
         */
         public static Optional<BookType> fromCode(char c) {
-            return Optional.ofNullable(CODE_MAP.get(Character.toUpperCase(c)));
+            return Optional.ofNullable(c < 128 ? BY_CODE[c] : lookup(Character.toUpperCase(c)));
+        }
+
+        // Allocation-free lookup for a code char or an input byte (0..255); null if not a code
+        public static BookType lookup(int c) {
+            return c >= 0 && c < 128 ? BY_CODE[c] : null;
+        }
+
+        // Code from the first character of a token, like token.toUpperCase().charAt(0);
+        // only non-ASCII tokens (e.g. invalid input) take the String path
+        public static BookType lookupToken(String token) {
+            char c = token.charAt(0);
+            return c < 128 ? BY_CODE[c] : lookup(token.toUpperCase().charAt(0));
         }
     }
 
@@ -148,18 +170,45 @@ public class librarySystem {
         Borrower(char code) { this.code = code; }
         public char getCode() { return code; }
 
-        private static final Map<Character, Borrower> CODE_MAP = new HashMap<>();
+        private static final Borrower[] BY_CODE = new Borrower[128];
         static {
-            for (Borrower b : values()) CODE_MAP.put(b.code, b);
+            for (Borrower b : values()) {
+                BY_CODE[b.code] = b;
+                BY_CODE[Character.toLowerCase(b.code)] = b;
+            }
         }
 
         public static Optional<Borrower> fromCode(char c) {
-            return Optional.ofNullable(CODE_MAP.get(Character.toUpperCase(c)));
+            return Optional.ofNullable(c < 128 ? BY_CODE[c] : lookup(Character.toUpperCase(c)));
+        }
+
+        public static Borrower lookup(int c) {
+            return c >= 0 && c < 128 ? BY_CODE[c] : null;
+        }
+
+        public static Borrower lookupToken(String token) {
+            char c = token.charAt(0);
+            return c < 128 ? BY_CODE[c] : lookup(token.toUpperCase().charAt(0));
         }
     }
 
     // Main: read input, validate, compute and print fines
-    public static void main(String[] args) {
+    public static void main(String[] args) throws java.io.IOException {
+        // Cross-check of the long-sen fast path against this BigDecimal calculator
+        // e.g. --verify-cents 1000 10 (max days, max previous late returns)
+        if (args.length > 0 && args[0].equals("--verify-cents")) {
+            int maxDays = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+            int maxPrevLate = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+            long mismatches = CentsFineCalculator.verify(maxDays, maxPrevLate, System.out);
+            if (mismatches > 0) System.exit(1);
+            return;
+        }
+        // Batch mode for large loan files (see FineBatchProcessor), e.g. --batch loans.txt
+        if (args.length > 0) {
+            FineBatchProcessor.run(args);
+            return;
+        }
+
         Scanner scanner = new Scanner(System.in);
         //hasNextInt(): checks if input can be interpreted as an int then return boolean value(used for validation)
         if (!scanner.hasNextInt()) {
@@ -211,27 +260,21 @@ public class librarySystem {
                 continue;
             }
 
-            char bookChar = bookToken.trim().toUpperCase().charAt(0);
-            char borrowerChar = borrowerToken.trim().toUpperCase().charAt(0);
-
             // Lookup enums by mapping to BookType, type-safety (avoid invalid values)
-            //e.g.: fromCode('G') → Optional.of(BookType.GENERAL)
-            Optional<BookType> maybeBook = BookType.fromCode(bookChar);
-            Optional<Borrower> maybeBorrower = Borrower.fromCode(borrowerChar);
+            //e.g.: lookupToken("g") → BookType.GENERAL, null when the code is not valid
+            //(array lookup on the first char, no trim()/toUpperCase() copies of the token)
+            BookType bookType = BookType.lookupToken(bookToken);
+            Borrower borrower = Borrower.lookupToken(borrowerToken);
 
-            if (maybeBook.isEmpty()) {
+            if (bookType == null) {
                 System.out.println("Invalid book code: " + bookToken);
                 continue;
             }
-            if (maybeBorrower.isEmpty()) {
+            if (borrower == null) {
                 System.out.println("Invalid borrower code: " + borrowerToken);
                 continue;
             }
 
-            //returns the contained BookType if Optional is non-empty
-            BookType bookType = maybeBook.get();
-            Borrower borrower = maybeBorrower.get();
-
             BigDecimal base = LibraryFineCalculator.calculateBaseFine(bookType, days);
             BigDecimal withPenalties = LibraryFineCalculator.applyPenalties(base, days, prevLate);
             BigDecimal finalFine = LibraryFineCalculator.applyDiscounts(withPenalties, borrower, days, prevLate);
@@ -0,0 +1,136 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// A --ledger batch killed part way through: the child JVM halts while FineBatchProcessor is
+// reading (no close(), no shutdown hooks, the unflushed journal buffer is lost). Reopening
+// the ledger replays the journal; every borrower must then have the count an uninterrupted
+// run has after the same records, and the rest of the batch must print the same fines.
+class BorrowerLedgerCrashTest {
+
+    private static final int RECORDS = 32_000;
+    private static final int CRASH_AFTER = 24_000;
+    private static final int BORROWERS = 300;
+    private static final long CAPACITY = 1 << 12;
+    // one checkpoint before the crash, then more late returns than the journal buffer holds,
+    // so the crash leaves journal records to replay
+    private static final long CHECKPOINT_EVERY = 15_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replayAfterKillGivesSamePrevLate() throws Exception {
+        byte[] input = loans(RECORDS);
+        int cut = endOfRecord(input, CRASH_AFTER);
+        Path file = dir.resolve("loans.txt");
+        Files.write(file, input);
+        Path crashedDir = dir.resolve("crashed");
+        Path referenceDir = dir.resolve("reference");
+
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Process child = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                CrashingBatch.class.getName(), crashedDir.toString(), file.toString(), Integer.toString(cut))
+                .inheritIO().start();
+        assertEquals(CrashingBatch.HALT_STATUS, child.waitFor(), "child should halt mid-batch");
+        assertTrue(Files.size(crashedDir.resolve("ledger.journal")) > 0, "nothing left to replay");
+
+        try (BorrowerLedger reference = BorrowerLedger.open(referenceDir, CAPACITY)) {
+            process(reference, new ByteArrayInputStream(input, 0, cut), OutputStream.nullOutputStream());
+        }
+
+        // the rest of the file, with its own case count
+        ByteArrayOutputStream rest = new ByteArrayOutputStream();
+        rest.writeBytes(((RECORDS - CRASH_AFTER) + "\n").getBytes(StandardCharsets.US_ASCII));
+        rest.write(input, cut, input.length - cut);
+
+        ByteArrayOutputStream crashedFines = new ByteArrayOutputStream();
+        ByteArrayOutputStream referenceFines = new ByteArrayOutputStream();
+        try (BorrowerLedger crashed = BorrowerLedger.open(crashedDir, CAPACITY);
+             BorrowerLedger reference = BorrowerLedger.open(referenceDir, CAPACITY)) {
+            for (long id = 1; id <= BORROWERS; id++) {
+                assertEquals(reference.lateReturns(id), crashed.lateReturns(id), "late returns of borrower " + id);
+            }
+
+            process(crashed, new ByteArrayInputStream(rest.toByteArray()), crashedFines);
+            process(reference, new ByteArrayInputStream(rest.toByteArray()), referenceFines);
+        }
+        assertEquals(referenceFines.toString(StandardCharsets.US_ASCII), crashedFines.toString(StandardCharsets.US_ASCII));
+    }
+
+    static void process(BorrowerLedger ledger, InputStream in, OutputStream out) throws IOException {
+        FineBatchProcessor processor = new FineBatchProcessor(FineBatchProcessor.Format.COMPACT,
+                FineBatchProcessor.Engine.CENTS);
+        processor.useLedger(ledger, CHECKPOINT_EVERY);
+        processor.process(new LoanRecordReader(in), new FineOutputSink(out));
+    }
+
+    // Ledger input (4th column is a borrower ID), with a few rejected records mixed in
+    private static byte[] loans(int records) {
+        Random random = new Random(20251113L);
+        String bookCodes = "RGMCT";
+        StringBuilder sb = new StringBuilder(records * 16).append(records).append('\n');
+        for (int i = 0; i < records; i++) {
+            int kind = random.nextInt(100);
+            int days = kind < 30 ? 0 : kind < 98 ? random.nextInt(1, 90) : -1;
+            char book = kind == 99 ? 'X' : bookCodes.charAt(random.nextInt(bookCodes.length()));
+            sb.append(days).append(' ').append(book).append(' ')
+              .append(random.nextBoolean() ? 'S' : 'T').append(' ')
+              .append(random.nextInt(1, BORROWERS + 1)).append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // Offset just past the newline that ends the given record (the count line is record 0)
+    private static int endOfRecord(byte[] input, int record) {
+        int lines = 0;
+        for (int i = 0; i < input.length; i++) {
+            if (input[i] == '\n' && lines++ == record) return i + 1;
+        }
+        throw new IllegalArgumentException("Input has fewer than " + record + " records");
+    }
+
+    // Runs in the child JVM: the batch halts the JVM when it asks for bytes past the cut
+    static final class CrashingBatch {
+
+        static final int HALT_STATUS = 137;
+
+        public static void main(String[] args) throws IOException {
+            BorrowerLedger ledger = BorrowerLedger.open(Path.of(args[0]), CAPACITY);
+            byte[] input = Files.readAllBytes(Path.of(args[1]));
+            int cut = Integer.parseInt(args[2]);
+            InputStream halting = new InputStream() {
+                private int position;
+
+                @Override
+                public int read() {
+                    byte[] one = new byte[1];
+                    return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    if (position == cut) Runtime.getRuntime().halt(HALT_STATUS);
+                    int n = Math.min(len, cut - position);
+                    System.arraycopy(input, position, b, off, n);
+                    position += n;
+                    return n;
+                }
+            };
+            process(ledger, halting, OutputStream.nullOutputStream());
+            throw new AssertionError("batch finished without reaching the cut");
+        }
+    }
+}
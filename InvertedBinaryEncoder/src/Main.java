@@ -2,7 +2,14 @@ import java.util.*;
 import java.nio.charset.StandardCharsets;//get the UTF-8 Charset object
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws java.io.IOException {
+        // stream mode: encode a whole file of any size instead of one typed message
+        // e.g. java Main --stream big.bin --format=raw --out big.inv   (see StreamingEncoder)
+        if (args.length > 0) {
+            StreamingEncoder.run(args);
+            return;
+        }
+
         Scanner scanner = new Scanner(System.in);
         System.out.print("Enter the original message: ");
         String message = scanner.nextLine();
@@ -0,0 +1,158 @@
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Locale;
+
+// Same 8-bit inversion as Main.encodeBytesWithBitwise, but for input of any size:
+// reads a fixed-size buffer at a time, inverts it in place and writes it out, so memory
+// stays the same for a 10-byte message or a 10 GB file (no byte[] of the whole input,
+// no List<Integer>, no print per number).
+//
+// Usage: java Main --stream <file | -> [--out <file>] [--format=decimal|raw] [--buffer=65536]
+//   decimal : the numbers 0..255 separated by spaces and a newline at the end, like Main prints (default)
+//   raw     : the inverted bytes themselves (running it again gives back the input)
+//
+// Every byte of the input is encoded, line ends too (Main only encodes the line it reads).
+public class StreamingEncoder {
+
+    public enum Format { DECIMAL, RAW }
+
+    // "0".."255" as ASCII with a space in front: DECIMALS[v * 4 ..], DECIMAL_LENGTH[v] bytes
+    private static final byte[] DECIMALS = new byte[256 * 4];
+    private static final byte[] DECIMAL_LENGTH = new byte[256];
+
+    static {
+        for (int v = 0; v < 256; v++) {
+            String text = " " + v;
+            for (int i = 0; i < text.length(); i++) DECIMALS[v * 4 + i] = (byte) text.charAt(i);
+            DECIMAL_LENGTH[v] = (byte) text.length();
+        }
+    }
+
+    private final Format format;
+    private final ByteBuffer input;
+    private final ByteBuffer text;   //DECIMAL: up to 4 bytes of text per input byte
+
+    public StreamingEncoder(int bufferSize, Format format) {
+        this.format = format;
+        this.input = ByteBuffer.allocate(bufferSize);
+        this.text = format == Format.DECIMAL ? ByteBuffer.allocate(bufferSize * 4 + 1) : null;
+    }
+
+    public long encode(InputStream in, WritableByteChannel out) throws IOException {
+        return encode(Channels.newChannel(in), out);
+    }
+
+    // Encodes everything until the end of in; returns the number of input bytes
+    public long encode(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+        byte[] bytes = input.array();
+        long total = 0;
+        boolean first = true;
+        for (;;) {
+            input.clear();
+            int n = in.read(input);
+            if (n < 0) break;
+            if (n == 0) continue;
+            invert(bytes, 0, n);
+            total += n;
+            if (format == Format.RAW) {
+                input.flip();
+                writeFully(out, input);
+            } else {
+                byte[] digits = text.array();
+                int length = 0;
+                for (int i = 0; i < n; i++) {
+                    int v = bytes[i] & 0xFF;
+                    //4 bytes copied every time (the unused ones get overwritten), then moved on by the real length
+                    digits[length] = DECIMALS[v * 4];
+                    digits[length + 1] = DECIMALS[v * 4 + 1];
+                    digits[length + 2] = DECIMALS[v * 4 + 2];
+                    digits[length + 3] = DECIMALS[v * 4 + 3];
+                    length += DECIMAL_LENGTH[v];
+                }
+                //no space before the very first number
+                int start = first ? 1 : 0;
+                first = false;
+                text.clear().position(start).limit(length);
+                writeFully(out, text);
+            }
+        }
+        if (format == Format.DECIMAL) {
+            text.clear();
+            text.put((byte) '\n').flip();
+            writeFully(out, text);
+        }
+        return total;
+    }
+
+    // ~b on every byte, the same as (~(b & 0xFF)) & 0xFF in Main; a plain loop like this one
+    // is turned into vector instructions by the JIT
+    static void invert(byte[] bytes, int from, int to) {
+        for (int i = from; i < to; i++) bytes[i] = (byte) ~bytes[i];
+    }
+
+    private static void writeFully(WritableByteChannel out, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) out.write(buffer);
+    }
+
+    // For the benchmarks: one stream to another with a 64 KB buffer
+    public static long encode(InputStream in, OutputStream out, boolean decimal) throws IOException {
+        StreamingEncoder encoder = new StreamingEncoder(1 << 16, decimal ? Format.DECIMAL : Format.RAW);
+        return encoder.encode(in, Channels.newChannel(out));
+    }
+
+    public static void run(String[] args) throws IOException {
+        String input = null;
+        String output = null;
+        Format format = Format.DECIMAL;
+        int bufferSize = 1 << 16;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--stream") && i + 1 < args.length) {
+                input = args[++i];
+            } else if (arg.equals("--out") && i + 1 < args.length) {
+                output = args[++i];
+            } else if (arg.startsWith("--format=")) {
+                try {
+                    format = Format.valueOf(arg.substring("--format=".length()).toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    System.err.println("format must be decimal or raw");
+                    return;
+                }
+            } else if (arg.startsWith("--buffer=")) {
+                bufferSize = Math.max(1, Integer.parseInt(arg.substring("--buffer=".length())));
+            } else {
+                System.err.println("Unknown option: " + arg);
+                return;
+            }
+        }
+        if (input == null) {
+            System.err.println("Usage: java Main --stream <file | -> [--out <file>] [--format=decimal|raw] [--buffer=65536]");
+            return;
+        }
+
+        InputStream in = input.equals("-") ? System.in : new FileInputStream(input);
+        OutputStream out = output == null ? System.out : new FileOutputStream(output);
+        long start = System.nanoTime();
+        long bytes;
+        try {
+            //file streams give their FileChannel, so nothing is copied on the way
+            ReadableByteChannel source = in instanceof FileInputStream ? ((FileInputStream) in).getChannel() : Channels.newChannel(in);
+            WritableByteChannel sink = out instanceof FileOutputStream ? ((FileOutputStream) out).getChannel() : Channels.newChannel(out);
+            bytes = new StreamingEncoder(bufferSize, format).encode(source, sink);
+        } finally {
+            if (in != System.in) in.close();
+            out.flush();
+            if (out != System.out) out.close();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf(Locale.ROOT, "Encoded %d bytes in %.3f s (%.1f MB/s)%n",
+                bytes, seconds, seconds > 0 ? bytes / 1e6 / seconds : 0);
+    }
+}
@@ -0,0 +1,292 @@
+package security.um;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Bloom filter of breached passwords, kept in a file and memory-mapped, so it lives off the
+// heap: opening it only reads the 64-byte header and maps the rest (milliseconds, whatever
+// the size), and the operating system pages in only the parts that are used.
+//
+// It is a blocked Bloom filter: a password picks one 64-byte block (one cache line) and
+// sets or tests all of its k bits inside that block, so a lookup reads one cache line.
+// The bit positions are 9 bits each of a second mixed hash (7 per 64 bits, mixed again for
+// more): the cheaper a + i*b double hashing repeats too often in only 512 bits and more
+// than doubles the false-positive rate.
+// Blocks are a little less even than one big bit array, so the builder sizes the filter
+// with the blocked false-positive formula until it reaches the rate that was asked for.
+//
+// A password is hashed as its UTF-8 bytes, so the builder hashes the word list lines as
+// they are and a lookup hashes the char[] while encoding it (no String, no byte[]).
+// "might contain" can be wrong the other way only: a password that is not in the list is
+// reported as breached with the false-positive rate; one in the list is always found.
+//
+// Build (offline):  java security.um.Main --build-breach-filter <word list> <filter file> [--fpp=0.001]
+// File: "VBLOOM01", block count (long), k (int), entries (long), fpp (double), zero padding
+//       to 64 bytes, then the blocks.
+public final class BreachedPasswordFilter {
+
+    private static final long MAGIC = 0x56424C4F4F4D3031L; // "VBLOOM01"
+    private static final int HEADER = 64;
+    private static final int BLOCK_BYTES = 64;
+    private static final int BLOCK_BITS = BLOCK_BYTES * 8;
+    private static final int SEGMENT_SHIFT = 30; // mapped 1 GB at a time (blocks never cross)
+
+    private final MappedByteBuffer[] segments;
+    private final long blocks;
+    private final int hashes;
+    private final long entries;
+    private final double fpp;
+
+    private BreachedPasswordFilter(MappedByteBuffer[] segments, long blocks, int hashes, long entries, double fpp) {
+        this.segments = segments;
+        this.blocks = blocks;
+        this.hashes = hashes;
+        this.entries = entries;
+        this.fpp = fpp;
+    }
+
+    public long entries() { return entries; }
+
+    public double falsePositiveRate() { return fpp; }
+
+    public int hashes() { return hashes; }
+
+    public long sizeInBytes() { return blocks * BLOCK_BYTES; }
+
+    public static BreachedPasswordFilter open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header, header.position()) > 0) { }
+            header.flip();
+            if (header.remaining() < HEADER || header.getLong(0) != MAGIC) {
+                throw new IOException(file + " is not a breached-password filter");
+            }
+            long blocks = header.getLong(8);
+            int hashes = header.getInt(16);
+            long entries = header.getLong(20);
+            double fpp = header.getDouble(28);
+            if (channel.size() < HEADER + blocks * BLOCK_BYTES) throw new IOException(file + " is truncated");
+            //the mapping stays valid after the channel is closed
+            MappedByteBuffer[] segments = map(channel, FileChannel.MapMode.READ_ONLY, blocks);
+            return new BreachedPasswordFilter(segments, blocks, hashes, entries, fpp);
+        }
+    }
+
+    private static MappedByteBuffer[] map(FileChannel channel, FileChannel.MapMode mode, long blocks) throws IOException {
+        long bytes = blocks * BLOCK_BYTES;
+        int count = (int) ((bytes + (1L << SEGMENT_SHIFT) - 1) >>> SEGMENT_SHIFT);
+        MappedByteBuffer[] segments = new MappedByteBuffer[Math.max(1, count)];
+        for (int s = 0; s < segments.length; s++) {
+            long from = (long) s << SEGMENT_SHIFT;
+            long length = Math.min(1L << SEGMENT_SHIFT, bytes - from);
+            segments[s] = channel.map(mode, HEADER + from, Math.max(0, length));
+            segments[s].order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return segments;
+    }
+
+    // --- lookups ---
+
+    public boolean mightContain(char[] text, int from, int to) {
+        return contains(hash(text, from, to));
+    }
+
+    public boolean mightContain(CharSequence password) {
+        long h = SEED;
+        for (int i = 0; i < password.length(); i++) {
+            char ch = password.charAt(i);
+            int code = ch;
+            if (Character.isHighSurrogate(ch) && i + 1 < password.length() && Character.isLowSurrogate(password.charAt(i + 1))) {
+                code = Character.toCodePoint(ch, password.charAt(++i));
+            }
+            h = hashCodePoint(h, code);
+        }
+        return contains(h);
+    }
+
+    private boolean contains(long h) {
+        long block = blockOf(h);
+        MappedByteBuffer segment = segments[(int) (block * BLOCK_BYTES >>> SEGMENT_SHIFT)];
+        int base = (int) (block * BLOCK_BYTES & ((1L << SEGMENT_SHIFT) - 1));
+        long bits = mix(h ^ GOLDEN);
+        for (int i = 0; i < hashes; i++) {
+            if (i % 7 == 0 && i > 0) bits = mix(bits + GOLDEN);
+            int bit = (int) (bits >>> (i % 7) * 9) & (BLOCK_BITS - 1);
+            if ((segment.getLong(base + (bit >>> 6) * 8) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    private long blockOf(long h) {
+        return Long.remainderUnsigned(mix(h), blocks);
+    }
+
+    // --- hashing: FNV-1a over the UTF-8 bytes, then mixed (MurmurHash3 finalizer) ---
+
+    private static final long SEED = 0xCBF29CE484222325L;
+    private static final long PRIME = 0x100000001B3L;
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    static long hash(char[] text, int from, int to) {
+        long h = SEED;
+        for (int i = from; i < to; i++) {
+            char ch = text[i];
+            int code = ch;
+            if (Character.isHighSurrogate(ch) && i + 1 < to && Character.isLowSurrogate(text[i + 1])) {
+                code = Character.toCodePoint(ch, text[++i]);
+            }
+            h = hashCodePoint(h, code);
+        }
+        return h;
+    }
+
+    // the UTF-8 bytes of one code point into the hash (a lone surrogate is '?', like getBytes)
+    private static long hashCodePoint(long h, int code) {
+        if (code < 0x80) return (h ^ code) * PRIME;
+        if (code < 0x800) {
+            h = (h ^ (0xC0 | code >>> 6)) * PRIME;
+        } else if (code < 0x10000) {
+            if (code >= 0xD800 && code < 0xE000) return (h ^ '?') * PRIME;
+            h = (h ^ (0xE0 | code >>> 12)) * PRIME;
+            h = (h ^ (0x80 | (code >>> 6 & 0x3F))) * PRIME;
+        } else {
+            h = (h ^ (0xF0 | code >>> 18)) * PRIME;
+            h = (h ^ (0x80 | (code >>> 12 & 0x3F))) * PRIME;
+            h = (h ^ (0x80 | (code >>> 6 & 0x3F))) * PRIME;
+        }
+        return (h ^ (0x80 | (code & 0x3F))) * PRIME;
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ h >>> 33;
+    }
+
+    // --- building ---
+
+    // Builds the filter file from a word list (one password per line, UTF-8) in two passes:
+    // count the lines, then hash and set them. Memory stays constant: the list is streamed
+    // and the filter is written through the mapping.
+    public static BreachedPasswordFilter build(Path wordList, Path filterFile, double fpp) throws IOException {
+        if (!(fpp > 0 && fpp <= 0.5)) throw new IllegalArgumentException("fpp must be more than 0 and at most 0.5");
+        long entries = forEachLine(wordList, null);
+        long blocks = blocksFor(Math.max(1, entries), fpp);
+        int hashes = hashesFor(Math.max(1, entries), blocks);
+
+        try (FileChannel channel = FileChannel.open(filterFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            header.putLong(MAGIC).putLong(blocks).putInt(hashes).putLong(entries)
+                  .putDouble(estimatedFpp(Math.max(1, entries), blocks, hashes));
+            header.position(HEADER).flip();
+            channel.write(header, 0);
+            //a zero-filled file of the full size (written sparse by most file systems)
+            channel.write(ByteBuffer.wrap(new byte[] {0}), HEADER + blocks * BLOCK_BYTES - 1);
+
+            MappedByteBuffer[] segments = map(channel, FileChannel.MapMode.READ_WRITE, blocks);
+            BreachedPasswordFilter filter = new BreachedPasswordFilter(segments, blocks, hashes, entries,
+                    estimatedFpp(Math.max(1, entries), blocks, hashes));
+            forEachLine(wordList, filter);
+            for (MappedByteBuffer segment : segments) segment.force();
+        }
+        return open(filterFile);
+    }
+
+    private void add(long h) {
+        long block = blockOf(h);
+        MappedByteBuffer segment = segments[(int) (block * BLOCK_BYTES >>> SEGMENT_SHIFT)];
+        int base = (int) (block * BLOCK_BYTES & ((1L << SEGMENT_SHIFT) - 1));
+        long bits = mix(h ^ GOLDEN);
+        for (int i = 0; i < hashes; i++) {
+            if (i % 7 == 0 && i > 0) bits = mix(bits + GOLDEN);
+            int bit = (int) (bits >>> (i % 7) * 9) & (BLOCK_BITS - 1);
+            int index = base + (bit >>> 6) * 8;
+            segment.putLong(index, segment.getLong(index) | (1L << bit));
+        }
+    }
+
+    // Streams the word list: counts the non-empty lines, and adds each to the filter if given.
+    // The hash is built byte by byte, so a line is never held anywhere; a '\r' before '\n' is dropped.
+    private static long forEachLine(Path wordList, BreachedPasswordFilter filter) throws IOException {
+        long lines = 0;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        try (FileChannel channel = FileChannel.open(wordList, StandardOpenOption.READ)) {
+            long h = SEED;
+            int length = 0;
+            boolean pendingCr = false;
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    int b = buffer.get() & 0xFF;
+                    if (b == '\n') {
+                        if (length > 0) {
+                            lines++;
+                            if (filter != null) filter.add(h);
+                        }
+                        h = SEED;
+                        length = 0;
+                        pendingCr = false;
+                        continue;
+                    }
+                    if (pendingCr) {
+                        h = (h ^ '\r') * PRIME;
+                        length++;
+                        pendingCr = false;
+                    }
+                    if (b == '\r') {
+                        pendingCr = true;
+                    } else {
+                        h = (h ^ b) * PRIME;
+                        length++;
+                    }
+                }
+                buffer.clear();
+            }
+            if (length > 0) {
+                lines++;
+                if (filter != null) filter.add(h);
+            }
+        }
+        return lines;
+    }
+
+    // --- sizing ---
+
+    // Smallest number of blocks whose estimated false-positive rate is at most fpp
+    static long blocksFor(long entries, double fpp) {
+        double ln2 = Math.log(2);
+        long blocks = Math.max(1, (long) Math.ceil(-entries * Math.log(fpp) / (ln2 * ln2) / BLOCK_BITS));
+        while (estimatedFpp(entries, blocks, hashesFor(entries, blocks)) > fpp) {
+            blocks += Math.max(1, blocks / 20);
+        }
+        return blocks;
+    }
+
+    static int hashesFor(long entries, long blocks) {
+        double bitsPerEntry = (double) blocks * BLOCK_BITS / entries;
+        return (int) Math.max(1, Math.min(16, Math.round(bitsPerEntry * Math.log(2))));
+    }
+
+    // Blocked Bloom filter: the number of entries in a block is Poisson(entries / blocks),
+    // and within a block it is an ordinary Bloom filter of 512 bits
+    static double estimatedFpp(long entries, long blocks, int hashes) {
+        double load = (double) entries / blocks;
+        int maxLoad = (int) (load + 12 * Math.sqrt(load) + 20);
+        double logProbability = -load; // log P(0 entries in the block), kept as a log so it cannot underflow
+        double fpp = 0;
+        for (int j = 0; j <= maxLoad; j++) {
+            if (j > 0) logProbability += Math.log(load) - Math.log(j);
+            double inBlock = Math.pow(1 - Math.exp(-(double) hashes * j / BLOCK_BITS), hashes);
+            fpp += Math.exp(logProbability) * inBlock;
+        }
+        return fpp;
+    }
+}
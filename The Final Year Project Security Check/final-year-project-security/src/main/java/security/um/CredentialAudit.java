@@ -0,0 +1,476 @@
+package security.um;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Bulk audit of an account export with the same rules as Main (see CredentialRules).
+//
+// Usage: java security.um.Main --audit <file> [--separator=,] [--min-strength=strong]
+//                              [--failures=<file>] [--threads=N] [--breach-filter=<file>]
+//        java security.um.Main --build-breach-filter <word list> <filter file> [--fpp=0.001]
+//
+// The file has one account per line, "username<separator>password" (the password is
+// everything after the first separator, spaces included; UTF-8). The separator is one
+// ASCII character: the file is split on a single byte, and any byte of 0x80 or more is
+// part of a multi-byte UTF-8 character.
+// The file is memory-mapped and cut into chunks at line ends; the chunks are checked in
+// parallel and their results are merged in file order. Each worker decodes a line into
+// its own char array and checks it there (CredentialClassifier, one pass), so no
+// password becomes a String, and the array is cleared when the chunk is done.
+//
+// Output: the failing accounts (username and reason, never the password) go to stdout or
+// --failures; the strength histogram and the throughput go to stderr.
+// An account fails when its username is invalid or its password is below --min-strength.
+// With --breach-filter, a password found in the breached-password filter counts as Weak
+// (see BreachedPasswordFilter, built once from a word list with --build-breach-filter).
+public final class CredentialAudit {
+
+    private static final long CHUNK_SIZE = 32L << 20;
+    private static final char REPLACEMENT = '\uFFFD';
+
+    // kinds of failure, stored per failing account
+    private static final byte MALFORMED = 0;
+    private static final byte INVALID_USERNAME = 1;
+    private static final byte WEAK_PASSWORD = 2;
+
+    private final int minStrength;
+    private final byte separator;
+    private final int threads;
+    private BreachedPasswordFilter breachFilter;
+
+    public CredentialAudit(int minStrength, byte separator, int threads) {
+        this.minStrength = minStrength;
+        this.separator = separator;
+        this.threads = threads;
+    }
+
+    // check 8: passwords in this filter are Weak
+    public void breachFilter(BreachedPasswordFilter breachFilter) {
+        this.breachFilter = breachFilter;
+    }
+
+    public static void run(String[] args) throws IOException {
+        if (args[0].equals("--build-breach-filter")) {
+            buildBreachFilter(args);
+            return;
+        }
+        String input = null;
+        String breachFilterFile = null;
+        String failuresFile = null;
+        int minStrength = CredentialRules.STRONG;
+        byte separator = ',';
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--audit") && i + 1 < args.length) {
+                input = args[++i];
+            } else if (arg.startsWith("--separator=") && arg.length() == "--separator=".length() + 1) {
+                char c = arg.charAt(arg.length() - 1);
+                if (c >= 0x80) {
+                    System.err.println("separator must be one ASCII character");
+                    return;
+                }
+                separator = (byte) c;
+            } else if (arg.startsWith("--min-strength=")) {
+                minStrength = strength(arg.substring("--min-strength=".length()));
+                if (minStrength < 0) {
+                    System.err.println("min-strength must be weak, moderate, strong or very-strong");
+                    return;
+                }
+            } else if (arg.startsWith("--failures=")) {
+                failuresFile = arg.substring("--failures=".length());
+            } else if (arg.startsWith("--breach-filter=")) {
+                breachFilterFile = arg.substring("--breach-filter=".length());
+            } else if (arg.startsWith("--threads=")) {
+                threads = Math.max(1, Integer.parseInt(arg.substring("--threads=".length())));
+            } else {
+                System.err.println("Unknown option: " + arg);
+                return;
+            }
+        }
+        if (input == null) {
+            System.err.println("Usage: java security.um.Main --audit <file> [--separator=,] [--min-strength=strong]"
+                    + " [--failures=<file>] [--threads=N] [--breach-filter=<file>]");
+            return;
+        }
+        CredentialAudit audit = new CredentialAudit(minStrength, separator, threads);
+        if (breachFilterFile != null) {
+            long opened = System.nanoTime();
+            BreachedPasswordFilter filter = BreachedPasswordFilter.open(Path.of(breachFilterFile));
+            System.err.printf(Locale.ROOT, "Breach filter: %d passwords, %.1f MB, false-positive rate %.5f%%, opened in %.2f ms%n",
+                    filter.entries(), filter.sizeInBytes() / 1e6, filter.falsePositiveRate() * 100,
+                    (System.nanoTime() - opened) / 1e6);
+            audit.breachFilter(filter);
+        }
+
+        OutputStream failures = failuresFile == null
+                ? new BufferedOutputStream(System.out, 1 << 16)
+                : new BufferedOutputStream(new FileOutputStream(failuresFile), 1 << 16);
+        long start = System.nanoTime();
+        Totals totals;
+        try {
+            totals = audit.audit(Path.of(input), failures);
+        } finally {
+            failures.flush();
+            if (failuresFile != null) failures.close();
+        }
+        totals.print(System.err, minStrength, threads, System.nanoTime() - start);
+    }
+
+    // --build-breach-filter <word list> <filter file> [--fpp=0.001]
+    private static void buildBreachFilter(String[] args) throws IOException {
+        double fpp = 0.001;
+        if (args.length == 4 && args[3].startsWith("--fpp=")) {
+            fpp = Double.parseDouble(args[3].substring("--fpp=".length()));
+        } else if (args.length != 3) {
+            System.err.println("Usage: java security.um.Main --build-breach-filter <word list> <filter file> [--fpp=0.001]");
+            return;
+        }
+        long start = System.nanoTime();
+        BreachedPasswordFilter filter = BreachedPasswordFilter.build(Path.of(args[1]), Path.of(args[2]), fpp);
+        System.err.printf(Locale.ROOT, "Built %s: %d passwords, %.1f MB, %d bits set per password,"
+                        + " false-positive rate %.5f%% (asked %.5f%%), in %.3f s%n",
+                args[2], filter.entries(), filter.sizeInBytes() / 1e6, filter.hashes(),
+                filter.falsePositiveRate() * 100, fpp * 100, (System.nanoTime() - start) / 1e9);
+    }
+
+    // weak / moderate / strong / very-strong, -1 if none of them
+    static int strength(String name) {
+        String normalized = name.trim().replace('-', ' ').replace('_', ' ');
+        for (int s = 0; s < CredentialRules.STRENGTHS.length; s++) {
+            if (CredentialRules.STRENGTHS[s].equalsIgnoreCase(normalized)) return s;
+        }
+        return -1;
+    }
+
+    // Checks every account of the file; failing accounts are written in file order
+    public Totals audit(Path file, OutputStream failures) throws IOException {
+        Totals totals = new Totals();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "credential-audit");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            totals.bytes = size;
+            int chunks = (int) Math.max(threads * 4L, (size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+            long[] bounds = lineBounds(channel, size, chunks);
+
+            //at most two chunks per thread wait to be merged, so memory stays bounded
+            ArrayDeque<Future<Chunk>> pending = new ArrayDeque<>();
+            long lineBase = 0;
+            for (int c = 0; c < bounds.length - 1 || !pending.isEmpty(); ) {
+                while (c < bounds.length - 1 && pending.size() < threads * 2) {
+                    long from = bounds[c];
+                    long to = bounds[c + 1];
+                    pending.add(pool.submit(() -> check(channel, from, to)));
+                    c++;
+                }
+                Chunk chunk = pending.poll().get();
+                chunk.writeFailures(failures, lineBase);
+                totals.add(chunk);
+                lineBase += chunk.lines;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Audit interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+            throw new IOException("Audit failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return totals;
+    }
+
+    // Chunk boundaries: about size/chunks apart, each moved forward to just after a '\n'
+    private static long[] lineBounds(FileChannel channel, long size, int chunks) throws IOException {
+        long[] bounds = new long[chunks + 1];
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        int count = 1;
+        for (int c = 1; c < chunks; c++) {
+            long position = Math.max(size / chunks * c, bounds[count - 1]);
+            long boundary = size;
+            while (position < size) {
+                probe.clear();
+                int read = channel.read(probe, position);
+                if (read <= 0) break;
+                int i = 0;
+                while (i < read && probe.get(i) != '\n') i++;
+                if (i < read) {
+                    boundary = position + i + 1;
+                    break;
+                }
+                position += read;
+            }
+            if (boundary > bounds[count - 1] && boundary < size) bounds[count++] = boundary;
+        }
+        bounds[count++] = size;
+        return Arrays.copyOf(bounds, count);
+    }
+
+    // --- one chunk ---
+
+    private Chunk check(FileChannel channel, long from, long to) throws IOException {
+        MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        Chunk chunk = new Chunk();
+        CredentialClassifier classifier = new CredentialClassifier();
+        char[] line = new char[256];
+        int limit = map.limit();
+        int i = 0;
+        try {
+            while (i < limit) {
+                //decode one line into chars, remembering where the separator is
+                int length = 0;
+                int separatorAt = -1;
+                while (i < limit) {
+                    int b = map.get(i++);
+                    if (b == '\n') break;
+                    if (length + 2 > line.length) {
+                        char[] bigger = Arrays.copyOf(line, line.length * 2);
+                        Arrays.fill(line, '\0');
+                        line = bigger;
+                    }
+                    if (b >= 0) {
+                        if (b == separator && separatorAt < 0) separatorAt = length;
+                        line[length++] = (char) b;
+                    } else {
+                        long decoded = decode(map, i, limit, b, line, length);
+                        i = (int) (decoded >>> 2);
+                        length += (int) decoded & 3;
+                    }
+                }
+                if (length > 0 && line[length - 1] == '\r') length--;
+                chunk.lines++;
+                if (length == 0) continue;
+                checkAccount(chunk, classifier, line, length, separatorAt);
+            }
+        } finally {
+            Arrays.fill(line, '\0');
+        }
+        return chunk;
+    }
+
+    private void checkAccount(Chunk chunk, CredentialClassifier classifier, char[] line, int length, int separatorAt) {
+        chunk.accounts++;
+        if (separatorAt < 0) {
+            chunk.malformed++;
+            chunk.fail(chunk.lines, MALFORMED, 0, line, 0);
+            return;
+        }
+        int classified = classifier.classify(line, 0, separatorAt, separatorAt + 1, length);
+        if (!CredentialClassifier.validUsername(classified)) {
+            chunk.invalidUsernames++;
+            chunk.fail(chunk.lines, INVALID_USERNAME, 0, line, separatorAt);
+            return;
+        }
+        int rules = CredentialClassifier.passwordRules(classified);
+        if (breachFilter != null && breachFilter.mightContain(line, separatorAt + 1, length)) {
+            rules |= CredentialRules.BREACHED;
+            chunk.breached++;
+        }
+        int rulesMet = CredentialRules.rulesMet(rules);
+        int strength = CredentialRules.strengthOf(rules);
+        chunk.rulesMet[rulesMet]++;
+        chunk.strengths[strength]++;
+        for (int r = 0; r < 7; r++) {
+            if ((rules & (1 << r)) == 0) chunk.missing[r]++;
+        }
+        if (strength < minStrength) chunk.fail(chunk.lines, WEAK_PASSWORD, rules, line, separatorAt);
+    }
+
+    // UTF-8 sequence starting with lead byte b into line[length..]; a broken sequence becomes
+    // U+FFFD. Returns the next index << 2 | the chars written (1, or 2 for a surrogate pair).
+    private static long decode(MappedByteBuffer map, int i, int limit, int b, char[] line, int length) {
+        int extra;
+        int code;
+        if ((b & 0xE0) == 0xC0) {
+            extra = 1;
+            code = b & 0x1F;
+        } else if ((b & 0xF0) == 0xE0) {
+            extra = 2;
+            code = b & 0x0F;
+        } else if ((b & 0xF8) == 0xF0) {
+            extra = 3;
+            code = b & 0x07;
+        } else {
+            line[length] = REPLACEMENT;
+            return (long) i << 2 | 1;
+        }
+        for (int k = 0; k < extra; k++) {
+            if (i >= limit || (map.get(i) & 0xC0) != 0x80) {
+                line[length] = REPLACEMENT;
+                return (long) i << 2 | 1;
+            }
+            code = code << 6 | (map.get(i++) & 0x3F);
+        }
+        if (Character.isBmpCodePoint(code)) {
+            line[length] = (char) code;
+            return (long) i << 2 | 1;
+        }
+        if (Character.isValidCodePoint(code)) {
+            line[length] = Character.highSurrogate(code);
+            line[length + 1] = Character.lowSurrogate(code);
+            return (long) i << 2 | 2;
+        }
+        line[length] = REPLACEMENT;
+        return (long) i << 2 | 1;
+    }
+
+    // Counts of one chunk, and its failing accounts as records:
+    // line (int, within the chunk), kind (byte), rules (byte), username length (short), username (UTF-8)
+    private static final class Chunk {
+        long lines;
+        long accounts;
+        long malformed;
+        long invalidUsernames;
+        long breached;
+        final long[] strengths = new long[4];
+        final long[] rulesMet = new long[8];
+        final long[] missing = new long[7];
+        long failed;
+        byte[] failures = new byte[4096];
+        int failuresSize;
+
+        void fail(long line, byte kind, int rules, char[] text, int usernameLength) {
+            failed++;
+            byte[] username = new String(text, 0, Math.min(usernameLength, 64)).getBytes(StandardCharsets.UTF_8);
+            ensure(8 + username.length);
+            int l = (int) line;
+            failures[failuresSize++] = (byte) (l >>> 24);
+            failures[failuresSize++] = (byte) (l >>> 16);
+            failures[failuresSize++] = (byte) (l >>> 8);
+            failures[failuresSize++] = (byte) l;
+            failures[failuresSize++] = kind;
+            failures[failuresSize++] = (byte) rules;
+            failures[failuresSize++] = (byte) (username.length >>> 8);
+            failures[failuresSize++] = (byte) username.length;
+            System.arraycopy(username, 0, failures, failuresSize, username.length);
+            failuresSize += username.length;
+        }
+
+        private void ensure(int more) {
+            if (failuresSize + more > failures.length) {
+                failures = Arrays.copyOf(failures, Math.max(failures.length * 2, failuresSize + more));
+            }
+        }
+
+        // "line 12: alice_1 Moderate (5/7) missing: uppercase, special character"
+        // "line 13: Malformed line (no separator)"
+        void writeFailures(OutputStream out, long lineBase) throws IOException {
+            StringBuilder text = new StringBuilder(128);
+            int i = 0;
+            while (i < failuresSize) {
+                int line = (failures[i] & 0xFF) << 24 | (failures[i + 1] & 0xFF) << 16
+                        | (failures[i + 2] & 0xFF) << 8 | (failures[i + 3] & 0xFF);
+                byte kind = failures[i + 4];
+                int rules = failures[i + 5] & 0xFF;
+                int usernameLength = (failures[i + 6] & 0xFF) << 8 | (failures[i + 7] & 0xFF);
+                i += 8;
+                text.setLength(0);
+                text.append("line ").append(lineBase + line).append(": ");
+                //a malformed line has no username field, so none is printed
+                if (kind != MALFORMED) {
+                    text.append(new String(failures, i, usernameLength, StandardCharsets.UTF_8)).append(' ');
+                }
+                i += usernameLength;
+                if (kind == MALFORMED) {
+                    text.append("Malformed line (no separator)");
+                } else if (kind == INVALID_USERNAME) {
+                    text.append("Invalid Username");
+                } else {
+                    int met = CredentialRules.rulesMet(rules);
+                    text.append(CredentialRules.STRENGTHS[CredentialRules.strengthOf(rules)])
+                        .append(" (").append(met).append("/7)");
+                    String comma = " missing: ";
+                    for (int r = 0; r < 7; r++) {
+                        if ((rules & (1 << r)) == 0) {
+                            text.append(comma).append(CredentialRules.RULE_NAMES[r]);
+                            comma = ", ";
+                        }
+                    }
+                    if ((rules & CredentialRules.BREACHED) != 0) text.append("; found in breached passwords");
+                }
+                text.append('\n');
+                out.write(text.toString().getBytes(StandardCharsets.UTF_8));
+            }
+            failures = null;
+        }
+    }
+
+    // --- the whole file ---
+
+    public static final class Totals {
+        public long bytes;
+        public long accounts;
+        public long malformed;
+        public long invalidUsernames;
+        public long breached;
+        public long failed;
+        public final long[] strengths = new long[4];
+        public final long[] rulesMet = new long[8];
+        public final long[] missing = new long[7];
+
+        void add(Chunk chunk) {
+            accounts += chunk.accounts;
+            malformed += chunk.malformed;
+            invalidUsernames += chunk.invalidUsernames;
+            breached += chunk.breached;
+            failed += chunk.failed;
+            for (int s = 0; s < 4; s++) strengths[s] += chunk.strengths[s];
+            for (int r = 0; r < 8; r++) rulesMet[r] += chunk.rulesMet[r];
+            for (int r = 0; r < 7; r++) missing[r] += chunk.missing[r];
+        }
+
+        void print(PrintStream out, int minStrength, int threads, long elapsedNanos) {
+            long valid = accounts - malformed - invalidUsernames;
+            double seconds = elapsedNanos / 1e9;
+            out.printf(Locale.ROOT, "Audited %d accounts (%.1f MB) in %.3f s with %d threads: %.0f accounts/s, %.1f MB/s%n",
+                    accounts, bytes / 1e6, seconds, threads, accounts / seconds, bytes / 1e6 / seconds);
+            out.printf(Locale.ROOT, "Malformed lines   : %d%n", malformed);
+            out.printf(Locale.ROOT, "Invalid usernames : %d%n", invalidUsernames);
+            if (breached > 0) out.printf(Locale.ROOT, "Breached passwords: %d%n", breached);
+            out.printf(Locale.ROOT, "Password strength (%d valid usernames):%n", valid);
+            for (int s = CredentialRules.VERY_STRONG; s >= CredentialRules.WEAK; s--) {
+                out.printf(Locale.ROOT, "  %-12s %12d %6.2f%%  %s%n", CredentialRules.STRENGTHS[s], strengths[s],
+                        percent(strengths[s], valid), bar(strengths[s], valid));
+            }
+            out.println("Rules met:");
+            for (int r = 7; r >= 0; r--) {
+                out.printf(Locale.ROOT, "  %d/7 %12d %6.2f%%%n", r, rulesMet[r], percent(rulesMet[r], valid));
+            }
+            out.println("Rule missed by:");
+            for (int r = 0; r < 7; r++) {
+                out.printf(Locale.ROOT, "  %-18s %12d %6.2f%%%n", CredentialRules.RULE_NAMES[r], missing[r],
+                        percent(missing[r], valid));
+            }
+            out.printf(Locale.ROOT, "Failing accounts (invalid username or below %s): %d%n",
+                    CredentialRules.STRENGTHS[minStrength], failed);
+        }
+
+        private static double percent(long count, long total) {
+            return total == 0 ? 0 : count * 100.0 / total;
+        }
+
+        private static String bar(long count, long total) {
+            return "#".repeat(total == 0 ? 0 : (int) (count * 40 / total));
+        }
+    }
+}
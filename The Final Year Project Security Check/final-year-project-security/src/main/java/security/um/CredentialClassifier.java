@@ -0,0 +1,233 @@
+package security.um;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Locale;
+
+// All the username rules and the 7 password rules of Main in one pass over each string.
+//
+// Main checks every password character with Character.isUpperCase/isLowerCase/isDigit and
+// specialCharacters.indexOf, then scans again for " " and makes two lowercase copies for
+// toLowerCase().contains(...); the username is scanned twice as well. Here:
+//   - a 256-entry table gives the class bits of a character (upper, lower, digit, special,
+//     space, underscore) in one lookup; it is filled from the same Character methods, so
+//     it agrees with Main for every char below 256 (others still go to Character)
+//   - the username pass also builds a bit mask per letter for a Shift-And search, so the
+//     password pass finds the username (ignoring case) while it collects the classes,
+//     without copying anything
+//   - a few letters lowercase differently in a whole String than one char at a time (a
+//     final capital sigma becomes a final small sigma, the dotted I becomes two chars, and
+//     a surrogate pair is one letter); when either string has one, or the default locale is
+//     Turkish, Azeri or Lithuanian, the username search is done with Strings like Main
+//
+// classify() returns everything packed in one int: the password rule bits of
+// CredentialRules (bits 0-6) and the username rule bits below.
+// One classifier per thread: it keeps the search masks between calls so it never allocates.
+//
+// For passwords that are still UTF-8 bytes, passwordClasses() gets the classes 16-64 bytes
+// at a time with the Vector API when VectorPasswordScanner is there (see VECTOR), else with
+// the table; classRules() turns them into rule bits.
+public final class CredentialClassifier {
+
+    // username rules
+    public static final int USERNAME_LENGTH = 1 << 8;      // 5-15 characters
+    public static final int USERNAME_FIRST = 1 << 9;       // starts with a lowercase letter
+    public static final int USERNAME_CHARACTERS = 1 << 10; // only lowercase letters, digits, '_'
+    public static final int USERNAME_VALID = USERNAME_LENGTH | USERNAME_FIRST | USERNAME_CHARACTERS;
+
+    // character classes in the table
+    static final byte UPPER = 1;
+    static final byte LOWER = 1 << 1;
+    static final byte DIGIT = 1 << 2;
+    static final byte SPECIAL = 1 << 3;
+    static final byte SPACE = 1 << 4;
+    static final byte UNDERSCORE = 1 << 5;
+    private static final int PASSWORD_CLASSES = UPPER | LOWER | DIGIT | SPECIAL | SPACE;
+    public static final int NOT_ASCII = 1 << 6; // passwordClasses: a byte of a multi-byte character
+
+    // The Vector API is used only when VectorPasswordScanner was built (mvn -Pvector) and the
+    // JVM runs with --add-modules jdk.incubator.vector, and only for at least one full vector
+    // (16-64 bytes; below that the table loop is faster); -Dsecurity.um.vector=false turns it off.
+    // The scanner is looked up by name, so this class compiles and loads without the module.
+    private static final MethodHandle VECTOR_CLASSES = vectorMethod("classes",
+            MethodType.methodType(int.class, byte[].class, int.class, int.class));
+    public static final boolean VECTOR = VECTOR_CLASSES != null;
+    public static final int VECTOR_MIN_LENGTH = VECTOR ? vectorBytesPerStep() : Integer.MAX_VALUE;
+
+    private static final byte[] CLASSES = new byte[256];
+    private static final char[] LOWERCASE = new char[256];
+    static {
+        for (char ch = 0; ch < 256; ch++) {
+            CLASSES[ch] = classOf(ch);
+            LOWERCASE[ch] = Character.toLowerCase(ch);
+        }
+    }
+
+    // Shift-And: bit i of masks[c] is set when the username's i-th letter (lowercased) is c
+    private static final int MAX_SEARCH = 64;
+    private final long[] masks = new long[256];
+    private final char[] usedLetters = new char[MAX_SEARCH];
+    private int usedCount;
+
+    // Locale-specific lowercasing (the dotless i and its relatives) in String.toLowerCase()
+    private static final boolean LOCALE_LOWERCASE =
+            java.util.Set.of("tr", "az", "lt").contains(Locale.getDefault().getLanguage());
+
+    // a character's class bits, the same tests as Main (first matching class only)
+    static byte classOf(char ch) {
+        if (Character.isUpperCase(ch)) return UPPER;
+        if (Character.isLowerCase(ch)) return LOWER;
+        if (Character.isDigit(ch)) return DIGIT;
+        if (CredentialRules.SPECIAL_CHARACTERS.indexOf(ch) != -1) return SPECIAL;
+        if (ch == ' ') return SPACE;
+        if (ch == '_') return UNDERSCORE;
+        return 0;
+    }
+
+    private static int classes(char ch) {
+        return ch < 256 ? CLASSES[ch] : classOf(ch);
+    }
+
+    // true for the chars above 255 that String.toLowerCase() may not lowercase like
+    // Character.toLowerCase(char): Σ, σ, ς, İ and the halves of a surrogate pair
+    private static boolean lowersAsString(char ch) {
+        return ch == '\u03A3' || ch == '\u03C3' || ch == '\u03C2' || ch == '\u0130' || Character.isSurrogate(ch);
+    }
+
+    private static MethodHandle vectorMethod(String name, MethodType type) {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()
+                || "false".equals(System.getProperty("security.um.vector"))) {
+            return null;
+        }
+        try {
+            return MethodHandles.lookup().findStatic(Class.forName("security.um.VectorPasswordScanner"), name, type);
+        } catch (ReflectiveOperationException e) {
+            return null; //built without -Pvector
+        }
+    }
+
+    private static int vectorBytesPerStep() {
+        try {
+            return (int) vectorMethod("bytesPerStep", MethodType.methodType(int.class)).invokeExact();
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // The password classes of UTF-8 bytes[from, to), -1 if there is a non-ASCII character
+    // (then decode it and use classify(), which knows the Character methods beyond ASCII)
+    public static int passwordClasses(byte[] bytes, int from, int to) {
+        int found;
+        if (VECTOR && to - from >= VECTOR_MIN_LENGTH) {
+            try {
+                found = (int) VECTOR_CLASSES.invokeExact(bytes, from, to);
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        } else {
+            found = scalarPasswordClasses(bytes, from, to);
+        }
+        return (found & NOT_ASCII) != 0 ? -1 : found & PASSWORD_CLASSES;
+    }
+
+    // the classes of bytes[from, to) one byte at a time, plus NOT_ASCII if there is a non-ASCII character
+    public static int scalarPasswordClasses(byte[] bytes, int from, int to) {
+        int found = 0;
+        for (int i = from; i < to; i++) {
+            byte b = bytes[i];
+            found |= b < 0 ? NOT_ASCII : CLASSES[b];
+        }
+        return found & (PASSWORD_CLASSES | NOT_ASCII);
+    }
+
+    // The password rules that only depend on the classes and the length (all but NO_USERNAME)
+    public static int classRules(int classes, int length) {
+        int rules = 0;
+        if ((classes & UPPER) != 0) rules |= CredentialRules.UPPERCASE;
+        if ((classes & LOWER) != 0) rules |= CredentialRules.LOWERCASE;
+        if ((classes & DIGIT) != 0) rules |= CredentialRules.DIGIT;
+        if ((classes & SPECIAL) != 0) rules |= CredentialRules.SPECIAL;
+        if (length >= 8) rules |= CredentialRules.LENGTH;
+        if ((classes & SPACE) == 0) rules |= CredentialRules.NO_SPACE;
+        return rules;
+    }
+
+    // username = text[usernameFrom, usernameTo), password = text[passwordFrom, passwordTo)
+    public int classify(char[] text, int usernameFrom, int usernameTo, int passwordFrom, int passwordTo) {
+        return classify(text, usernameFrom, usernameTo, text, passwordFrom, passwordTo);
+    }
+
+    public int classify(char[] username, int usernameFrom, int usernameTo,
+                        char[] password, int passwordFrom, int passwordTo) {
+        // --- username, one pass: its rules and the search masks ---
+        for (int i = 0; i < usedCount; i++) masks[usedLetters[i]] = 0;
+        usedCount = 0;
+
+        int usernameLength = usernameTo - usernameFrom;
+        boolean searchable = usernameLength > 0 && usernameLength <= MAX_SEARCH;
+        boolean onlyAllowed = true;
+        boolean asString = LOCALE_LOWERCASE;
+        for (int i = usernameFrom; i < usernameTo; i++) {
+            char ch = username[i];
+            onlyAllowed &= (classes(ch) & (LOWER | DIGIT | UNDERSCORE)) != 0;
+            if (ch >= 256) asString |= lowersAsString(ch);
+            if (searchable) {
+                char lower = ch < 256 ? LOWERCASE[ch] : Character.toLowerCase(ch);
+                if (lower < 256) {
+                    if (masks[lower] == 0) usedLetters[usedCount++] = lower;
+                    masks[lower] |= 1L << (i - usernameFrom);
+                } else {
+                    searchable = false; // a letter outside the table: search the slow way below
+                }
+            }
+        }
+        int result = 0;
+        if (usernameLength >= 5 && usernameLength <= 15) result |= USERNAME_LENGTH;
+        if (usernameLength > 0 && (classes(username[usernameFrom]) & LOWER) != 0) result |= USERNAME_FIRST;
+        if (onlyAllowed) result |= USERNAME_CHARACTERS;
+
+        // --- password, one pass: the character classes and the username search ---
+        int found = 0;
+        long state = 0;
+        long match = usernameLength == 0 ? 0 : 1L << (usernameLength - 1);
+        for (int i = passwordFrom; i < passwordTo; i++) {
+            char ch = password[i];
+            if (ch < 256) {
+                found |= CLASSES[ch];
+                state = (state << 1 | 1) & masks[LOWERCASE[ch]];
+            } else {
+                found |= classOf(ch);
+                asString |= lowersAsString(ch);
+                char lower = Character.toLowerCase(ch);
+                state = lower < 256 ? (state << 1 | 1) & masks[lower] : 0;
+            }
+            if ((state & match) != 0) found |= 1 << 8;
+        }
+
+        result |= classRules(found, passwordTo - passwordFrom);
+
+        boolean containsUsername;
+        if (asString) {
+            containsUsername = CredentialRules.containsLowerCase(password, passwordFrom, passwordTo,
+                    username, usernameFrom, usernameTo);
+        } else if (searchable) {
+            containsUsername = (found & 1 << 8) != 0;
+        } else if (usernameLength == 0) {
+            containsUsername = true; // "".contains("") in Main
+        } else {
+            containsUsername = CredentialRules.containsIgnoreCase(password, passwordFrom, passwordTo,
+                    username, usernameFrom, usernameTo);
+        }
+        if (!containsUsername) result |= CredentialRules.NO_USERNAME;
+        return result;
+    }
+
+    public static boolean validUsername(int classified) {
+        return (classified & USERNAME_VALID) == USERNAME_VALID;
+    }
+
+    public static int passwordRules(int classified) {
+        return classified & CredentialRules.ALL_RULES;
+    }
+}
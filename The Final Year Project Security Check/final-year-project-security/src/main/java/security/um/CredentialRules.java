@@ -0,0 +1,75 @@
+package security.um;
+
+// The rule bits, names and strengths of Main's 7 password rules, shared by
+// CredentialClassifier, the audit and the login server, and the case-insensitive username
+// search the classifier falls back to.
+public final class CredentialRules {
+
+    // the 7 password rules, one bit each
+    public static final int UPPERCASE = 1;
+    public static final int LOWERCASE = 1 << 1;
+    public static final int DIGIT = 1 << 2;
+    public static final int SPECIAL = 1 << 3;
+    public static final int LENGTH = 1 << 4;
+    public static final int NO_SPACE = 1 << 5;
+    public static final int NO_USERNAME = 1 << 6;
+    public static final int ALL_RULES = (1 << 7) - 1;
+
+    // check 8 (only with a BreachedPasswordFilter): the password is in a breached-password list.
+    // Such a password is Weak, however many of the 7 rules it meets.
+    public static final int BREACHED = 1 << 7;
+
+    public static final String SPECIAL_CHARACTERS = "!@#$%^&*";
+
+    // names for the rules a password misses, in bit order
+    public static final String[] RULE_NAMES = {
+        "uppercase", "lowercase", "digit", "special character", "8+ characters", "no spaces", "no username"
+    };
+
+    public static final int WEAK = 0;
+    public static final int MODERATE = 1;
+    public static final int STRONG = 2;
+    public static final int VERY_STRONG = 3;
+    public static final String[] STRENGTHS = { "Weak", "Moderate", "Strong", "Very Strong" };
+
+    private CredentialRules() { }
+
+    // Main: password.toLowerCase().contains(username.toLowerCase()), one char at a time.
+    // Only the same as Main without the letters String.toLowerCase treats differently (see
+    // containsLowerCase)
+    static boolean containsIgnoreCase(char[] text, int from, int to, char[] word, int wordFrom, int wordTo) {
+        int length = wordTo - wordFrom;
+        for (int start = from; start + length <= to; start++) {
+            int k = 0;
+            while (k < length && Character.toLowerCase(text[start + k]) == Character.toLowerCase(word[wordFrom + k])) k++;
+            if (k == length) return true;
+        }
+        return false;
+    }
+
+    // Main's check exactly, with Strings: the final sigma, the dotted I (two chars), surrogate
+    // pairs and the Turkish/Azeri/Lithuanian locales lowercase differently as a whole String.
+    // The only place the password becomes a String, and only for accounts with those letters.
+    static boolean containsLowerCase(char[] text, int from, int to, char[] word, int wordFrom, int wordTo) {
+        return new String(text, from, to - from).toLowerCase()
+                .contains(new String(word, wordFrom, wordTo - wordFrom).toLowerCase());
+    }
+
+    public static int rulesMet(int rules) {
+        return Integer.bitCount(rules & ALL_RULES);
+    }
+
+    // strength of a rule mask: Weak when BREACHED, otherwise by the rules met
+    public static int strengthOf(int rules) {
+        if ((rules & BREACHED) != 0) return WEAK;
+        return strength(rulesMet(rules));
+    }
+
+    // 7 -> Very Strong, 6 -> Strong, 4-5 -> Moderate, 0-3 -> Weak
+    public static int strength(int rulesMet) {
+        if (rulesMet == 7) return VERY_STRONG;
+        if (rulesMet == 6) return STRONG;
+        if (rulesMet >= 4) return MODERATE;
+        return WEAK;
+    }
+}
@@ -0,0 +1,276 @@
+package security.um;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Load test for LoginServer: ordinary users sign up and log in while attackers brute-force
+// a few victim usernames and spray guesses over many random usernames.
+//
+// Usage: java security.um.Main --load-test [--embedded | --port=7980] [--users=200]
+//                              [--attackers=50] [--requests=1000] [--victims=10]
+//   embedded : starts the server in this JVM (with --capacity=65536, so the spraying
+//              makes it evict); otherwise it must already run with --max-failures=5
+//
+// Reports p50/p99 latency for the users and for the attackers separately (run with
+// --attackers=0 for the users alone), and checks that:
+//   - no user is ever throttled (they only mistype now and then, then log in)
+//   - every victim is throttled after 5 failures and stays throttled
+public final class LoginLoadTest {
+
+    private static final int MAX_FAILURES = 5;
+
+    public static void run(String[] args) throws IOException, InterruptedException {
+        boolean embedded = false;
+        int port = LoginServer.DEFAULT_PORT;
+        int users = 200;
+        int attackers = 50;
+        int requests = 1000;
+        int victims = 10;
+        for (String arg : args) {
+            if (arg.equals("--load-test")) {
+                continue;
+            } else if (arg.equals("--embedded")) {
+                embedded = true;
+            } else if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--users=")) {
+                users = Integer.parseInt(arg.substring("--users=".length()));
+            } else if (arg.startsWith("--attackers=")) {
+                attackers = Integer.parseInt(arg.substring("--attackers=".length()));
+            } else if (arg.startsWith("--requests=")) {
+                requests = Integer.parseInt(arg.substring("--requests=".length()));
+            } else if (arg.startsWith("--victims=")) {
+                victims = Math.max(1, Integer.parseInt(arg.substring("--victims=".length())));
+            } else {
+                System.err.println("Usage: java security.um.Main --load-test [--embedded | --port=p] [--users=n]"
+                        + " [--attackers=n] [--requests=n] [--victims=n]");
+                return;
+            }
+        }
+
+        LoginServer server = null;
+        if (embedded) {
+            server = new LoginServer(0, InetAddress.getLoopbackAddress(),
+                    new LoginThrottle(1 << 16, MAX_FAILURES, 60), CredentialRules.STRONG);
+            LoginServer started = server;
+            Thread acceptor = new Thread(() -> {
+                try {
+                    started.serve();
+                } catch (IOException e) {
+                    System.err.println("Server stopped: " + e.getMessage());
+                }
+            }, "login-acceptor");
+            acceptor.setDaemon(true);
+            acceptor.start();
+            port = server.port();
+        }
+        InetSocketAddress address = new InetSocketAddress("127.0.0.1", port);
+        //a fresh name per run, so a server that is already running has no failures for them
+        String run = Long.toString(System.nanoTime() % 1_000_000_000L, 36);
+
+        Client[] clients = new Client[users + attackers];
+        for (int i = 0; i < users; i++) clients[i] = new User(i, run, address, requests);
+        for (int i = 0; i < attackers; i++) clients[users + i] = new Attacker(i, run, address, requests, victims);
+        CountDownLatch done = new CountDownLatch(clients.length);
+        AtomicLong failedClients = new AtomicLong();
+        ExecutorService executor = LoginServer.connectionExecutor();
+        long start = System.nanoTime();
+        for (Client client : clients) {
+            executor.execute(() -> {
+                try {
+                    client.run();
+                } catch (IOException e) {
+                    failedClients.incrementAndGet();
+                    System.err.println("Client failed: " + e.getMessage());
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+        long evictions = server == null ? -1 : server.throttle().evictions();
+        if (server != null) server.close();
+
+        long userRequests = 0, attackRequests = 0, wrongAnswers = 0, usersThrottled = 0;
+        long attackThrottled = 0, victimAttemptsLetThrough = 0;
+        for (Client client : clients) {
+            wrongAnswers += client.wrongAnswers;
+            if (client instanceof User) {
+                userRequests += client.count;
+                usersThrottled += client.throttled;
+            } else {
+                attackRequests += client.count;
+                attackThrottled += client.throttled;
+                victimAttemptsLetThrough += ((Attacker) client).letThrough;
+            }
+        }
+        double seconds = elapsed / 1e9;
+        System.out.printf(Locale.ROOT, "users=%d attackers=%d failedClients=%d wrongAnswers=%d%n",
+                users, attackers, failedClients.get(), wrongAnswers);
+        System.out.printf(Locale.ROOT, "elapsed=%.3f s throughput=%.0f requests/s%n",
+                seconds, (userRequests + attackRequests) / seconds);
+        printLatencies("users    ", clients, true, userRequests);
+        printLatencies("attackers", clients, false, attackRequests);
+        System.out.printf(Locale.ROOT, "attack requests throttled=%d victim attempts let through after lockout=%d%n",
+                attackThrottled, victimAttemptsLetThrough);
+        System.out.printf(Locale.ROOT, "users throttled=%d%s%n", usersThrottled,
+                evictions < 0 ? "" : " throttle evictions=" + evictions);
+        if (failedClients.get() > 0 || wrongAnswers > 0 || usersThrottled > 0 || victimAttemptsLetThrough > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static void printLatencies(String name, Client[] clients, boolean users, long count) {
+        long[] latencies = new long[(int) count];
+        int n = 0;
+        for (Client client : clients) {
+            if ((client instanceof User) != users) continue;
+            System.arraycopy(client.latencies, 0, latencies, n, client.count);
+            n += client.count;
+        }
+        Arrays.sort(latencies, 0, n);
+        System.out.printf(Locale.ROOT, "%s requests=%d latency us: p50=%.1f p99=%.1f p99.9=%.1f max=%.1f%n",
+                name, n, percentile(latencies, n, 50) / 1e3, percentile(latencies, n, 99) / 1e3,
+                percentile(latencies, n, 99.9) / 1e3, (n == 0 ? 0 : latencies[n - 1]) / 1e3);
+    }
+
+    private static long percentile(long[] sorted, int count, double percentile) {
+        if (count == 0) return 0;
+        int rank = (int) Math.ceil(percentile / 100.0 * count);
+        return sorted[Math.max(0, Math.min(count - 1, rank - 1))];
+    }
+
+    // One connection sending one request at a time and timing each answer
+    private abstract static class Client {
+        private final InetSocketAddress address;
+        final SplittableRandom random;
+        final long[] latencies;
+        private OutputStream out;
+        private InputStream in;
+        int count;
+        long throttled;
+        long wrongAnswers;
+
+        Client(InetSocketAddress address, long seed, int requests) {
+            this.address = address;
+            this.random = new SplittableRandom(seed);
+            this.latencies = new long[requests];
+        }
+
+        void run() throws IOException {
+            try (Socket socket = new Socket()) {
+                socket.setTcpNoDelay(true);
+                socket.connect(address, 30_000);
+                out = socket.getOutputStream();
+                in = new BufferedInputStream(socket.getInputStream());
+                while (count < latencies.length) next();
+            }
+        }
+
+        abstract void next() throws IOException;
+
+        String request(String line) throws IOException {
+            long t0 = System.nanoTime();
+            out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            ByteArrayOutputStream answer = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) >= 0 && b != '\n') answer.write(b);
+            if (b < 0) throw new IOException("server closed the connection");
+            if (count < latencies.length) latencies[count++] = System.nanoTime() - t0;
+            String text = answer.toString(StandardCharsets.US_ASCII);
+            if (text.startsWith("THROTTLED ")) throttled++;
+            return text;
+        }
+
+        void expect(String answer, String expected) {
+            if (!answer.equals(expected)) wrongAnswers++;
+        }
+    }
+
+    // Signs up once, then logs in; mistypes one login in 10 and gets it right the next time
+    private static final class User extends Client {
+        private final String username;
+        private final String password;
+        private boolean signedUp;
+        private boolean mistyped;
+
+        User(int id, String run, InetSocketAddress address, int requests) {
+            super(address, id, requests);
+            this.username = "user" + run + "_" + id;
+            this.password = "Kopi#Satu" + (1000 + id);
+        }
+
+        @Override
+        void next() throws IOException {
+            if (!signedUp) {
+                expect(request("SIGNUP " + username + " " + password), "OK Very Strong");
+                signedUp = true;
+            } else if (!mistyped && random.nextInt(10) == 0) {
+                //mistyped: the flow asks first, then reports the wrong password
+                expect(request("LOGIN " + username + " " + password + "x"), "OK");
+                expect(request("FAILED " + username), "OK 1/" + MAX_FAILURES);
+                mistyped = true;
+            } else {
+                expect(request("LOGIN " + username + " " + password), "OK");
+                expect(request("SUCCEEDED " + username), "OK");
+                mistyped = false;
+            }
+        }
+    }
+
+    // Brute-forces the victims (one guess after another, whatever the answer) and sprays
+    // guesses over random usernames, half and half
+    private static final class Attacker extends Client {
+        private final String run;
+        private final int victims;
+        private final int[] victimFailures;
+        long letThrough;
+
+        Attacker(int id, String run, InetSocketAddress address, int requests, int victims) {
+            super(address, 1_000_000 + id, requests);
+            this.run = run;
+            this.victims = victims;
+            this.victimFailures = new int[victims];
+        }
+
+        @Override
+        void next() throws IOException {
+            boolean brute = random.nextBoolean();
+            int victim = random.nextInt(victims);
+            String username = brute ? "victim" + run + "_" + victim
+                    : "s" + run + "_" + Integer.toString(random.nextInt(1 << 30), 36);
+            //a guess that meets the rules (the flow then reports it wrong) or one that does not
+            boolean ruleAbiding = random.nextBoolean();
+            String guess = ruleAbiding ? "Guess!" + random.nextInt(1_000_000) + "Aa" : "123456";
+            String answer = request("LOGIN " + username + " " + guess);
+            if (answer.startsWith("OK") && ruleAbiding) answer = request("FAILED " + username);
+            if (brute) {
+                //other attackers fail on the same victims, so only "throttled after 5" is known
+                boolean locked = victimFailures[victim] >= MAX_FAILURES;
+                if (answer.startsWith("THROTTLED")) {
+                    victimFailures[victim] = MAX_FAILURES;
+                } else if (locked) {
+                    letThrough++;
+                } else {
+                    victimFailures[victim]++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package security.um;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// The username and password rules of Main as a local service for the signup and login
+// flows, with failed-login throttling per username (LoginThrottle).
+//
+// Usage: java security.um.Main --serve [--port=7980] [--bind=127.0.0.1] [--min-strength=strong]
+//                              [--max-failures=5] [--window=60] [--capacity=1048576]
+//                              [--breach-filter=<file>]
+//        load test: java security.um.Main --load-test --embedded   (see LoginLoadTest)
+//
+// One request per line (UTF-8), the password is the rest of the line, spaces included:
+//   SIGNUP <username> <password>   -> OK <strength> | INVALID_USERNAME | WEAK <strength> <met>/7
+//   LOGIN <username> <password>    -> OK | THROTTLED <seconds> | INVALID_USERNAME | REJECTED <failures>/<max>
+//   FAILED <username>              -> OK <failures>/<max> | THROTTLED <seconds>
+//   SUCCEEDED <username>           -> OK
+// LOGIN only says whether the attempt may go ahead: a throttled username is refused before
+// anything is checked, and a password that breaks the rules cannot belong to an account
+// made with SIGNUP, so it counts as a failure at once. The login flow checks the real
+// password itself and reports the result with FAILED or SUCCEEDED.
+//
+// One thread per connection: virtual threads on Java 21+, small-stack platform threads
+// on older JDKs. Each connection decodes into its own char array, which is cleared after
+// every request, so a password never becomes a String.
+public final class LoginServer {
+
+    public static final int DEFAULT_PORT = 7980;
+    private static final int MAX_LINE = 4096;
+
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections = connectionExecutor();
+    private final LoginThrottle throttle;
+    private final int minStrength;
+    private BreachedPasswordFilter breachFilter;
+
+    public LoginServer(int port, InetAddress bind, LoginThrottle throttle, int minStrength) throws IOException {
+        this.serverSocket = new ServerSocket(port, 4096, bind);
+        this.throttle = throttle;
+        this.minStrength = minStrength;
+    }
+
+    public int port() { return serverSocket.getLocalPort(); }
+
+    public LoginThrottle throttle() { return throttle; }
+
+    // check 8: passwords in this filter are Weak
+    public void breachFilter(BreachedPasswordFilter breachFilter) {
+        this.breachFilter = breachFilter;
+    }
+
+    public static void run(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        String bind = "127.0.0.1";
+        int minStrength = CredentialRules.STRONG;
+        int maxFailures = 5;
+        int window = 60;
+        int capacity = 1 << 20;
+        String breachFilterFile = null;
+        for (String arg : args) {
+            if (arg.equals("--serve")) {
+                continue;
+            } else if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--bind=")) {
+                bind = arg.substring("--bind=".length());
+            } else if (arg.startsWith("--min-strength=")) {
+                minStrength = CredentialAudit.strength(arg.substring("--min-strength=".length()));
+                if (minStrength < 0) {
+                    System.err.println("min-strength must be weak, moderate, strong or very-strong");
+                    return;
+                }
+            } else if (arg.startsWith("--max-failures=")) {
+                maxFailures = Integer.parseInt(arg.substring("--max-failures=".length()));
+            } else if (arg.startsWith("--window=")) {
+                window = Integer.parseInt(arg.substring("--window=".length()));
+            } else if (arg.startsWith("--capacity=")) {
+                capacity = Integer.parseInt(arg.substring("--capacity=".length()));
+            } else if (arg.startsWith("--breach-filter=")) {
+                breachFilterFile = arg.substring("--breach-filter=".length());
+            } else {
+                System.err.println("Usage: java security.um.Main --serve [--port=7980] [--bind=127.0.0.1]"
+                        + " [--min-strength=strong] [--max-failures=5] [--window=60] [--capacity=1048576]"
+                        + " [--breach-filter=<file>]");
+                return;
+            }
+        }
+        LoginThrottle throttle = new LoginThrottle(capacity, maxFailures, window);
+        LoginServer server = new LoginServer(port, InetAddress.getByName(bind), throttle, minStrength);
+        if (breachFilterFile != null) server.breachFilter(BreachedPasswordFilter.open(Path.of(breachFilterFile)));
+        System.err.println("Login validation service on " + bind + ":" + server.port() + " (" + maxFailures
+                + " failures per " + window + " s, " + throttle.capacity() + " usernames tracked)");
+        server.serve();
+    }
+
+    // Accept loop; returns when the server is closed
+    public void serve() throws IOException {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (serverSocket.isClosed()) break;
+                throw e;
+            }
+            connections.execute(() -> {
+                try (Socket s = socket) {
+                    s.setTcpNoDelay(true);
+                    handle(s.getInputStream(), s.getOutputStream());
+                } catch (IOException e) {
+                    //client disconnected
+                }
+            });
+        }
+    }
+
+    public void close() throws IOException {
+        serverSocket.close();
+        connections.shutdownNow();
+    }
+
+    // Answers the requests of one connection until it disconnects
+    void handle(InputStream in, OutputStream socketOut) throws IOException {
+        OutputStream out = new BufferedOutputStream(socketOut, 8192);
+        byte[] input = new byte[8192];
+        int from = 0;
+        int to = 0;
+        ByteBuffer bytes = ByteBuffer.allocate(MAX_LINE);
+        char[] line = new char[MAX_LINE];
+        CharBuffer chars = CharBuffer.wrap(line);
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CredentialClassifier classifier = new CredentialClassifier();
+        StringBuilder answer = new StringBuilder(64);
+        boolean tooLong = false;
+
+        for (;;) {
+            //find the end of the next line, reading more when needed
+            int end = from;
+            while (end < to && input[end] != '\n') end++;
+            if (end == to) {
+                if (to - from == input.length) {
+                    //longer than the buffer: drop it and answer an error at its end
+                    tooLong = true;
+                    from = to = 0;
+                } else if (from > 0) {
+                    System.arraycopy(input, from, input, 0, to - from);
+                    to -= from;
+                    from = 0;
+                }
+                if (in.available() == 0) out.flush();
+                int n = in.read(input, to, input.length - to);
+                if (n < 0) break;
+                to += n;
+                continue;
+            }
+            int lineEnd = end > from && input[end - 1] == '\r' ? end - 1 : end;
+            answer.setLength(0);
+            if (tooLong || lineEnd - from > MAX_LINE) {
+                answer.append("ERROR line too long");
+                tooLong = false;
+            } else {
+                bytes.clear();
+                bytes.put(input, from, lineEnd - from).flip();
+                chars.clear();
+                decoder.reset();
+                decoder.decode(bytes, chars, true);
+                decoder.flush(chars);
+                answer(line, chars.position(), classifier, answer);
+                Arrays.fill(line, 0, chars.position(), '\0');
+                Arrays.fill(input, from, lineEnd, (byte) 0);
+                Arrays.fill(bytes.array(), 0, lineEnd - from, (byte) 0);
+            }
+            answer.append('\n');
+            for (int i = 0; i < answer.length(); i++) out.write(answer.charAt(i));
+            from = end + 1;
+        }
+        out.flush();
+    }
+
+    // One request in line[0, length) -> its answer (ASCII)
+    void answer(char[] line, int length, CredentialClassifier classifier, StringBuilder answer) {
+        int commandEnd = indexOf(line, 0, length, ' ');
+        int usernameFrom = commandEnd + 1;
+        int usernameTo = commandEnd < 0 ? -1 : indexOf(line, usernameFrom, length, ' ');
+        if (commandEnd < 0) {
+            answer.append("ERROR expected SIGNUP, LOGIN, FAILED or SUCCEEDED");
+            return;
+        }
+        boolean hasPassword = usernameTo >= 0;
+        if (!hasPassword) usernameTo = length;
+
+        boolean succeeded = is(line, commandEnd, "SUCCEEDED");
+        if (succeeded || is(line, commandEnd, "FAILED")) {
+            long hash = throttle.hash(line, usernameFrom, usernameTo);
+            if (succeeded) {
+                throttle.succeeded(hash);
+                answer.append("OK");
+            } else {
+                int failures = throttle.failed(hash);
+                int wait = throttle.retryAfter(hash);
+                if (wait > 0) {
+                    answer.append("THROTTLED ").append(wait);
+                } else {
+                    answer.append("OK ").append(failures).append('/').append(throttle.maxFailures());
+                }
+            }
+            return;
+        }
+        boolean signup = is(line, commandEnd, "SIGNUP");
+        if (!signup && !is(line, commandEnd, "LOGIN")) {
+            answer.append("ERROR expected SIGNUP, LOGIN, FAILED or SUCCEEDED");
+            return;
+        }
+        if (!hasPassword) {
+            answer.append("ERROR expected ").append(signup ? "SIGNUP" : "LOGIN").append(" <username> <password>");
+            return;
+        }
+
+        long hash = 0;
+        if (!signup) {
+            hash = throttle.hash(line, usernameFrom, usernameTo);
+            int wait = throttle.retryAfter(hash);
+            if (wait > 0) {
+                answer.append("THROTTLED ").append(wait);
+                return;
+            }
+        }
+        int classified = classifier.classify(line, usernameFrom, usernameTo, usernameTo + 1, length);
+        if (!CredentialClassifier.validUsername(classified)) {
+            //not counted: no account can have this name, and counting it would let anyone fill the table
+            answer.append("INVALID_USERNAME");
+            return;
+        }
+        int rules = CredentialClassifier.passwordRules(classified);
+        if (breachFilter != null && breachFilter.mightContain(line, usernameTo + 1, length)) {
+            rules |= CredentialRules.BREACHED;
+        }
+        int strength = CredentialRules.strengthOf(rules);
+        if (signup) {
+            if (strength >= minStrength) {
+                answer.append("OK ").append(CredentialRules.STRENGTHS[strength]);
+            } else {
+                answer.append("WEAK ").append(CredentialRules.STRENGTHS[strength]).append(' ')
+                      .append(CredentialRules.rulesMet(rules)).append("/7");
+            }
+        } else if (strength >= minStrength) {
+            answer.append("OK");
+        } else {
+            int failures = throttle.failed(hash);
+            answer.append("REJECTED ").append(failures).append('/').append(throttle.maxFailures());
+        }
+    }
+
+    private static int indexOf(char[] text, int from, int to, char ch) {
+        for (int i = from; i < to; i++) {
+            if (text[i] == ch) return i;
+        }
+        return -1;
+    }
+
+    private static boolean is(char[] line, int length, String command) {
+        if (length != command.length()) return false;
+        for (int i = 0; i < length; i++) {
+            if (line[i] != command.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    // The per-connection threads of the class comment. Login clients keep their connection
+    // open between requests, so most of these threads sit in a read; that is cheap for virtual
+    // threads, and the fallback keeps it affordable with small stacks. The fallback threads
+    // are daemons named login-N, so they do not keep the JVM up and show by name in a thread
+    // dump. Executors is asked by reflection because the module targets Java 17.
+    static ExecutorService connectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            ThreadFactory factory = task -> {
+                Thread thread = new Thread(null, task, "login-" + count.incrementAndGet(), 256 * 1024);
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newCachedThreadPool(factory);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package security.um;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Failed login attempts per username, for LoginServer: after maxFailures failures in a
+// window of windowSeconds, the username is throttled until that window ends.
+//
+// The counters live in one fixed table, so memory stays the same however many usernames
+// an attacker tries. The table is split into buckets of 8 slots (one cache line); a
+// username always uses the bucket its hash picks, so two users only ever touch the same
+// memory when they share a bucket. A slot is a single long:
+//
+//     fingerprint (32 bits) | window start in seconds (24 bits) | failures (8 bits)
+//
+// so a counter is read, updated and replaced with one compareAndSet, without locks: a
+// brute-force burst on one username only retries on its own bucket and never makes any
+// other login wait. When a bucket is full, a new username evicts the slot that matters
+// least: an empty or expired one first, then the one with the fewest failures, then the
+// oldest. The hash has a random seed per table, so nobody can pick usernames that land in
+// the same bucket to push a throttled username out on purpose.
+//
+// The fingerprint is 32 bits of the hash; two usernames in the same bucket with the same
+// fingerprint would share a counter (about 1 in 500 million per pair, and only in a bucket).
+public final class LoginThrottle {
+
+    private static final int BUCKET_SLOTS = 8;
+    private static final int START_BITS = 24;     // window start wraps after 194 days
+    private static final long START_MASK = (1L << START_BITS) - 1;
+    private static final int MAX_COUNT = 255;
+
+    private final AtomicLongArray slots;
+    private final int bucketMask;
+    private final int maxFailures;
+    private final int windowSeconds;
+    private final long seed = ThreadLocalRandom.current().nextLong();
+    private final long epoch = System.nanoTime();
+    private final LongAdder evictions = new LongAdder();
+
+    // capacity: usernames tracked at once (rounded up to a power of two, 8 bytes each)
+    public LoginThrottle(int capacity, int maxFailures, int windowSeconds) {
+        if (maxFailures < 1 || maxFailures >= MAX_COUNT) throw new IllegalArgumentException("maxFailures must be 1-254");
+        if (windowSeconds < 1 || windowSeconds >= 1 << (START_BITS - 1)) {
+            throw new IllegalArgumentException("windowSeconds must be 1-" + ((1 << (START_BITS - 1)) - 1));
+        }
+        int buckets = Integer.highestOneBit(Math.max(BUCKET_SLOTS, capacity) / BUCKET_SLOTS - 1) << 1;
+        this.slots = new AtomicLongArray(Math.max(1, buckets) * BUCKET_SLOTS);
+        this.bucketMask = Math.max(1, buckets) - 1;
+        this.maxFailures = maxFailures;
+        this.windowSeconds = windowSeconds;
+    }
+
+    public int capacity() { return slots.length(); }
+
+    public int maxFailures() { return maxFailures; }
+
+    public int windowSeconds() { return windowSeconds; }
+
+    public long evictions() { return evictions.sum(); }
+
+    // seeded FNV-1a over the chars, then mixed (MurmurHash3 finalizer)
+    public long hash(char[] text, int from, int to) {
+        long h = 0xCBF29CE484222325L ^ seed;
+        for (int i = from; i < to; i++) h = (h ^ text[i]) * 0x100000001B3L;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ h >>> 33;
+    }
+
+    // Seconds until this username may try again, 0 if it may try now
+    public int retryAfter(long hash) {
+        int fingerprint = fingerprint(hash);
+        int base = bucket(hash);
+        long now = now();
+        for (int i = base; i < base + BUCKET_SLOTS; i++) {
+            long slot = slots.get(i);
+            if (slot != 0 && fingerprintOf(slot) == fingerprint) {
+                int age = age(slot, now);
+                return age < windowSeconds && countOf(slot) >= maxFailures ? windowSeconds - age : 0;
+            }
+        }
+        return 0;
+    }
+
+    // Records a failed attempt; returns the failures in the current window
+    public int failed(long hash) {
+        int fingerprint = fingerprint(hash);
+        int base = bucket(hash);
+        long now = now();
+        retry:
+        for (;;) {
+            int victim = base;
+            long victimSlot = 0;
+            long victimScore = -1;
+            for (int i = base; i < base + BUCKET_SLOTS; i++) {
+                long slot = slots.get(i);
+                if (slot != 0 && fingerprintOf(slot) == fingerprint) {
+                    boolean expired = age(slot, now) >= windowSeconds;
+                    int count = expired ? 1 : Math.min(MAX_COUNT, countOf(slot) + 1);
+                    long start = expired ? now : slot >>> 8 & START_MASK;
+                    if (slots.compareAndSet(i, slot, pack(fingerprint, start, count))) return count;
+                    continue retry;
+                }
+                long score = evictionScore(slot, now);
+                if (score > victimScore) {
+                    victim = i;
+                    victimSlot = slot;
+                    victimScore = score;
+                }
+            }
+            //not in the bucket: take the slot that matters least. Two threads adding the same
+            //new username pick the same victim, so one of them fails here and finds the other's
+            if (slots.compareAndSet(victim, victimSlot, pack(fingerprint, now, 1))) {
+                if (victimSlot != 0 && age(victimSlot, now) < windowSeconds) evictions.increment();
+                return 1;
+            }
+        }
+    }
+
+    // A successful login clears the username's failures
+    public void succeeded(long hash) {
+        int fingerprint = fingerprint(hash);
+        int base = bucket(hash);
+        for (int i = base; i < base + BUCKET_SLOTS; i++) {
+            long slot = slots.get(i);
+            if (slot != 0 && fingerprintOf(slot) == fingerprint) {
+                slots.compareAndSet(i, slot, 0);
+                return;
+            }
+        }
+    }
+
+    // higher = better to evict: empty, then expired, then fewest failures, then oldest
+    private long evictionScore(long slot, long now) {
+        if (slot == 0) return Long.MAX_VALUE;
+        int age = age(slot, now);
+        if (age >= windowSeconds) return Long.MAX_VALUE - 1;
+        return (long) (MAX_COUNT - countOf(slot)) << 32 | age;
+    }
+
+    private int bucket(long hash) {
+        return ((int) hash & bucketMask) * BUCKET_SLOTS;
+    }
+
+    // never 0, so an empty slot (0) never matches
+    private static int fingerprint(long hash) {
+        int fingerprint = (int) (hash >>> 32);
+        return fingerprint == 0 ? 1 : fingerprint;
+    }
+
+    private static int fingerprintOf(long slot) {
+        return (int) (slot >>> 32);
+    }
+
+    private static int countOf(long slot) {
+        return (int) slot & 0xFF;
+    }
+
+    private static long pack(int fingerprint, long start, int count) {
+        return (long) fingerprint << 32 | (start & START_MASK) << 8 | count;
+    }
+
+    private long now() {
+        return (System.nanoTime() - epoch) / 1_000_000_000L;
+    }
+
+    // seconds since the slot's window started (window starts wrap, so subtract modulo 2^24)
+    private static int age(long slot, long now) {
+        return (int) ((now - (slot >>> 8)) & START_MASK);
+    }
+}
@@ -2,7 +2,30 @@ package security.um;
 import java.util.Scanner;
 
 public class Main {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws java.io.IOException {
+        //audit mode: check a whole account export instead of one console entry
+        //e.g. java security.um.Main --audit accounts.csv --failures=failing.txt   (see CredentialAudit)
+        //check 8: java security.um.Main --breach-filter=breached.bloom also checks the password
+        //against a breached-password list (see BreachedPasswordFilter)
+        BreachedPasswordFilter breachFilter = null;
+        if (args.length == 1 && args[0].startsWith("--breach-filter=")) {
+            breachFilter = BreachedPasswordFilter.open(java.nio.file.Path.of(args[0].substring("--breach-filter=".length())));
+        } else if (args.length > 0 && args[0].equals("--serve")) {
+            //validation service for the signup and login flows (see LoginServer)
+            LoginServer.run(args);
+            return;
+        } else if (args.length > 0 && args[0].equals("--load-test")) {
+            try {
+                LoginLoadTest.run(args);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        } else if (args.length > 0) {
+            CredentialAudit.run(args);
+            return;
+        }
+
         Scanner input = new Scanner(System.in);
 
         //1.read username and password from user
@@ -121,6 +144,12 @@ public class Main {
                 strength = "Weak";
             }
 
+            //a breached password is weak no matter how many rules it meets
+            if (breachFilter != null && breachFilter.mightContain(password)) {
+                System.out.println("Password found in breached passwords");
+                strength = "Weak";
+            }
+
             System.out.println("Password Strength:"+strength); //print inside the else loop when username is valid
         }
     }
@@ -0,0 +1,90 @@
+package security.um;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.junit.jupiter.api.Test;
+
+// LoginThrottle under contention. A capacity of 8 is a single bucket, so every username
+// fights over the same 8 slots and every new one has to evict.
+class LoginThrottleTest {
+
+    private static final int THREADS = 8;
+    private static final int WINDOW_SECONDS = 3600; // nothing expires during a test
+
+    @Test
+    void concurrentFailuresOnOneUsernameAreAllCounted() throws Exception {
+        LoginThrottle throttle = new LoginThrottle(8, 5, WINDOW_SECONDS);
+        for (int i = 0; i < 8; i++) throttle.failed(hash(throttle, "filler" + i)); // the bucket is full
+        long target = hash(throttle, "alice");
+        int perThread = 30; // 8 x 30 = 240, below the 8-bit count limit
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < perThread; i++) throttle.failed(target);
+        });
+
+        // had two threads each inserted "alice" into a different slot, the count would be split
+        assertEquals(THREADS * perThread + 1, throttle.failed(target));
+        assertTrue(throttle.retryAfter(target) > 0);
+    }
+
+    @Test
+    void evictionNeverPushesOutAThrottledUsername() throws Exception {
+        LoginThrottle throttle = new LoginThrottle(8, 5, WINDOW_SECONDS);
+        long victim = hash(throttle, "victim");
+        for (int i = 0; i < throttle.maxFailures(); i++) throttle.failed(victim);
+        assertTrue(throttle.retryAfter(victim) > 0);
+        int usernames = 20_000;
+        LongAdder inserted = new LongAdder();
+
+        // every thread sprays new usernames with one failure each, so every insert evicts
+        runConcurrently(thread -> {
+            for (int i = 0; i < usernames; i++) {
+                if (throttle.failed(hash(throttle, "spray-" + thread + "-" + i)) == 1) inserted.increment();
+            }
+        });
+
+        // slots are never cleared here: after the 7 empty ones, each insert replaced a live username
+        assertEquals(inserted.sum() - 7, throttle.evictions());
+        assertTrue(throttle.retryAfter(victim) > 0, "throttled username was evicted");
+        assertEquals(throttle.maxFailures() + 1, throttle.failed(victim));
+    }
+
+    private static long hash(LoginThrottle throttle, String username) {
+        char[] chars = username.toCharArray();
+        return throttle.hash(chars, 0, chars.length);
+    }
+
+    private interface Worker {
+        void run(int thread) throws Exception;
+    }
+
+    // Starts every worker at the same moment and rethrows the first failure
+    private static void runConcurrently(Worker worker) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    worker.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) future.get();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package security.um;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// The character classes of a UTF-8 password with the Vector API, 16-64 bytes per step
+// (as wide as the CPU allows: 16 with SSE, 32 with AVX2, 64 with AVX-512).
+//
+// Each step compares all the bytes at once for uppercase, lowercase, digit, special
+// (!@#$%^&*) and space, turns the masks into one class byte per lane and ORs that into an
+// accumulator; the lanes are ORed together once at the end. No branch depends on the
+// characters, so long passphrases cost no mispredictions.
+//
+// Only ASCII is classified here. A byte of a multi-byte character sets NOT_ASCII, the same
+// as CredentialClassifier.scalarPasswordClasses.
+//
+// Needs the jdk.incubator.vector module (javac and java: --add-modules jdk.incubator.vector),
+// so it is a source set of its own, built only with mvn -Pvector. CredentialClassifier
+// finds it by name when the JVM has the module and uses its table otherwise.
+public final class VectorPasswordScanner {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    private VectorPasswordScanner() { }
+
+    public static int bytesPerStep() {
+        return SPECIES.length();
+    }
+
+    // classes of bytes[from, to) as CredentialClassifier bits, plus CredentialClassifier.NOT_ASCII
+    public static int classes(byte[] bytes, int from, int to) {
+        //all in one loop body: a vector passed to or returned from a method that is not
+        //inlined becomes an object, and this loop is too big to be inlined anywhere
+        ByteVector found = ByteVector.zero(SPECIES);
+        int i = from;
+        for (int bound = from + SPECIES.loopBound(to - from); i < bound; i += SPECIES.length()) {
+            ByteVector v = ByteVector.fromArray(SPECIES, bytes, i);
+            VectorMask<Byte> upper = v.compare(VectorOperators.GE, (byte) 'A').and(v.compare(VectorOperators.LE, (byte) 'Z'));
+            VectorMask<Byte> lower = v.compare(VectorOperators.GE, (byte) 'a').and(v.compare(VectorOperators.LE, (byte) 'z'));
+            VectorMask<Byte> digit = v.compare(VectorOperators.GE, (byte) '0').and(v.compare(VectorOperators.LE, (byte) '9'));
+            // !@#$%^&*  ('#' to '&' are next to each other)
+            VectorMask<Byte> special = v.compare(VectorOperators.GE, (byte) '#').and(v.compare(VectorOperators.LE, (byte) '&'))
+                    .or(v.compare(VectorOperators.EQ, (byte) '!'))
+                    .or(v.compare(VectorOperators.EQ, (byte) '@'))
+                    .or(v.compare(VectorOperators.EQ, (byte) '^'))
+                    .or(v.compare(VectorOperators.EQ, (byte) '*'));
+            VectorMask<Byte> space = v.compare(VectorOperators.EQ, (byte) ' ');
+            VectorMask<Byte> notAscii = v.compare(VectorOperators.LT, (byte) 0);
+            found = found.or(ByteVector.zero(SPECIES)
+                    .blend(CredentialClassifier.UPPER, upper)
+                    .blend(CredentialClassifier.LOWER, lower)
+                    .blend(CredentialClassifier.DIGIT, digit)
+                    .blend(CredentialClassifier.SPECIAL, special)
+                    .blend(CredentialClassifier.SPACE, space)
+                    .blend((byte) CredentialClassifier.NOT_ASCII, notAscii));
+        }
+        return found.reduceLanes(VectorOperators.OR) | CredentialClassifier.scalarPasswordClasses(bytes, i, to);
+    }
+}
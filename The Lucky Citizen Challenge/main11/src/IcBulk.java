@@ -0,0 +1,386 @@
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Bulk mode for Question4: decodes a whole file of IC numbers, one per line, with the same
+ * rules as the interactive program, without making a String (or any object) per IC.
+ *
+ * Usage:
+ *     java Question4 --bulk <file | -> [--out <file>] [--format=summary|rows|winners]
+ *                       [--validate] [--dedup [--expected=n]] [--pivot=25]
+ *
+ *     summary : counts only: ICs, invalid lines, male/female and lucky winners (default)
+ *     rows    : one row per line: ic dd/mm/year gender sum lucky
+ *               (e.g. 050916-14-5678 16/9/2005 Female 52 No; a bad line: <line> INVALID,
+ *               a rejected IC: <line> REJECTED month|day|duplicate)
+ *     winners : only the lines of the lucky winners, as they were written
+ *     validate: reject ICs whose birth date does not exist (see IcValidator)
+ *     dedup   : also reject an IC seen before (implies validate); expected: how many ICs
+ *               to size the set for, so it never has to grow (see IcLongSet)
+ *     pivot   : the last yy that is 20yy (Question4: 25)
+ *
+ * Rejected ICs are not counted as ICs or winners; the summary lists them by reason.
+ *
+ * The file is read in 1 MB chunks into one buffer; a line cut at the end of a chunk is moved
+ * to the front before the next read. Each line goes through IcDecoder and rows are written
+ * digit by digit into an output buffer. Lines per second go to stderr.
+ */
+public class IcBulk {
+
+    public enum Format { SUMMARY, ROWS, WINNERS }
+
+    private static final int CHUNK = 1 << 20;
+
+    private static final byte[] FEMALE = {'F', 'e', 'm', 'a', 'l', 'e'};
+    private static final byte[] MALE = {'M', 'a', 'l', 'e'};
+    private static final byte[] YES = {'Y', 'e', 's'};
+    private static final byte[] NO = {'N', 'o'};
+    private static final byte[] INVALID = {'I', 'N', 'V', 'A', 'L', 'I', 'D'};
+    private static final byte[] REJECTED = {'R', 'E', 'J', 'E', 'C', 'T', 'E', 'D'};
+
+    private final Format format;
+    private final OutputStream out;
+    private int pivot = IcDecoder.DEFAULT_PIVOT;
+    private IcValidator validator;
+
+    // With dedup, lines wait here (up to BATCH, never past the current buffer fill) so the
+    // set gets their numbers as one batch, see IcLongSet.addAll
+    private static final int BATCH = 4096;
+    private int[] batchFrom;
+    private int[] batchEnd;
+    private long[] batchIc;
+    private int[] batchReason;
+    private long[] batchNumbers;
+    private boolean[] batchDuplicate;
+    private int batched;
+    private final byte[] buffer = new byte[CHUNK];
+    private final byte[] output = new byte[1 << 16];
+    private int outputLength;
+
+    private long ics;
+    private long invalid;
+    private long females;
+    private long maleWinners;
+    private long femaleWinners;
+    private long bytesRead;
+
+    public IcBulk(Format format, OutputStream out) {
+        this.format = format;
+        this.out = out;
+    }
+
+    public long ics() { return ics; }
+
+    public long invalid() { return invalid; }
+
+    public long winners() { return maleWinners + femaleWinners; }
+
+    public long rejected() { return validator == null ? 0 : validator.rejected(); }
+
+    public long bytesRead() { return bytesRead; }
+
+    // Checks every IC before it is counted; its pivot is also used to decode
+    public void validator(IcValidator validator) {
+        this.validator = validator;
+        this.pivot = validator.pivot();
+        if (validator.seen() != null) {
+            batchFrom = new int[BATCH];
+            batchEnd = new int[BATCH];
+            batchIc = new long[BATCH];
+            batchReason = new int[BATCH];
+            batchNumbers = new long[BATCH];
+            batchDuplicate = new boolean[BATCH];
+        }
+    }
+
+    public void pivot(int pivot) {
+        this.pivot = pivot;
+    }
+
+    public static void run(String[] args) throws IOException {
+        String input = null;
+        String output = null;
+        Format format = Format.SUMMARY;
+        boolean validate = false;
+        boolean dedup = false;
+        long expected = 1 << 20;
+        int pivot = IcDecoder.DEFAULT_PIVOT;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--bulk") && i + 1 < args.length) {
+                input = args[++i];
+            } else if (arg.equals("--out") && i + 1 < args.length) {
+                output = args[++i];
+            } else if (arg.startsWith("--format=")) {
+                try {
+                    format = Format.valueOf(arg.substring("--format=".length()).toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    System.err.println("format must be summary, rows or winners");
+                    return;
+                }
+            } else if (arg.equals("--validate")) {
+                validate = true;
+            } else if (arg.equals("--dedup")) {
+                dedup = true;
+            } else if (arg.startsWith("--expected=")) {
+                expected = Long.parseLong(arg.substring("--expected=".length()));
+            } else if (arg.startsWith("--pivot=")) {
+                pivot = Integer.parseInt(arg.substring("--pivot=".length()));
+                if (pivot < 0 || pivot > 99) {
+                    System.err.println("pivot must be 0-99");
+                    return;
+                }
+            } else {
+                System.err.println("Unknown option: " + arg);
+                return;
+            }
+        }
+        if (input == null) {
+            System.err.println("Usage: java Question4 --bulk <file | -> [--out <file>] [--format=summary|rows|winners]"
+                    + " [--validate] [--dedup [--expected=n]] [--pivot=25]");
+            return;
+        }
+
+        InputStream in = input.equals("-") ? System.in : new FileInputStream(input);
+        OutputStream out = output == null ? System.out : new FileOutputStream(output);
+
+        long start = System.nanoTime();
+        IcBulk bulk = new IcBulk(format, out);
+        bulk.pivot(pivot);
+        if (validate || dedup) bulk.validator(new IcValidator(pivot, dedup ? new IcLongSet(expected) : null));
+        try {
+            bulk.process(in);
+        } finally {
+            if (in != System.in) in.close();
+            out.flush();
+            if (out != System.out) out.close();
+        }
+        reportThroughput(bulk.ics() + bulk.invalid() + bulk.rejected(), bulk.bytesRead(), System.nanoTime() - start);
+    }
+
+    public void process(InputStream in) throws IOException {
+        int to = 0;
+        boolean skipping = false;   //in the middle of a line longer than the whole buffer
+        for (;;) {
+            int n = in.read(buffer, to, buffer.length - to);
+            if (n < 0) break;
+            bytesRead += n;
+            to += n;
+            int from = 0;
+            for (int end = indexOf(buffer, from, to); end >= 0; end = indexOf(buffer, from, to)) {
+                if (skipping) {
+                    skipping = false;
+                } else {
+                    line(buffer, from, end);
+                }
+                from = end + 1;
+            }
+            flushBatch();
+            if (from == 0 && to == buffer.length) {
+                //no line end in 1 MB: not an IC, count it once and drop the rest of it
+                if (!skipping) invalid(buffer, 0, 0);
+                skipping = true;
+                to = 0;
+            } else {
+                //move the cut line to the front for the next read
+                System.arraycopy(buffer, from, buffer, 0, to - from);
+                to -= from;
+            }
+        }
+        if (to > 0 && !skipping) line(buffer, 0, to);
+        flushBatch();
+        finish();
+    }
+
+    // One line in buffer[from, end), end is the '\n' (or the end of the file)
+    private void line(byte[] buffer, int from, int end) throws IOException {
+        if (end > from && buffer[end - 1] == '\r') end--;
+        if (end == from) return;   //empty line
+        long ic = IcDecoder.decode(buffer, from, end, pivot);
+        if (batchFrom != null) {
+            batchFrom[batched] = from;
+            batchEnd[batched] = end;
+            batchIc[batched] = ic;
+            if (++batched == BATCH) flushBatch();
+            return;
+        }
+        if (ic == IcDecoder.INVALID) {
+            invalid(buffer, from, end);
+            return;
+        }
+        if (validator != null) {
+            int reason = validator.check(buffer, from, end, ic);
+            if (reason != IcValidator.VALID) {
+                rejected(buffer, from, end, reason);
+                return;
+            }
+        }
+        accept(buffer, from, end, ic);
+    }
+
+    // The waiting lines: dates first, then the numbers of the good ones into the set all at
+    // once, then every line in order as line() would have done it
+    private void flushBatch() throws IOException {
+        if (batched == 0) return;
+        int numbers = 0;
+        for (int i = 0; i < batched; i++) {
+            if (batchIc[i] == IcDecoder.INVALID) continue;
+            batchReason[i] = validator.checkDate(batchIc[i]);
+            if (batchReason[i] == IcValidator.VALID) {
+                batchNumbers[numbers++] = IcDecoder.number(buffer, batchFrom[i], batchEnd[i]);
+            }
+        }
+        validator.checkDuplicates(batchNumbers, numbers, batchDuplicate);
+        int number = 0;
+        for (int i = 0; i < batched; i++) {
+            if (batchIc[i] == IcDecoder.INVALID) {
+                invalid(buffer, batchFrom[i], batchEnd[i]);
+            } else if (batchReason[i] != IcValidator.VALID) {
+                rejected(buffer, batchFrom[i], batchEnd[i], batchReason[i]);
+            } else if (batchDuplicate[number++]) {
+                rejected(buffer, batchFrom[i], batchEnd[i], IcValidator.DUPLICATE);
+            } else {
+                accept(buffer, batchFrom[i], batchEnd[i], batchIc[i]);
+            }
+        }
+        batched = 0;
+    }
+
+    // A good IC: counted, and written out if the format wants it
+    private void accept(byte[] buffer, int from, int end, long ic) throws IOException {
+        ics++;
+        //added up from the bits, no branch on the gender or the result
+        long female = ic >>> 40 & 1;
+        long lucky = ic >>> 42 & 1;
+        females += female;
+        femaleWinners += female & lucky;
+        maleWinners += ~female & lucky;
+        if (format == Format.WINNERS && lucky != 0) {
+            echo(buffer, from, end);
+            room(1);
+            output[outputLength++] = '\n';
+        }
+        if (format == Format.ROWS) row(buffer, from, end, ic);
+    }
+
+    private void invalid(byte[] buffer, int from, int end) throws IOException {
+        invalid++;
+        if (format == Format.ROWS) {
+            echo(buffer, from, end);
+            room(INVALID.length + 2);
+            output[outputLength++] = ' ';
+            put(INVALID, 0, INVALID.length);
+            output[outputLength++] = '\n';
+        }
+    }
+
+    private void rejected(byte[] buffer, int from, int end, int reason) throws IOException {
+        if (format == Format.ROWS) {
+            byte[] why = IcValidator.REASONS[reason].getBytes(StandardCharsets.US_ASCII);
+            echo(buffer, from, end);
+            room(REJECTED.length + why.length + 3);
+            output[outputLength++] = ' ';
+            put(REJECTED, 0, REJECTED.length);
+            output[outputLength++] = ' ';
+            put(why, 0, why.length);
+            output[outputLength++] = '\n';
+        }
+    }
+
+    // ic dd/mm/year gender sum Yes|No, the same values Question4 prints
+    private void row(byte[] buffer, int from, int end, long ic) throws IOException {
+        echo(buffer, from, end);
+        room(32);
+        output[outputLength++] = ' ';
+        number(IcDecoder.day(ic));
+        output[outputLength++] = '/';
+        number(IcDecoder.month(ic));
+        output[outputLength++] = '/';
+        number(IcDecoder.year(ic));
+        output[outputLength++] = ' ';
+        if (IcDecoder.female(ic)) put(FEMALE, 0, FEMALE.length); else put(MALE, 0, MALE.length);
+        output[outputLength++] = ' ';
+        number(IcDecoder.digitSum(ic));
+        output[outputLength++] = ' ';
+        if (IcDecoder.lucky(ic)) put(YES, 0, YES.length); else put(NO, 0, NO.length);
+        output[outputLength++] = '\n';
+    }
+
+    private void finish() throws IOException {
+        if (format == Format.SUMMARY) {
+            long males = ics - females;
+            String summary = "ICs: " + ics + System.lineSeparator()
+                    + "Invalid lines: " + invalid + System.lineSeparator()
+                    + "Male: " + males + ", Female: " + females + System.lineSeparator()
+                    + "Lucky winners: " + winners() + " (male " + maleWinners + ", female " + femaleWinners + ")"
+                    + System.lineSeparator();
+            if (validator != null) {
+                summary += "Rejected: " + validator.rejected() + " (month " + validator.count(IcValidator.BAD_MONTH)
+                        + ", day " + validator.count(IcValidator.BAD_DAY)
+                        + ", duplicate " + validator.count(IcValidator.DUPLICATE) + ")" + System.lineSeparator();
+                if (validator.seen() != null) {
+                    summary += "Distinct ICs: " + validator.seen().size() + " (set of "
+                            + validator.seen().memoryBytes() / (1 << 20) + " MB)" + System.lineSeparator();
+                }
+            }
+            byte[] bytes = summary.getBytes(StandardCharsets.US_ASCII);
+            room(bytes.length);
+            put(bytes, 0, bytes.length);
+        }
+        out.write(output, 0, outputLength);
+        outputLength = 0;
+        out.flush();
+    }
+
+    // 0-9999 without a String (all that a day, month, year or sum can be)
+    private void number(int value) {
+        if (value >= 1000) output[outputLength++] = (byte) ('0' + value / 1000);
+        if (value >= 100) output[outputLength++] = (byte) ('0' + value / 100 % 10);
+        if (value >= 10) output[outputLength++] = (byte) ('0' + value / 10 % 10);
+        output[outputLength++] = (byte) ('0' + value % 10);
+    }
+
+    private void put(byte[] bytes, int from, int to) {
+        System.arraycopy(bytes, from, output, outputLength, to - from);
+        outputLength += to - from;
+    }
+
+    // Makes sure the next `length` bytes (at most the buffer) fit, writing out what is there first if not
+    private void room(int length) throws IOException {
+        if (outputLength + length > output.length) {
+            out.write(output, 0, outputLength);
+            outputLength = 0;
+        }
+    }
+
+    // The line as it was written; a very long one (dashes can be anywhere) goes straight out
+    private void echo(byte[] buffer, int from, int end) throws IOException {
+        if (end - from > output.length / 2) {
+            room(output.length);
+            out.write(buffer, from, end - from);
+        } else {
+            room(end - from);
+            put(buffer, from, end);
+        }
+    }
+
+    private static int indexOf(byte[] buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == '\n') return i;
+        }
+        return -1;
+    }
+
+    // Report goes to stderr so it never mixes with the rows
+    static void reportThroughput(long lines, long bytes, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        double perSecond = seconds > 0 ? lines / seconds : 0;
+        System.err.printf(Locale.ROOT, "Decoded %d lines (%.1f MB) in %.3f s (%.0f lines/s)%n",
+                lines, bytes / 1e6, seconds, perSecond);
+    }
+}
@@ -0,0 +1,281 @@
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Decoded ICs kept as columns (one primitive array per attribute) for the breakdowns we are
+ * asked for after a lucky draw: winners by birth year, gender, month and digit-sum residue.
+ *
+ * Usage:
+ *     java Question4 --stats <file> [<file> ...] [--by=year,month,gender,sum5,sum7]
+ *                    [--year=1990-1999] [--gender=male|female] [--month=1-12]
+ *
+ *     Each file is appended as a new batch. The breakdowns come from counts kept up to date
+ *     on every append, so they take the same few microseconds for 10 rows or 50 million.
+ *     --year/--gender/--month: also count the rows (and winners) that match, with one scan
+ *     over the columns. Times go to stderr.
+ *
+ * Rows are appended with append(long) (a packed IC from IcDecoder) or a whole batch of lines;
+ * the columns grow by doubling. Row i is year[i], month[i], day[i], sum[i], flags[i].
+ */
+public class IcColumns {
+
+    public static final int FEMALE = 1;
+    public static final int LONG_MONTH = 2;
+    public static final int LUCKY = 4;
+
+    // years IcDecoder can give: 1926-2025
+    public static final int FIRST_YEAR = 1926;
+    public static final int YEARS = 100;
+    // months and days as written, 00-99; sums of 12 digits, 0-108
+    private static final int MONTHS = 100;
+    private static final int SUMS = 128;
+
+    public enum GroupBy { YEAR, MONTH, GENDER, SUM5, SUM7 }
+
+    private short[] year = new short[1024];
+    private byte[] month = new byte[1024];
+    private byte[] day = new byte[1024];
+    private byte[] sum = new byte[1024];
+    private byte[] flags = new byte[1024];
+    private int rows;
+    private long invalid;
+
+    // Counts kept on every append: [year][month][female][lucky] and [sum][female][lucky];
+    // every breakdown is a sum over one of these
+    private final long[] byYearMonth = new long[YEARS * MONTHS * 4];
+    private final long[] bySum = new long[SUMS * 4];
+
+    public int rows() { return rows; }
+
+    public long invalid() { return invalid; }
+
+    public int year(int row) { return year[row]; }
+
+    public int month(int row) { return month[row]; }
+
+    public int day(int row) { return day[row]; }
+
+    public int digitSum(int row) { return sum[row]; }
+
+    public boolean female(int row) { return (flags[row] & FEMALE) != 0; }
+
+    public boolean lucky(int row) { return (flags[row] & LUCKY) != 0; }
+
+    // One decoded IC (not IcDecoder.INVALID)
+    public void append(long ic) {
+        if (rows == year.length) grow();
+        int y = IcDecoder.year(ic);
+        int m = IcDecoder.month(ic);
+        int s = IcDecoder.digitSum(ic);
+        //IcDecoder's flag bits 40-42 are FEMALE, LONG_MONTH, LUCKY here
+        int f = (int) (ic >>> 40) & 7;
+        year[rows] = (short) y;
+        month[rows] = (byte) m;
+        day[rows] = (byte) IcDecoder.day(ic);
+        sum[rows] = (byte) s;
+        flags[rows] = (byte) f;
+        rows++;
+        int genderLucky = (f & FEMALE) << 1 | (f & LUCKY) >> 2;
+        byYearMonth[((y - FIRST_YEAR) * MONTHS + m) * 4 + genderLucky]++;
+        bySum[s * 4 + genderLucky]++;
+    }
+
+    // A batch of lines in bytes[from, to) (one IC per line; bad lines are only counted)
+    public void append(byte[] bytes, int from, int to) {
+        int start = from;
+        for (int i = from; i <= to; i++) {
+            if (i < to && bytes[i] != '\n') continue;
+            int end = i > start && bytes[i - 1] == '\r' ? i - 1 : i;
+            if (end > start) {
+                long ic = IcDecoder.decode(bytes, start, end);
+                if (ic == IcDecoder.INVALID) invalid++; else append(ic);
+            }
+            start = i + 1;
+        }
+    }
+
+    // A whole file or stream of lines, read 1 MB at a time
+    public void append(InputStream in) throws IOException {
+        byte[] buffer = new byte[1 << 20];
+        int to = 0;
+        for (;;) {
+            int n = in.read(buffer, to, buffer.length - to);
+            if (n < 0) break;
+            to += n;
+            int last = to - 1;
+            while (last >= 0 && buffer[last] != '\n') last--;
+            if (last < 0 && to == buffer.length) {
+                //no line end in 1 MB: not an IC
+                invalid++;
+                to = 0;
+                continue;
+            }
+            append(buffer, 0, last + 1);
+            System.arraycopy(buffer, last + 1, buffer, 0, to - last - 1);
+            to -= last + 1;
+        }
+        if (to > 0) append(buffer, 0, to);
+    }
+
+    private void grow() {
+        int capacity = rows * 2;
+        year = Arrays.copyOf(year, capacity);
+        month = Arrays.copyOf(month, capacity);
+        day = Arrays.copyOf(day, capacity);
+        sum = Arrays.copyOf(sum, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+    }
+
+    // One row per group: {key, ICs, winners, male winners, female winners}, groups without ICs left out.
+    // Keys: the year, the month, 0 male / 1 female, or the sum % 5 or % 7.
+    public long[][] breakdown(GroupBy groupBy) {
+        int groups = groupBy == GroupBy.YEAR ? YEARS : groupBy == GroupBy.MONTH ? MONTHS
+                : groupBy == GroupBy.GENDER ? 2 : groupBy == GroupBy.SUM5 ? 5 : 7;
+        long[][] table = new long[groups][5];
+        if (groupBy == GroupBy.SUM5 || groupBy == GroupBy.SUM7) {
+            int modulus = groups;
+            for (int s = 0; s < SUMS; s++) add(table[s % modulus], bySum, s * 4);
+        } else {
+            for (int y = 0; y < YEARS; y++) {
+                for (int m = 0; m < MONTHS; m++) {
+                    int cell = (y * MONTHS + m) * 4;
+                    if (groupBy == GroupBy.GENDER) {
+                        //cells 0-1 male, 2-3 female
+                        table[0][1] += byYearMonth[cell] + byYearMonth[cell + 1];
+                        table[0][2] += byYearMonth[cell + 1];
+                        table[0][3] += byYearMonth[cell + 1];
+                        table[1][1] += byYearMonth[cell + 2] + byYearMonth[cell + 3];
+                        table[1][2] += byYearMonth[cell + 3];
+                        table[1][4] += byYearMonth[cell + 3];
+                    } else {
+                        add(table[groupBy == GroupBy.YEAR ? y : m], byYearMonth, cell);
+                    }
+                }
+            }
+        }
+        List<long[]> used = new ArrayList<>();
+        for (int g = 0; g < groups; g++) {
+            table[g][0] = groupBy == GroupBy.YEAR ? FIRST_YEAR + g : g;
+            if (table[g][1] > 0) used.add(table[g]);
+        }
+        return used.toArray(new long[0][]);
+    }
+
+    // cells: male no, male yes, female no, female yes
+    private static void add(long[] row, long[] counts, int cell) {
+        row[1] += counts[cell] + counts[cell + 1] + counts[cell + 2] + counts[cell + 3];
+        row[2] += counts[cell + 1] + counts[cell + 3];
+        row[3] += counts[cell + 1];
+        row[4] += counts[cell + 3];
+    }
+
+    // {rows, winners} with year in [fromYear, toYear], month in [fromMonth, toMonth] and the
+    // gender (0 male, 1 female, -1 either), by one pass over the columns. No branch per row:
+    // each test is 0 or 1 and they are multiplied, so the JIT can keep the loop straight.
+    public long[] count(int fromYear, int toYear, int fromMonth, int toMonth, int gender) {
+        long matches = 0;
+        long winners = 0;
+        int genderMask = gender < 0 ? 0 : FEMALE;
+        int genderWanted = gender < 0 ? 0 : gender;
+        for (int i = 0; i < rows; i++) {
+            int y = year[i];
+            int m = month[i];
+            int f = flags[i];
+            //x in [lo, hi] exactly when (x - lo) and (hi - x) are both >= 0, i.e. their OR is
+            int match = (~((y - fromYear) | (toYear - y) | (m - fromMonth) | (toMonth - m)) >>> 31)
+                    & ((f & genderMask) ^ genderWanted ^ 1);
+            matches += match;
+            winners += match & (f >> 2);
+        }
+        return new long[] {matches, winners};
+    }
+
+    public static void run(String[] args) throws IOException {
+        List<String> files = new ArrayList<>();
+        List<GroupBy> groupBys = new ArrayList<>(Arrays.asList(GroupBy.values()));
+        int[] years = null;
+        int[] months = null;
+        int gender = -1;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--stats")) {
+                while (i + 1 < args.length && !args[i + 1].startsWith("--")) files.add(args[++i]);
+            } else if (arg.startsWith("--by=")) {
+                groupBys.clear();
+                for (String by : arg.substring("--by=".length()).split(",")) {
+                    try {
+                        groupBys.add(GroupBy.valueOf(by.trim().toUpperCase(Locale.ROOT)));
+                    } catch (IllegalArgumentException e) {
+                        System.err.println("by must be year, month, gender, sum5 or sum7: " + by.trim());
+                        return;
+                    }
+                }
+            } else if (arg.startsWith("--year=")) {
+                years = range(arg.substring("--year=".length()));
+            } else if (arg.startsWith("--month=")) {
+                months = range(arg.substring("--month=".length()));
+            } else if (arg.startsWith("--gender=")) {
+                gender = arg.substring("--gender=".length()).equalsIgnoreCase("female") ? 1 : 0;
+            } else {
+                System.err.println("Unknown option: " + arg);
+                return;
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("Usage: java Question4 --stats <file> [<file> ...] [--by=year,month,gender,sum5,sum7]"
+                    + " [--year=from-to] [--month=from-to] [--gender=male|female]");
+            return;
+        }
+
+        IcColumns columns = new IcColumns();
+        for (String file : files) {
+            int before = columns.rows();
+            long start = System.nanoTime();
+            try (InputStream in = file.equals("-") ? System.in : new FileInputStream(file)) {
+                columns.append(in);
+            }
+            System.err.printf(Locale.ROOT, "Appended %d rows from %s in %.1f ms (%d rows, %d invalid lines)%n",
+                    columns.rows() - before, file, (System.nanoTime() - start) / 1e6, columns.rows(), columns.invalid());
+        }
+
+        StringBuilder out = new StringBuilder();
+        for (GroupBy groupBy : groupBys) {
+            long start = System.nanoTime();
+            long[][] table = columns.breakdown(groupBy);
+            long elapsed = System.nanoTime() - start;
+            out.append(System.lineSeparator()).append("By ").append(groupBy.name().toLowerCase(Locale.ROOT))
+               .append(": ICs, winners, male winners, female winners").append(System.lineSeparator());
+            for (long[] row : table) {
+                out.append(groupBy == GroupBy.GENDER ? (row[0] == 1 ? "Female" : "Male") : String.valueOf(row[0]));
+                for (int c = 1; c < row.length; c++) out.append(' ').append(row[c]);
+                out.append(System.lineSeparator());
+            }
+            System.err.printf(Locale.ROOT, "By %s in %.1f us%n", groupBy.name().toLowerCase(Locale.ROOT), elapsed / 1e3);
+        }
+        if (years != null || months != null || gender >= 0) {
+            long start = System.nanoTime();
+            long[] count = columns.count(years == null ? FIRST_YEAR : years[0], years == null ? FIRST_YEAR + YEARS - 1 : years[1],
+                    months == null ? 0 : months[0], months == null ? MONTHS - 1 : months[1], gender);
+            long elapsed = System.nanoTime() - start;
+            out.append(System.lineSeparator()).append("Matching ICs: ").append(count[0])
+               .append(", winners: ").append(count[1]).append(System.lineSeparator());
+            System.err.printf(Locale.ROOT, "Scanned %d rows in %.1f ms%n", columns.rows(), elapsed / 1e6);
+        }
+        System.out.print(out);
+    }
+
+    // "1990-1999" or "1995"
+    private static int[] range(String text) {
+        int dash = text.indexOf('-');
+        if (dash < 0) {
+            int value = Integer.parseInt(text.trim());
+            return new int[] {value, value};
+        }
+        return new int[] {Integer.parseInt(text.substring(0, dash).trim()), Integer.parseInt(text.substring(dash + 1).trim())};
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * Decodes an IC number (YYMMDD-##-####) with the same rules as Question4, straight from
+ * the bytes of a line and in one pass, into one packed long instead of Strings:
+ *
+ *     bits  0-15  year: yy 00-25 is 20yy, 26-99 is 19yy (the pivot 25 can be changed)
+ *     bits 16-23  month, as written
+ *     bits 24-31  day, as written
+ *     bits 32-39  sum of the 12 digits
+ *     bit  40     female (last digit even)
+ *     bit  41     long month (1, 3, 5, 7, 8, 10, 12)
+ *     bit  42     lucky winner: a man whose sum divides by 5 and was born in a short month,
+ *                 or a woman whose sum divides by 7 and was born in a long month
+ *
+ * Question4 strips the dashes with icDigits += c (a new String per character) and then
+ * reads the digits again for the date, the gender and the sum. Here every digit is read
+ * once and nothing is allocated, so a caller can decode millions of lines from one buffer.
+ *
+ * Like Question4, dashes are skipped wherever they are; a line that is not 12 digits is
+ * INVALID. The date is not checked here (Question4 does not either); IcValidator does that.
+ */
+public final class IcDecoder {
+
+    public static final long INVALID = -1L;
+
+    // Question4: yy up to 25 is 20yy, after that 19yy
+    public static final int DEFAULT_PIVOT = 25;
+
+    public static final long FEMALE = 1L << 40;
+    public static final long LONG_MONTH = 1L << 41;
+    public static final long LUCKY = 1L << 42;
+
+    // 1 for the months with 31 days (1, 3, 5, 7, 8, 10, 12), for every month 00-99
+    private static final byte[] LONG_MONTHS = new byte[100];
+
+    // 1 if that sum wins, by gender and month type: [(female * 2 + longMonth) * 128 + sum]
+    // (the sum of 12 digits is at most 108)
+    private static final byte[] LUCKY_SUMS = new byte[4 * 128];
+
+    static {
+        for (int mm : new int[] {1, 3, 5, 7, 8, 10, 12}) LONG_MONTHS[mm] = 1;
+        for (int sum = 0; sum < 128; sum++) {
+            LUCKY_SUMS[sum] = (byte) (sum % 5 == 0 ? 1 : 0);             //male, short month
+            LUCKY_SUMS[3 * 128 + sum] = (byte) (sum % 7 == 0 ? 1 : 0);   //female, long month
+        }
+    }
+
+    private IcDecoder() { }
+
+    public static int year(long ic) { return (int) ic & 0xFFFF; }
+
+    public static int month(long ic) { return (int) (ic >>> 16) & 0xFF; }
+
+    public static int day(long ic) { return (int) (ic >>> 24) & 0xFF; }
+
+    public static int digitSum(long ic) { return (int) (ic >>> 32) & 0xFF; }
+
+    public static boolean female(long ic) { return (ic & FEMALE) != 0; }
+
+    public static boolean longMonth(long ic) { return (ic & LONG_MONTH) != 0; }
+
+    public static boolean lucky(long ic) { return (ic & LUCKY) != 0; }
+
+    // One IC in bytes[from, to) (no line end)
+    public static long decode(byte[] bytes, int from, int to) {
+        return decode(bytes, from, to, DEFAULT_PIVOT);
+    }
+
+    // The same with another century pivot: yy up to pivot is 20yy, after that 19yy
+    public static long decode(byte[] bytes, int from, int to, int pivot) {
+        if (to - from == 14 && bytes[from + 6] == '-' && bytes[from + 9] == '-') {
+            return decodeDashed(bytes, from, pivot);
+        }
+        //any other layout: skip the dashes like Question4 and count the digits
+        int digits = 0;
+        int yy = 0;
+        int mm = 0;
+        int dd = 0;
+        int sum = 0;
+        int last = 0;
+        for (int i = from; i < to; i++) {
+            int d = bytes[i] - '0';
+            if (d < 0 || d > 9) {
+                if (bytes[i] == '-') continue;
+                return INVALID;
+            }
+            if (digits < 2) {
+                yy = yy * 10 + d;
+            } else if (digits < 4) {
+                mm = mm * 10 + d;
+            } else if (digits < 6) {
+                dd = dd * 10 + d;
+            }
+            sum += d;
+            last = d;
+            digits++;
+        }
+        return digits == 12 ? pack(yy, mm, dd, sum, last, pivot) : INVALID;
+    }
+
+    // The 12 digits of an IC that decodes, as one number (the IC without its dashes)
+    public static long number(byte[] bytes, int from, int to) {
+        long number = 0;
+        for (int i = from; i < to; i++) {
+            if (bytes[i] != '-') number = number * 10 + (bytes[i] - '0');
+        }
+        return number;
+    }
+
+    // The usual YYMMDD-##-####: every digit at a known place, no loop and no branch per digit
+    private static long decodeDashed(byte[] b, int i, int pivot) {
+        int y1 = b[i] - '0', y2 = b[i + 1] - '0';
+        int m1 = b[i + 2] - '0', m2 = b[i + 3] - '0';
+        int d1 = b[i + 4] - '0', d2 = b[i + 5] - '0';
+        int p1 = b[i + 7] - '0', p2 = b[i + 8] - '0';
+        int n1 = b[i + 10] - '0', n2 = b[i + 11] - '0', n3 = b[i + 12] - '0', n4 = b[i + 13] - '0';
+        //a digit d is 0-9 exactly when d and 9 - d are both >= 0, so one OR catches any bad byte
+        int bad = y1 | y2 | m1 | m2 | d1 | d2 | p1 | p2 | n1 | n2 | n3 | n4
+                | (9 - y1) | (9 - y2) | (9 - m1) | (9 - m2) | (9 - d1) | (9 - d2)
+                | (9 - p1) | (9 - p2) | (9 - n1) | (9 - n2) | (9 - n3) | (9 - n4);
+        if (bad < 0) return INVALID;
+        int sum = y1 + y2 + m1 + m2 + d1 + d2 + p1 + p2 + n1 + n2 + n3 + n4;
+        return pack(y1 * 10 + y2, m1 * 10 + m2, d1 * 10 + d2, sum, n4, pivot);
+    }
+
+    // Looked up in tables instead of if/else: gender and lucky change from one IC to the next,
+    // so branches on them would be guessed wrong about half the time
+    private static long pack(int yy, int mm, int dd, int sum, int lastDigit, int pivot) {
+        int year = yy <= pivot ? 2000 + yy : 1900 + yy;
+        long female = ~lastDigit & 1;
+        long longMonth = LONG_MONTHS[mm];
+        long lucky = LUCKY_SUMS[(int) (female * 2 + longMonth) * 128 + sum];
+        return year | (long) mm << 16 | (long) dd << 24 | (long) sum << 32
+                | female << 40 | longMonth << 41 | lucky << 42;
+    }
+}
@@ -0,0 +1,292 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Lucky draw over a whole registry file of IC numbers (one per line) on every core: the
+ * lines of the lucky winners (Question4's rules, see IcDecoder) in the same order as the file.
+ *
+ * Usage:
+ *     java Question4 --draw <file> [--out <file>] [--threads=n]
+ *     java Question4 --draw <file> --threads=1,2,4,8      (scaling report, no output)
+ *
+ * The file is memory-mapped and cut into chunks on line boundaries, a few chunks per
+ * thread so a slow one does not hold up the rest. Each thread decodes its chunks into its
+ * own winners buffer; the main thread writes the chunk buffers out in file order, as soon
+ * as each one is done, through one channel. Records per second go to stderr.
+ *
+ * With a list of thread counts, the draw runs once per count (after one warm-up run) and
+ * a table of records/s and speedup over the first count is printed; the winners are
+ * merged the same way but thrown away, so only the draw is timed.
+ */
+public class IcLuckyDraw {
+
+    private static final int WINDOW = 1 << 20;
+    private static final long MIN_CHUNK = 1 << 22;
+    // a mapped chunk must stay under 2 GB
+    private static final long MAX_CHUNK = 1 << 28;
+    private static final int CHUNKS_PER_THREAD = 8;
+
+    // window per thread, the mapped bytes are copied into it 1 MB at a time for IcDecoder
+    private static final ThreadLocal<byte[]> WINDOWS = ThreadLocal.withInitial(() -> new byte[WINDOW]);
+
+    private final FileChannel file;
+    private final long size;
+
+    public IcLuckyDraw(FileChannel file) throws IOException {
+        this.file = file;
+        this.size = file.size();
+    }
+
+    // Winners and counts of one chunk file[from, to)
+    static final class Chunk {
+        final long from;
+        final long to;
+        byte[] winners = new byte[4096];
+        int length;
+        long records;
+        long invalid;
+        long winnerCount;
+
+        Chunk(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    // What one draw found
+    public static final class Result {
+        public long records;
+        public long invalid;
+        public long winners;
+        public long bytesWritten;
+    }
+
+    public static void run(String[] args) throws IOException {
+        String input = null;
+        String output = null;
+        int[] threadCounts = {Runtime.getRuntime().availableProcessors()};
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--draw") && i + 1 < args.length) {
+                input = args[++i];
+            } else if (arg.equals("--out") && i + 1 < args.length) {
+                output = args[++i];
+            } else if (arg.startsWith("--threads=")) {
+                String[] counts = arg.substring("--threads=".length()).split(",");
+                threadCounts = new int[counts.length];
+                for (int c = 0; c < counts.length; c++) threadCounts[c] = Math.max(1, Integer.parseInt(counts[c].trim()));
+            } else {
+                System.err.println("Unknown option: " + arg);
+                return;
+            }
+        }
+        if (input == null) {
+            System.err.println("Usage: java Question4 --draw <file> [--out <file>] [--threads=n | --threads=1,2,4,...]");
+            return;
+        }
+
+        try (FileChannel in = FileChannel.open(Path.of(input), StandardOpenOption.READ)) {
+            IcLuckyDraw draw = new IcLuckyDraw(in);
+            if (threadCounts.length > 1) {
+                scaling(draw, threadCounts);
+                return;
+            }
+            WritableByteChannel out = output == null ? Channels.newChannel(System.out)
+                    : FileChannel.open(Path.of(output), StandardOpenOption.CREATE,
+                            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            long start = System.nanoTime();
+            Result result;
+            try {
+                result = draw.draw(threadCounts[0], out);
+            } finally {
+                if (output != null) out.close();
+                else System.out.flush();
+            }
+            long elapsed = System.nanoTime() - start;
+            System.err.printf(Locale.ROOT, "Lucky winners: %d of %d ICs (%d invalid lines)%n",
+                    result.winners, result.records, result.invalid);
+            report(threadCounts[0], result, elapsed, 0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Interrupted");
+        }
+    }
+
+    private static void scaling(IcLuckyDraw draw, int[] threadCounts) throws IOException, InterruptedException {
+        Discard discard = new Discard();
+        draw.draw(threadCounts[0], discard);   //warm-up: JIT and page cache
+        double first = 0;
+        for (int threads : threadCounts) {
+            long start = System.nanoTime();
+            Result result = draw.draw(threads, discard);
+            long elapsed = System.nanoTime() - start;
+            double perSecond = result.records / (elapsed / 1e9);
+            if (first == 0) first = perSecond;
+            report(threads, result, elapsed, perSecond / first);
+        }
+    }
+
+    private static void report(int threads, Result result, long elapsedNanos, double speedup) {
+        double seconds = elapsedNanos / 1e9;
+        double perSecond = seconds > 0 ? result.records / seconds : 0;
+        System.err.printf(Locale.ROOT, "threads=%d records=%d winners=%d time=%.3f s records/s=%.0f%s%n",
+                threads, result.records, result.winners, seconds, perSecond,
+                speedup > 0 ? String.format(Locale.ROOT, " speedup=%.2f", speedup) : "");
+    }
+
+    // Runs the draw on `threads` threads and writes the winners to out in file order
+    public Result draw(int threads, WritableByteChannel out) throws IOException, InterruptedException {
+        List<Chunk> chunks = split(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Result result = new Result();
+        try {
+            List<Future<Chunk>> done = new ArrayList<>(chunks.size());
+            for (Chunk chunk : chunks) {
+                done.add(executor.submit(() -> {
+                    decode(chunk);
+                    return chunk;
+                }));
+            }
+            //merge: chunk i is written once chunks 0..i-1 are, so the order is the file's
+            for (Future<Chunk> future : done) {
+                Chunk chunk = future.get();
+                ByteBuffer winners = ByteBuffer.wrap(chunk.winners, 0, chunk.length);
+                while (winners.hasRemaining()) out.write(winners);
+                result.records += chunk.records;
+                result.invalid += chunk.invalid;
+                result.winners += chunk.winnerCount;
+                result.bytesWritten += chunk.length;
+                chunk.winners = null;
+            }
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) throw ((UncheckedIOException) cause).getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            throw new IllegalStateException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+        return result;
+    }
+
+    // Cuts the file into chunks that each start at the beginning of a line
+    List<Chunk> split(int threads) throws IOException {
+        long target = Math.max(MIN_CHUNK, size / ((long) threads * CHUNKS_PER_THREAD) + 1);
+        target = Math.min(target, MAX_CHUNK);
+        List<Chunk> chunks = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long from = 0;
+        while (from < size) {
+            long to = from + target >= size ? size : lineStart(from + target, probe);
+            chunks.add(new Chunk(from, to));
+            from = to;
+        }
+        return chunks;
+    }
+
+    // The first line start at or after position (just after a '\n'), or the end of the file
+    private long lineStart(long position, ByteBuffer probe) throws IOException {
+        long at = position - 1;
+        while (at < size) {
+            probe.clear();
+            int n = file.read(probe, at);
+            if (n <= 0) break;
+            for (int i = 0; i < n; i++) {
+                if (probe.get(i) == '\n') return at + i + 1;
+            }
+            at += n;
+        }
+        return size;
+    }
+
+    // One chunk: the mapped bytes go through the thread's window, one line at a time
+    private void decode(Chunk chunk) {
+        MappedByteBuffer mapped;
+        try {
+            mapped = file.map(FileChannel.MapMode.READ_ONLY, chunk.from, chunk.to - chunk.from);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        byte[] window = WINDOWS.get();
+        int to = 0;
+        boolean skipping = false;   //in the middle of a line longer than the whole window
+        while (mapped.hasRemaining()) {
+            int n = Math.min(window.length - to, mapped.remaining());
+            mapped.get(window, to, n);
+            to += n;
+            int from = 0;
+            for (int i = from; i < to; i++) {
+                if (window[i] != '\n') continue;
+                if (skipping) {
+                    skipping = false;
+                } else {
+                    line(chunk, window, from, i);
+                }
+                from = i + 1;
+            }
+            if (from == 0 && to == window.length) {
+                //no line end in 1 MB: not an IC, count it once and drop the rest of it
+                if (!skipping) chunk.invalid++;
+                skipping = true;
+                to = 0;
+            } else {
+                //move the cut line to the front for the next copy
+                System.arraycopy(window, from, window, 0, to - from);
+                to -= from;
+            }
+        }
+        //only the last chunk of a file can end without '\n'
+        if (to > 0 && !skipping) line(chunk, window, 0, to);
+    }
+
+    private static void line(Chunk chunk, byte[] window, int from, int end) {
+        if (end > from && window[end - 1] == '\r') end--;
+        if (end == from) return;   //empty line
+        long ic = IcDecoder.decode(window, from, end);
+        if (ic == IcDecoder.INVALID) {
+            chunk.invalid++;
+            return;
+        }
+        chunk.records++;
+        if (!IcDecoder.lucky(ic)) return;
+        chunk.winnerCount++;
+        int length = end - from + 1;
+        if (chunk.length + length > chunk.winners.length) {
+            chunk.winners = Arrays.copyOf(chunk.winners, Math.max(chunk.winners.length * 2, chunk.length + length));
+        }
+        System.arraycopy(window, from, chunk.winners, chunk.length, end - from);
+        chunk.winners[chunk.length + length - 1] = '\n';
+        chunk.length += length;
+    }
+
+    // Output of the scaling runs: written like the real output, then thrown away
+    private static final class Discard implements WritableByteChannel {
+        @Override
+        public int write(ByteBuffer src) {
+            int n = src.remaining();
+            src.position(src.limit());
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() { return true; }
+
+        @Override
+        public void close() { }
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Checks decoded ICs before they are counted: the birth date has to exist, and with dedup on
+ * every IC may only appear once. Question4 takes any 12 digits (month 13 or 30 February
+ * give a birth date and can even win).
+ *
+ * Rejects are counted by reason:
+ *     month     : month 00 or over 12
+ *     day       : day 00 or past the end of the month (29 February only in a leap year,
+ *                 where the year comes from the century pivot)
+ *     duplicate : the same 12 digits seen before (dashes do not matter)
+ *
+ * The pivot is the last yy that is 20yy (Question4 and the default: 25, so 26-99 are 19yy).
+ */
+public class IcValidator {
+
+    public static final int VALID = 0;
+    public static final int BAD_MONTH = 1;
+    public static final int BAD_DAY = 2;
+    public static final int DUPLICATE = 3;
+
+    public static final String[] REASONS = {"valid", "month", "day", "duplicate"};
+
+    private static final int[] DAYS_IN_MONTH = {0, 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+
+    private final int pivot;
+    private final IcLongSet seen;
+    private final long[] counts = new long[REASONS.length];
+
+    // seen: the ICs so far, or null for no dedup
+    public IcValidator(int pivot, IcLongSet seen) {
+        this.pivot = pivot;
+        this.seen = seen;
+    }
+
+    public int pivot() { return pivot; }
+
+    public IcLongSet seen() { return seen; }
+
+    // ICs rejected for that reason
+    public long count(int reason) { return counts[reason]; }
+
+    public long rejected() { return counts[BAD_MONTH] + counts[BAD_DAY] + counts[DUPLICATE]; }
+
+    // ic: IcDecoder.decode(bytes, from, to, pivot()) of bytes[from, to); VALID or the reason it is rejected
+    public int check(byte[] bytes, int from, int to, long ic) {
+        int reason = checkDate(ic);
+        if (reason == VALID && seen != null && !seen.add(IcDecoder.number(bytes, from, to))) {
+            reason = DUPLICATE;
+            counts[DUPLICATE]++;
+        }
+        return reason;
+    }
+
+    // The date part of check(), counted; for callers that dedup a batch at a time
+    public int checkDate(long ic) {
+        int reason = dateError(ic);
+        counts[reason]++;
+        return reason;
+    }
+
+    // The dedup part of check() for numbers[0, count) (IcDecoder.number, in input order):
+    // duplicate[i] is true if numbers[i] was seen before, in an earlier batch or earlier in this one
+    public void checkDuplicates(long[] numbers, int count, boolean[] duplicate) {
+        seen.addAll(numbers, count, duplicate);
+        for (int i = 0; i < count; i++) {
+            duplicate[i] = !duplicate[i];
+            if (duplicate[i]) counts[DUPLICATE]++;
+        }
+    }
+
+    // VALID, BAD_MONTH or BAD_DAY for the birth date of a decoded IC
+    public static int dateError(long ic) {
+        int month = IcDecoder.month(ic);
+        if (month < 1 || month > 12) return BAD_MONTH;
+        int day = IcDecoder.day(ic);
+        int lastDay = DAYS_IN_MONTH[month];
+        if (month == 2 && isLeapYear(IcDecoder.year(ic))) lastDay = 29;
+        return day < 1 || day > lastDay ? BAD_DAY : VALID;
+    }
+
+    public static boolean isLeapYear(int year) {
+        return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+}
@@ -1,7 +1,21 @@
 import java.util.Scanner;
 
 public class Question4 {
-        public static void main(String[] args) {
+        public static void main(String[] args) throws java.io.IOException {
+        // bulk mode: decode a whole file of ICs instead of asking for one
+        // e.g. java Question4 --bulk ics.txt --format=rows   (see IcBulk)
+        // or the lucky draw of a whole registry on every core: java Question4 --draw ics.txt   (see IcLuckyDraw)
+        // or winners by year, month, gender and digit sum: java Question4 --stats ics.txt   (see IcColumns)
+        if (args.length > 0) {
+            if (args[0].equals("--draw")) {
+                IcLuckyDraw.run(args);
+            } else if (args[0].equals("--stats")) {
+                IcColumns.run(args);
+            } else {
+                IcBulk.run(args);
+            }
+            return;
+        }
           Scanner sc = new Scanner(System.in);
         
         //ask user for enter IC
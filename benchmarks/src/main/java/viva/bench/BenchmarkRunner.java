@@ -0,0 +1,33 @@
+package viva.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler attached, so every result has throughput,
+ * latency percentiles (SampleTime) and allocation rate (gc.alloc.rate.norm = bytes/op).
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar                 # everything
+ * java -jar benchmarks/target/benchmarks.jar LibraryFine     # benchmarks matching a regex
+ * </pre>
+ * Results are also written to jmh-result.json for comparing runs.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() { }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : "viva\\.bench\\..*")
+                .addProfiler(GCProfiler.class)
+                .result("jmh-result.json")
+                .resultFormat(ResultFormatType.JSON)
+                .build();
+        new Runner(options).run();
+    }
+}
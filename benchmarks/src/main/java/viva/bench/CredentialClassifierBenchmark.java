@@ -0,0 +1,175 @@
+package viva.bench;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import security.um.CredentialClassifier;
+import security.um.CredentialRules;
+
+/**
+ * Username rules plus the 7 password rules for one account, without the console:
+ * the String code of security.um.Main, the same checks on a char array (charArrayRules, a
+ * pass per rule group) and the single-pass table-driven CredentialClassifier. Run with
+ * -prof gc: the String code allocates two lowercase copies per account, the other two nothing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CredentialClassifierBenchmark {
+
+    private static final int ACCOUNTS = 4096;
+    private static final String SPECIAL_CHARACTERS = "!@#$%^&*";
+
+    private String[] usernames;
+    private String[] passwords;
+    private char[][] accounts;   // username + password in one array
+    private int[] usernameLengths;
+    private final CredentialClassifier classifier = new CredentialClassifier();
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(Datasets.SEED);
+        usernames = new String[ACCOUNTS];
+        passwords = new String[ACCOUNTS];
+        accounts = new char[ACCOUNTS][];
+        usernameLengths = new int[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            usernames[i] = Datasets.username(random);
+            passwords[i] = Datasets.password(random, usernames[i]);
+            accounts[i] = (usernames[i] + passwords[i]).toCharArray();
+            usernameLengths[i] = usernames[i].length();
+        }
+    }
+
+    // The checks of Main.main on its two Strings; -1 for an invalid username, else the rules met
+    @Benchmark
+    public int mainStrings() {
+        int i = next++ & (ACCOUNTS - 1);
+        String username = usernames[i];
+        String password = passwords[i];
+
+        boolean isUserNameValid = username.length() >= 5 && username.length() <= 15;
+        if (isUserNameValid && !Character.isLowerCase(username.charAt(0))) isUserNameValid = false;
+        if (isUserNameValid) {
+            for (int k = 0; k < username.length(); k++) {
+                char ch = username.charAt(k);
+                if (!Character.isLowerCase(ch) && !Character.isDigit(ch) && ch != '_') {
+                    isUserNameValid = false;
+                    break;
+                }
+            }
+        }
+        if (!isUserNameValid) return -1;
+
+        boolean haveUppercase = false;
+        boolean haveLowercase = false;
+        boolean haveDigit = false;
+        boolean haveSpecialChar = false;
+        for (int k = 0; k < password.length(); k++) {
+            char ch = password.charAt(k);
+            if (Character.isUpperCase(ch)) {
+                haveUppercase = true;
+            } else if (Character.isLowerCase(ch)) {
+                haveLowercase = true;
+            } else if (Character.isDigit(ch)) {
+                haveDigit = true;
+            } else if (SPECIAL_CHARACTERS.indexOf(ch) != -1) {
+                haveSpecialChar = true;
+            }
+        }
+        int rulesMet = 0;
+        if (haveUppercase) rulesMet++;
+        if (haveLowercase) rulesMet++;
+        if (haveDigit) rulesMet++;
+        if (haveSpecialChar) rulesMet++;
+        if (password.length() >= 8) rulesMet++;
+        if (!password.contains(" ")) rulesMet++;
+        if (!password.toLowerCase().contains(username.toLowerCase())) rulesMet++;
+        return rulesMet;
+    }
+
+    @Benchmark
+    public int charArrayRules() {
+        int i = next++ & (ACCOUNTS - 1);
+        char[] account = accounts[i];
+        int split = usernameLengths[i];
+        if (!validUsername(account, 0, split)) return -1;
+        return CredentialRules.rulesMet(rules(account, split, account.length, 0, split));
+    }
+
+    @Benchmark
+    public int classifier() {
+        int i = next++ & (ACCOUNTS - 1);
+        char[] account = accounts[i];
+        int split = usernameLengths[i];
+        int classified = classifier.classify(account, 0, split, split, account.length);
+        if (!CredentialClassifier.validUsername(classified)) return -1;
+        return CredentialRules.rulesMet(CredentialClassifier.passwordRules(classified));
+    }
+
+    // Main's checks on ranges of one char array, the same Character methods one rule group at a time
+
+    private static boolean validUsername(char[] text, int from, int to) {
+        int length = to - from;
+        if (length < 5 || length > 15) return false;
+        if (!Character.isLowerCase(text[from])) return false;
+        for (int i = from; i < to; i++) {
+            char ch = text[i];
+            if (!Character.isLowerCase(ch) && !Character.isDigit(ch) && ch != '_') return false;
+        }
+        return true;
+    }
+
+    private static int rules(char[] text, int passwordFrom, int passwordTo, int usernameFrom, int usernameTo) {
+        int rules = 0;
+        boolean space = false;
+        for (int i = passwordFrom; i < passwordTo; i++) {
+            char ch = text[i];
+            //same else-if order as Main: a character counts for the first class it is in
+            if (Character.isUpperCase(ch)) {
+                rules |= CredentialRules.UPPERCASE;
+            } else if (Character.isLowerCase(ch)) {
+                rules |= CredentialRules.LOWERCASE;
+            } else if (Character.isDigit(ch)) {
+                rules |= CredentialRules.DIGIT;
+            } else if (SPECIAL_CHARACTERS.indexOf(ch) != -1) {
+                rules |= CredentialRules.SPECIAL;
+            } else if (ch == ' ') {
+                space = true;
+            }
+        }
+        if (passwordTo - passwordFrom >= 8) rules |= CredentialRules.LENGTH;
+        if (!space) rules |= CredentialRules.NO_SPACE;
+        if (!containsIgnoreCase(text, passwordFrom, passwordTo, usernameFrom, usernameTo)) {
+            rules |= CredentialRules.NO_USERNAME;
+        }
+        return rules;
+    }
+
+    // password.toLowerCase().contains(username.toLowerCase()) one char at a time (the generated
+    // accounts are ASCII, where that is the same)
+    private static boolean containsIgnoreCase(char[] text, int from, int to, int wordFrom, int wordTo) {
+        int length = wordTo - wordFrom;
+        for (int start = from; start + length <= to; start++) {
+            int k = 0;
+            while (k < length && Character.toLowerCase(text[start + k]) == Character.toLowerCase(text[wordFrom + k])) k++;
+            if (k == length) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,152 @@
+package viva.bench;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generated inputs shaped like real use of each program. A fixed seed keeps every run on the
+ * same data so results can be compared between commits.
+ */
+final class Datasets {
+
+    static final long SEED = 20251113L;
+
+    private static final String[] DAYS = {
+        "Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday", "Sunday"
+    };
+    private static final String LOWER = "abcdefghijklmnopqrstuvwxyz";
+    private static final String UPPER = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    private static final String DIGITS = "0123456789";
+    private static final String SPECIAL = "!@#$%^&*";
+    private static final String[] WORDS = {
+        "kopi", "teh", "nasi", "lemak", "roti", "canai", "sayang", "malaya", "kampus", "perpustakaan"
+    };
+
+    private Datasets() { }
+
+    /** Loan cases (days, book code, borrower code, prevLate); most returns are a few days late. */
+    static final class Loans {
+        final int[] days;
+        final char[] bookCodes;
+        final char[] borrowerCodes;
+        final int[] prevLate;
+
+        Loans(int count) {
+            SplittableRandom random = new SplittableRandom(SEED);
+            String books = "GGGGGMMRCT"; // general books dominate real loans
+            days = new int[count];
+            bookCodes = new char[count];
+            borrowerCodes = new char[count];
+            prevLate = new int[count];
+            for (int i = 0; i < count; i++) {
+                int bucket = random.nextInt(100);
+                days[i] = bucket < 30 ? 0 : bucket < 80 ? random.nextInt(1, 15) : random.nextInt(15, 120);
+                bookCodes[i] = books.charAt(random.nextInt(books.length()));
+                borrowerCodes[i] = random.nextInt(10) < 8 ? 'S' : 'T';
+                prevLate[i] = random.nextInt(10) < 7 ? 0 : random.nextInt(1, 8);
+            }
+        }
+    }
+
+    /** One Kopi-Satu customer per entry, as typed into Q2 (prices, 0, day, hour, member). */
+    static byte[][] kopiSatuOrders(int count) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        byte[][] orders = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            StringBuilder sb = new StringBuilder();
+            int items = random.nextInt(1, 6);
+            for (int item = 0; item < items; item++) {
+                sb.append(random.nextInt(250, 2500) / 100.0).append('\n');
+            }
+            sb.append("0\n").append(DAYS[random.nextInt(DAYS.length)]).append('\n');
+            // Q2 keeps asking for the hour until it reads 23 or more
+            sb.append("23\n");
+            sb.append(random.nextBoolean() ? "Y" : "N").append('\n');
+            orders[i] = sb.toString().getBytes(StandardCharsets.UTF_8);
+        }
+        return orders;
+    }
+
+    /** username/password pairs: mostly valid usernames, passwords from weak to very strong. */
+    static byte[][] credentials(int count) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        byte[][] inputs = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            String username = username(random);
+            String password = password(random, username);
+            inputs[i] = (username + "\n" + password + "\n").getBytes(StandardCharsets.UTF_8);
+        }
+        return inputs;
+    }
+
+    static String username(SplittableRandom random) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(WORDS[random.nextInt(WORDS.length)]);
+        if (random.nextInt(10) < 7) sb.append('_');
+        sb.append(random.nextInt(100));
+        if (random.nextInt(20) == 0) sb.setCharAt(0, Character.toUpperCase(sb.charAt(0))); // invalid
+        return sb.length() > 15 ? sb.substring(0, 15) : sb.toString();
+    }
+
+    static String password(SplittableRandom random, String username) {
+        int kind = random.nextInt(4);
+        StringBuilder sb = new StringBuilder();
+        if (kind == 0) {
+            sb.append(WORDS[random.nextInt(WORDS.length)]).append(random.nextInt(1000));
+        } else if (kind == 1) {
+            sb.append(username).append(random.nextInt(100));
+        } else {
+            int length = random.nextInt(8, kind == 3 ? 40 : 16);
+            String[] classes = {LOWER, UPPER, DIGITS, SPECIAL};
+            for (int c = 0; c < length; c++) {
+                String chars = classes[random.nextInt(classes.length)];
+                sb.append(chars.charAt(random.nextInt(chars.length())));
+            }
+            if (kind == 3 && random.nextBoolean()) sb.insert(length / 2, ' ');
+        }
+        return sb.toString();
+    }
+
+    /** Malaysian IC numbers (YYMMDD-##-####) with valid birth dates. */
+    static String[] icNumbers(int count) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        int[] monthDays = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+        String[] ics = new String[count];
+        for (int i = 0; i < count; i++) {
+            int yy = random.nextInt(100);
+            int mm = random.nextInt(1, 13);
+            int dd = random.nextInt(1, monthDays[mm - 1] + 1);
+            ics[i] = String.format("%02d%02d%02d-%02d-%04d", yy, mm, dd, random.nextInt(1, 60), random.nextInt(10000));
+        }
+        return ics;
+    }
+
+    /** Messages for the encoder: mostly ASCII text with some multi-byte UTF-8. */
+    static byte[] message(int bytes) {
+        SplittableRandom random = new SplittableRandom(SEED);
+        java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream(bytes + 32);
+        while (out.size() < bytes) {
+            String word = WORDS[random.nextInt(WORDS.length)] + (random.nextInt(20) == 0 ? " é " : " ");
+            out.writeBytes(word.getBytes(StandardCharsets.UTF_8));
+        }
+        return java.util.Arrays.copyOf(out.toByteArray(), bytes);
+    }
+
+    /** Egg positions (chest numbers 1-10) of a shuffled vault, as built in Dragon Egg Quest. */
+    static List<List<Integer>> eggLayouts(int count) {
+        java.util.Random random = new java.util.Random(SEED);
+        List<List<Integer>> layouts = new ArrayList<>(count);
+        List<Integer> chests = new ArrayList<>();
+        for (int chest = 1; chest <= 10; chest++) chests.add(chest);
+        for (int i = 0; i < count; i++) {
+            Collections.shuffle(chests, random);
+            List<Integer> eggs = new ArrayList<>(chests.subList(0, 3));
+            Collections.sort(eggs);
+            layouts.add(eggs);
+        }
+        return layouts;
+    }
+}
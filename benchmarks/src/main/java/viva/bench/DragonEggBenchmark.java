@@ -0,0 +1,57 @@
+package viva.bench;
+
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Dragon Egg Quest's giveHints for a random chest pick against a shuffled vault. */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DragonEggBenchmark {
+
+    private static final int LAYOUTS = 1024;
+
+    private static final MethodHandle GIVE_HINTS = ProgramLoader.isolatedStaticMethod(
+            "dragon-egg-quest.jar", "Main", "giveHints",
+            MethodType.methodType(void.class, int.class, List.class));
+
+    private List<List<Integer>> layouts;
+    private int next;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        layouts = Datasets.eggLayouts(LAYOUTS);
+        stdout = ProgramLoader.silenceStdout();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public void giveHints() throws Throwable {
+        int i = next++;
+        GIVE_HINTS.invokeExact(i % 10 + 1, layouts.get(i & (LAYOUTS - 1)));
+    }
+}
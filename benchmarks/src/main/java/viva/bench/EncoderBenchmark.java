@@ -0,0 +1,67 @@
+package viva.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * InvertedBinaryEncoder over messages from a chat line to a small file: encodeBytesWithBitwise
+ * (a List of Integers) and StreamingEncoder writing the decimal text or the raw bytes.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class EncoderBenchmark {
+
+    private static final MethodHandle ENCODE = ProgramLoader.isolatedStaticMethod(
+            "inverted-binary-encoder.jar", "Main", "encodeBytesWithBitwise",
+            MethodType.methodType(List.class, byte[].class));
+
+    private static final MethodHandle STREAM = ProgramLoader.isolatedStaticMethod(
+            "inverted-binary-encoder.jar", "StreamingEncoder", "encode",
+            MethodType.methodType(long.class, InputStream.class, OutputStream.class, boolean.class));
+
+    @Param({"64", "4096", "1048576"})
+    public int messageBytes;
+
+    private byte[] message;
+
+    @Setup
+    public void setUp() {
+        message = Datasets.message(messageBytes);
+    }
+
+    @Benchmark
+    public List<?> encodeBytesWithBitwise() throws Throwable {
+        return (List<?>) ENCODE.invokeExact(message);
+    }
+
+    @Benchmark
+    public long streamDecimal() throws Throwable {
+        return (long) STREAM.invokeExact((InputStream) new ByteArrayInputStream(message), OutputStream.nullOutputStream(), true);
+    }
+
+    @Benchmark
+    public long streamRaw() throws Throwable {
+        return (long) STREAM.invokeExact((InputStream) new ByteArrayInputStream(message), OutputStream.nullOutputStream(), false);
+    }
+}
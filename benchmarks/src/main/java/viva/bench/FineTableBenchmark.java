@@ -0,0 +1,88 @@
+package viva.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The base fine for one loan: LibraryFineCalculator.calculateBaseFine (BigDecimal switch),
+ * CentsFineCalculator.baseFineSen (same switch in long sen) and FineTable.of(bookType).baseFineSen
+ * (one array read). One case in ten is past the table's day limit.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FineTableBenchmark {
+
+    private static final int CASES = 1 << 16;
+
+    private static final Class<?> BOOK_TYPE = ProgramLoader.type("librarySystem$BookType");
+
+    private static final MethodHandle CALCULATE_BASE_FINE = ProgramLoader.staticMethod(
+            "librarySystem$LibraryFineCalculator", "calculateBaseFine",
+            MethodType.methodType(java.math.BigDecimal.class, BOOK_TYPE, int.class))
+            .asType(MethodType.methodType(Object.class, Object.class, int.class));
+
+    private static final MethodHandle CENTS_BASE_FINE = ProgramLoader.staticMethod(
+            "CentsFineCalculator", "baseFineSen", MethodType.methodType(long.class, BOOK_TYPE, int.class))
+            .asType(MethodType.methodType(long.class, Object.class, int.class));
+
+    private static final MethodHandle TABLE_OF = ProgramLoader.staticMethod(
+            "FineTable", "of", MethodType.methodType(ProgramLoader.type("FineTable"), BOOK_TYPE))
+            .asType(MethodType.methodType(Object.class, Object.class));
+
+    private static final MethodHandle TABLE_BASE_FINE = ProgramLoader.virtualMethod(
+            "FineTable", "baseFineSen", MethodType.methodType(long.class, int.class))
+            .asType(MethodType.methodType(long.class, Object.class, int.class));
+
+    private Object[] bookTypes;
+    private int[] days;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        // Mostly short delays, with a tail past FineTable.DEFAULT_DAY_LIMIT (366)
+        SplittableRandom random = new SplittableRandom(Datasets.SEED);
+        Object[] types = ProgramLoader.enumConstants("librarySystem$BookType");
+        bookTypes = new Object[CASES];
+        days = new int[CASES];
+        for (int i = 0; i < CASES; i++) {
+            bookTypes[i] = types[random.nextInt(types.length)];
+            days[i] = random.nextInt(10) == 0 ? random.nextInt(800) : random.nextInt(45);
+        }
+    }
+
+    @Benchmark
+    public Object bigDecimalSwitch() throws Throwable {
+        int i = next++ & (CASES - 1);
+        return (Object) CALCULATE_BASE_FINE.invokeExact(bookTypes[i], days[i]);
+    }
+
+    @Benchmark
+    public long centsSwitch() throws Throwable {
+        int i = next++ & (CASES - 1);
+        return (long) CENTS_BASE_FINE.invokeExact(bookTypes[i], days[i]);
+    }
+
+    @Benchmark
+    public long fineTable() throws Throwable {
+        int i = next++ & (CASES - 1);
+        Object table = (Object) TABLE_OF.invokeExact(bookTypes[i]);
+        return (long) TABLE_BASE_FINE.invokeExact(table, days[i]);
+    }
+}
@@ -0,0 +1,104 @@
+package viva.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decoding a file of 64K IC numbers (one per line), scored per IC: Question4's String steps
+ * for every line, IcDecoder straight from the bytes, and the whole IcBulk summary mode
+ * (reading the stream, splitting lines, counting).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class IcBulkBenchmark {
+
+    private static final int ICS = 1 << 16;
+
+    private static final MethodHandle DECODE = ProgramLoader.staticMethod("IcDecoder", "decode",
+            MethodType.methodType(long.class, byte[].class, int.class, int.class));
+
+    private static final MethodHandle BULK_PROCESS = ProgramLoader.virtualMethod("IcBulk", "process",
+            MethodType.methodType(void.class, InputStream.class))
+            .asType(MethodType.methodType(void.class, Object.class, InputStream.class));
+
+    private String[] lines;
+    private byte[] file;
+    private Object bulk;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        lines = Datasets.icNumbers(ICS);
+        file = (String.join("\n", lines) + "\n").getBytes(StandardCharsets.US_ASCII);
+        Class<?> format = ProgramLoader.type("IcBulk$Format");
+        bulk = ProgramLoader.type("IcBulk").getConstructor(format, OutputStream.class)
+                .newInstance(ProgramLoader.enumConstants("IcBulk$Format")[0], OutputStream.nullOutputStream());
+    }
+
+    // Question4's steps: a String without the dashes (one += per character), then charAt
+    @Benchmark
+    @OperationsPerInvocation(ICS)
+    public int question4Strings() {
+        int winners = 0;
+        for (String ic : lines) {
+            String icDigits = "";
+            for (int i = 0; i < ic.length(); i++) {
+                char c = ic.charAt(i);
+                if (c != '-') icDigits += c;
+            }
+            int mm = (icDigits.charAt(2) - '0') * 10 + (icDigits.charAt(3) - '0');
+            int lastDigit = icDigits.charAt(icDigits.length() - 1) - '0';
+            String gender = lastDigit % 2 == 0 ? "Female" : "Male";
+            String monthType = mm == 1 || mm == 3 || mm == 5 || mm == 7 || mm == 8 || mm == 10 || mm == 12
+                    ? "Long" : "Short";
+            int sum = 0;
+            for (int i = 0; i < icDigits.length(); i++) sum += icDigits.charAt(i) - '0';
+            boolean lucky = gender.equals("Male")
+                    ? sum % 5 == 0 && monthType.equals("Short")
+                    : sum % 7 == 0 && monthType.equals("Long");
+            if (lucky) winners++;
+        }
+        return winners;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ICS)
+    public int icDecoder() throws Throwable {
+        int winners = 0;
+        int from = 0;
+        for (int i = 0; i < file.length; i++) {
+            if (file[i] != '\n') continue;
+            long ic = (long) DECODE.invokeExact(file, from, i);
+            if ((ic >>> 42 & 1) != 0) winners++;
+            from = i + 1;
+        }
+        return winners;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ICS)
+    public Object bulkSummary() throws Throwable {
+        BULK_PROCESS.invokeExact(bulk, (InputStream) new ByteArrayInputStream(file));
+        return bulk;
+    }
+}
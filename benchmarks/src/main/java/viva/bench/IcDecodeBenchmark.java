@@ -0,0 +1,57 @@
+package viva.bench;
+
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** IC decoding (birth date, gender, digit sum, lucky winner) in Question4.main, one IC per operation. */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class IcDecodeBenchmark {
+
+    private static final int ICS = 4096;
+
+    private static final MethodHandle QUESTION4_MAIN = ProgramLoader.staticMethod(
+            "Question4", "main", MethodType.methodType(void.class, String[].class));
+
+    private byte[][] inputs;
+    private int next;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] ics = Datasets.icNumbers(ICS);
+        inputs = new byte[ICS][];
+        for (int i = 0; i < ICS; i++) inputs[i] = (ics[i] + "\n").getBytes(StandardCharsets.US_ASCII);
+        stdout = ProgramLoader.silenceStdout();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public void decodeOneIc() throws Throwable {
+        ProgramLoader.runMain(QUESTION4_MAIN, inputs[next++ & (ICS - 1)]);
+    }
+}
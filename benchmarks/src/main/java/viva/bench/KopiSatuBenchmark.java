@@ -0,0 +1,57 @@
+package viva.bench;
+
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One Kopi-Satu customer billed by Q2.main (prompts, KopiSatuEngine and the receipt): the
+ * whole program runs per operation with the order as standard input and the receipt discarded.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class KopiSatuBenchmark {
+
+    private static final int ORDERS = 4096;
+
+    private static final MethodHandle Q2_MAIN = ProgramLoader.staticMethod(
+            "Q2", "main", MethodType.methodType(void.class, String[].class));
+
+    private byte[][] orders;
+    private int next;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        orders = Datasets.kopiSatuOrders(ORDERS);
+        stdout = ProgramLoader.silenceStdout();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public void billOneCustomer() throws Throwable {
+        ProgramLoader.runMain(Q2_MAIN, orders[next++ & (ORDERS - 1)]);
+    }
+}
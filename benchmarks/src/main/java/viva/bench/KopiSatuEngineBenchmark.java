@@ -0,0 +1,85 @@
+package viva.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Q2 billing rules: the double arithmetic Q2 used before against KopiSatuEngine in long sen. */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class KopiSatuEngineBenchmark {
+
+    private static final int ORDERS = 1 << 16;
+
+    private static final MethodHandle BILL_SEN = ProgramLoader.staticMethod("KopiSatuEngine", "bill",
+            MethodType.methodType(void.class, long.class, int.class, int.class, boolean.class,
+                    ProgramLoader.type("KopiSatuEngine$Bill")))
+            .asType(MethodType.methodType(void.class, long.class, int.class, int.class, boolean.class, Object.class));
+
+    private static final MethodHandle BILL_DOUBLE = ProgramLoader.staticMethod("KopiSatuEngine", "billDouble",
+            MethodType.methodType(void.class, double.class, int.class, int.class, boolean.class,
+                    ProgramLoader.type("KopiSatuEngine$DoubleBill")))
+            .asType(MethodType.methodType(void.class, double.class, int.class, int.class, boolean.class, Object.class));
+
+    private long[] subtotalSen;
+    private double[] subtotal;
+    private int[] day;
+    private int[] hour;
+    private boolean[] member;
+    private Object bill;
+    private Object doubleBill;
+    private int next;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        SplittableRandom random = new SplittableRandom(Datasets.SEED);
+        subtotalSen = new long[ORDERS];
+        subtotal = new double[ORDERS];
+        day = new int[ORDERS];
+        hour = new int[ORDERS];
+        member = new boolean[ORDERS];
+        for (int i = 0; i < ORDERS; i++) {
+            int items = random.nextInt(1, 6);
+            for (int item = 0; item < items; item++) {
+                int sen = random.nextInt(250, 2500);
+                subtotalSen[i] += sen;
+                subtotal[i] += sen / 100.0;
+            }
+            day[i] = random.nextInt(7);
+            hour[i] = random.nextInt(7, 23);
+            member[i] = random.nextBoolean();
+        }
+        bill = ProgramLoader.type("KopiSatuEngine$Bill").getConstructor().newInstance();
+        doubleBill = ProgramLoader.type("KopiSatuEngine$DoubleBill").getConstructor().newInstance();
+    }
+
+    @Benchmark
+    public Object doubleArithmetic() throws Throwable {
+        int i = next++ & (ORDERS - 1);
+        BILL_DOUBLE.invokeExact(subtotal[i], day[i], hour[i], member[i], doubleBill);
+        return doubleBill;
+    }
+
+    @Benchmark
+    public Object fixedPointSen() throws Throwable {
+        int i = next++ & (ORDERS - 1);
+        BILL_SEN.invokeExact(subtotalSen[i], day[i], hour[i], member[i], bill);
+        return bill;
+    }
+}
@@ -0,0 +1,188 @@
+package viva.bench;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One Kopi-Satu receipt: the println/printf calls Q2 used to make against
+ * KopiSatuReceiptRenderer. Before measuring, the setup renders every receipt both ways and
+ * fails unless the bytes are the same (length and CRC32).
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class KopiSatuReceiptBenchmark {
+
+    private static final int RECEIPTS = 1 << 12;
+
+    private static final Class<?> DOUBLE_BILL = ProgramLoader.type("KopiSatuEngine$DoubleBill");
+
+    private static final MethodHandle BILL_DOUBLE = ProgramLoader.staticMethod("KopiSatuEngine", "billDouble",
+            MethodType.methodType(void.class, double.class, int.class, int.class, boolean.class, DOUBLE_BILL))
+            .asType(MethodType.methodType(void.class, double.class, int.class, int.class, boolean.class, Object.class));
+
+    private static final MethodHandle RENDER = ProgramLoader.virtualMethod("KopiSatuReceiptRenderer", "render",
+            MethodType.methodType(void.class, DOUBLE_BILL))
+            .asType(MethodType.methodType(void.class, Object.class, Object.class));
+
+    private static final MethodHandle FLUSH_IF_FULL = ProgramLoader.virtualMethod("KopiSatuReceiptRenderer",
+            "flushIfFull", MethodType.methodType(void.class, OutputStream.class))
+            .asType(MethodType.methodType(void.class, Object.class, OutputStream.class));
+
+    private static final MethodHandle WRITE_TO = ProgramLoader.virtualMethod("KopiSatuReceiptRenderer",
+            "writeTo", MethodType.methodType(void.class, OutputStream.class))
+            .asType(MethodType.methodType(void.class, Object.class, OutputStream.class));
+
+    private Object[] bills;
+    private Receipt[] receipts;
+    private PrintStream printfOut;
+    private Object renderer;
+    private int next;
+
+    @Setup
+    public void setUp() throws Throwable {
+        // Orders of 1-8 items from RM 1.00 to RM 40.00, billed with the Q2 double arithmetic
+        SplittableRandom random = new SplittableRandom(Datasets.SEED);
+        bills = new Object[RECEIPTS];
+        receipts = new Receipt[RECEIPTS];
+        for (int i = 0; i < RECEIPTS; i++) {
+            double total = 0;
+            int items = random.nextInt(1, 9);
+            for (int item = 0; item < items; item++) total += random.nextInt(100, 4001) / 100.0;
+            bills[i] = DOUBLE_BILL.getConstructor().newInstance();
+            BILL_DOUBLE.invokeExact(total, random.nextInt(7), random.nextInt(7, 23), random.nextBoolean(), bills[i]);
+            receipts[i] = new Receipt(bills[i]);
+        }
+        printfOut = new PrintStream(new BufferedOutputStream(OutputStream.nullOutputStream(), 1 << 16), false);
+        renderer = ProgramLoader.type("KopiSatuReceiptRenderer").getConstructor().newInstance();
+
+        ByteArrayOutputStream printfBytes = new ByteArrayOutputStream();
+        PrintStream printStream = new PrintStream(printfBytes, false);
+        for (Receipt receipt : receipts) printfReceipt(printStream, receipt);
+        printStream.flush();
+        ByteArrayOutputStream rendererBytes = new ByteArrayOutputStream();
+        for (Object bill : bills) {
+            RENDER.invokeExact(renderer, bill);
+            FLUSH_IF_FULL.invokeExact(renderer, (OutputStream) rendererBytes);
+        }
+        WRITE_TO.invokeExact(renderer, (OutputStream) rendererBytes);
+        long printfCrc = crc(printfBytes.toByteArray());
+        long rendererCrc = crc(rendererBytes.toByteArray());
+        if (printfBytes.size() != rendererBytes.size() || printfCrc != rendererCrc) {
+            throw new IllegalStateException(String.format(
+                    "Receipts differ: printf %d bytes (CRC32 %08x), renderer %d bytes (CRC32 %08x)",
+                    printfBytes.size(), printfCrc, rendererBytes.size(), rendererCrc));
+        }
+    }
+
+    @Benchmark
+    public void printf() {
+        printfReceipt(printfOut, receipts[next++ & (RECEIPTS - 1)]);
+    }
+
+    @Benchmark
+    public void renderer() throws Throwable {
+        RENDER.invokeExact(renderer, bills[next++ & (RECEIPTS - 1)]);
+        FLUSH_IF_FULL.invokeExact(renderer, OutputStream.nullOutputStream());
+    }
+
+    private static long crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+    // The receipt part Q2.main had before KopiSatuReceiptRenderer, printf for printf
+    private static void printfReceipt(PrintStream out, Receipt b) {
+        out.println("------ Kopi-Satu Receipt ------------");
+        out.printf("Subtotal:%22s", "RM ");
+        out.printf("%.2f\n", b.subtotal);
+        if (b.taxPercent == 6) {
+            out.printf("Service Tax (6%%)%15s", "RM ");
+        } else if (b.taxPercent == 8) {
+            out.printf("Service Tax (8%%)%15s", "RM ");
+        } else {
+            out.printf("Service Tax (10%%)%15s", "RM ");
+        }
+        out.printf("%.2f\n", b.tax);
+        out.printf("Total before discount:%9s", "RM ");
+        out.printf("%.2f\n", b.totalBeforeDiscount);
+        if (b.weekendComboApplied) {
+            out.printf("Weekend Combo Discount (5%%):RM ");
+            out.printf("%.2f\n", b.weekendCombo);
+        }
+        if (b.studentApplied) {
+            out.printf("Student Discount (10%%):%8s", "RM ");
+            out.printf("%.2f\n", b.student);
+        }
+        if (b.happyHourApplied) {
+            out.printf("Happy Hour Discount (5%%):%6s", "RM ");
+            out.printf("%.2f\n", b.happyHour);
+        }
+        out.println("-------------------------------------");
+        out.printf("Total Payable: %16s", "RM ");
+        out.printf("%.2f\n", b.payable);
+        if (b.member) {
+            out.printf("Loyalty Cashback (2%%):%9s", "RM ");
+            out.printf("%.2f\n", b.cashback);
+        }
+        out.println("-------------------------------------");
+        out.printf("Final Amount to Collect: %6s", "RM ");
+        out.printf("%.2f\n", b.payable);
+    }
+
+    /** The fields of a KopiSatuEngine.DoubleBill, which this package cannot name. */
+    private static final class Receipt {
+        final double subtotal;
+        final int taxPercent;
+        final double tax;
+        final double totalBeforeDiscount;
+        final double weekendCombo;
+        final double student;
+        final double happyHour;
+        final boolean weekendComboApplied;
+        final boolean studentApplied;
+        final boolean happyHourApplied;
+        final double payable;
+        final boolean member;
+        final double cashback;
+
+        Receipt(Object bill) throws ReflectiveOperationException {
+            Class<?> type = bill.getClass();
+            subtotal = type.getField("subtotal").getDouble(bill);
+            taxPercent = type.getField("taxPercent").getInt(bill);
+            tax = type.getField("tax").getDouble(bill);
+            totalBeforeDiscount = type.getField("totalBeforeDiscount").getDouble(bill);
+            weekendCombo = type.getField("weekendCombo").getDouble(bill);
+            student = type.getField("student").getDouble(bill);
+            happyHour = type.getField("happyHour").getDouble(bill);
+            weekendComboApplied = type.getField("weekendComboApplied").getBoolean(bill);
+            studentApplied = type.getField("studentApplied").getBoolean(bill);
+            happyHourApplied = type.getField("happyHourApplied").getBoolean(bill);
+            payable = type.getField("payable").getDouble(bill);
+            member = type.getField("member").getBoolean(bill);
+            cashback = type.getField("cashback").getDouble(bill);
+        }
+    }
+}
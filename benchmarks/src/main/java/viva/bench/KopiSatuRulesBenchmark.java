@@ -0,0 +1,86 @@
+package viva.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Choosing the Q2 discounts for (day name, hour): the equalsIgnoreCase chain of Q2 against
+ * KopiSatuOrderReader.parseDay plus one KopiSatuRules lookup. Run with -prof gc to see
+ * that the index path allocates nothing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class KopiSatuRulesBenchmark {
+
+    private static final int ORDERS = 1 << 12;
+    private static final int WEEKEND_COMBO = 1;
+    private static final int STUDENT = 2;
+    private static final int HAPPY_HOUR = 4;
+
+    private static final MethodHandle PARSE_DAY = ProgramLoader.staticMethod("KopiSatuOrderReader", "parseDay",
+            MethodType.methodType(int.class, CharSequence.class));
+
+    private static final MethodHandle DISCOUNTS = ProgramLoader.virtualMethod("KopiSatuRules", "discounts",
+            MethodType.methodType(int.class, int.class, int.class))
+            .asType(MethodType.methodType(int.class, Object.class, int.class, int.class));
+
+    private String[] dayNames;
+    private int[] hours;
+    private Object standardRules;
+    private int next;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        String[] days = { "Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday", "Sunday" };
+        SplittableRandom random = new SplittableRandom(Datasets.SEED);
+        dayNames = new String[ORDERS];
+        hours = new int[ORDERS];
+        for (int i = 0; i < ORDERS; i++) {
+            String day = days[random.nextInt(7)];
+            int style = random.nextInt(3);
+            dayNames[i] = style == 0 ? day : style == 1 ? day.toLowerCase() : day.toUpperCase();
+            hours[i] = random.nextInt(7, 23);
+        }
+        standardRules = ProgramLoader.type("KopiSatuRules").getField("STANDARD").get(null);
+    }
+
+    // What Q2 did: validate the day with seven comparisons, then compare again for the discounts
+    @Benchmark
+    public int equalsIgnoreCaseChain() {
+        int i = next++ & (ORDERS - 1);
+        String day = dayNames[i];
+        int hour = hours[i];
+        if (!(day.equalsIgnoreCase("Monday") || day.equalsIgnoreCase("Tuesday") || day.equalsIgnoreCase("Wednesday")
+                || day.equalsIgnoreCase("Thursday") || day.equalsIgnoreCase("Friday")
+                || day.equalsIgnoreCase("Saturday") || day.equalsIgnoreCase("Sunday"))) {
+            return -1;
+        }
+        if (day.equalsIgnoreCase("saturday") || day.equalsIgnoreCase("sunday")) return WEEKEND_COMBO;
+        return 15 <= hour && hour < 17 ? STUDENT | HAPPY_HOUR : STUDENT;
+    }
+
+    @Benchmark
+    public int ruleIndex() throws Throwable {
+        int i = next++ & (ORDERS - 1);
+        int day = (int) PARSE_DAY.invokeExact((CharSequence) dayNames[i]);
+        if (day < 0) return -1;
+        return (int) DISCOUNTS.invokeExact(standardRules, day, hours[i]);
+    }
+}
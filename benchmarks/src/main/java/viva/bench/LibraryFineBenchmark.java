@@ -0,0 +1,110 @@
+package viva.bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One loan case through LibraryFineCalculator (BigDecimal), CentsFineCalculator (the same switch
+ * in long sen) and the compiled FinePlan.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class LibraryFineBenchmark {
+
+    private static final int CASES = 1 << 16;
+
+    // librarySystem is a default-package class; see ProgramLoader
+    private static final MethodHandle CALCULATE_FINAL_FINE = ProgramLoader.staticMethod(
+            "librarySystem$LibraryFineCalculator", "calculateFinalFine",
+            MethodType.methodType(java.math.BigDecimal.class,
+                    ProgramLoader.type("librarySystem$BookType"), ProgramLoader.type("librarySystem$Borrower"),
+                    int.class, int.class))
+            .asType(MethodType.methodType(Object.class, Object.class, Object.class, int.class, int.class));
+
+    private static final MethodHandle CENTS_FINAL_FINE = ProgramLoader.staticMethod(
+            "CentsFineCalculator", "calculateFinalFineSen",
+            MethodType.methodType(long.class,
+                    ProgramLoader.type("librarySystem$BookType"), ProgramLoader.type("librarySystem$Borrower"),
+                    int.class, int.class))
+            .asType(MethodType.methodType(long.class, Object.class, Object.class, int.class, int.class));
+
+    private static final MethodHandle CURRENT_PLAN = ProgramLoader.staticMethod(
+            "FinePolicy", "current", MethodType.methodType(ProgramLoader.type("FinePlan")));
+
+    private static final MethodHandle PLAN_CALCULATE;
+    static {
+        try {
+            PLAN_CALCULATE = java.lang.invoke.MethodHandles.publicLookup().findVirtual(
+                    ProgramLoader.type("FinePlan"), "calculateFinalFineSen",
+                    MethodType.methodType(long.class, ProgramLoader.type("librarySystem$BookType"),
+                            ProgramLoader.type("librarySystem$Borrower"), int.class, int.class))
+                    .asType(MethodType.methodType(long.class, Object.class, Object.class, Object.class, int.class, int.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Object[] bookTypes;
+    private Object[] borrowers;
+    private int[] days;
+    private int[] prevLate;
+    private Object plan;
+    private int next;
+
+    @Setup
+    public void setUp() throws Throwable {
+        Datasets.Loans loans = new Datasets.Loans(CASES);
+        Object[] bookConstants = ProgramLoader.enumConstants("librarySystem$BookType");
+        Object[] borrowerConstants = ProgramLoader.enumConstants("librarySystem$Borrower");
+        bookTypes = new Object[CASES];
+        borrowers = new Object[CASES];
+        for (int i = 0; i < CASES; i++) {
+            bookTypes[i] = byCode(bookConstants, loans.bookCodes[i]);
+            borrowers[i] = byCode(borrowerConstants, loans.borrowerCodes[i]);
+        }
+        days = loans.days;
+        prevLate = loans.prevLate;
+        plan = CURRENT_PLAN.invoke();
+    }
+
+    @Benchmark
+    public Object bigDecimalCalculator() throws Throwable {
+        int i = next++ & (CASES - 1);
+        return (Object) CALCULATE_FINAL_FINE.invokeExact(bookTypes[i], borrowers[i], days[i], prevLate[i]);
+    }
+
+    @Benchmark
+    public long centsCalculator() throws Throwable {
+        int i = next++ & (CASES - 1);
+        return (long) CENTS_FINAL_FINE.invokeExact(bookTypes[i], borrowers[i], days[i], prevLate[i]);
+    }
+
+    @Benchmark
+    public long compiledPlan() throws Throwable {
+        int i = next++ & (CASES - 1);
+        return (long) PLAN_CALCULATE.invokeExact(plan, bookTypes[i], borrowers[i], days[i], prevLate[i]);
+    }
+
+    private static Object byCode(Object[] constants, char code) throws Throwable {
+        for (Object constant : constants) {
+            if ((char) constant.getClass().getMethod("getCode").invoke(constant) == code) return constant;
+        }
+        throw new IllegalArgumentException("No constant with code " + code);
+    }
+}
@@ -0,0 +1,127 @@
+package viva.bench;
+
+import java.io.ByteArrayInputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing a loan file of 4K records and looking up the book and borrower codes, scored per
+ * record: the old main loop (Scanner tokens, trim().toUpperCase().charAt(0), fromCode) and
+ * LoanRecordReader with BookType.lookup / Borrower.lookup on the raw bytes. The GC profiler's
+ * gc.alloc.rate.norm gives the bytes per record; the byte path is expected to allocate nothing.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class LoanLookupBenchmark {
+
+    private static final int RECORDS = 1 << 12;
+
+    private static final MethodHandle BOOK_FROM_CODE = ProgramLoader.staticMethod(
+            "librarySystem$BookType", "fromCode", MethodType.methodType(Optional.class, char.class));
+
+    private static final MethodHandle BORROWER_FROM_CODE = ProgramLoader.staticMethod(
+            "librarySystem$Borrower", "fromCode", MethodType.methodType(Optional.class, char.class));
+
+    private static final MethodHandle BOOK_LOOKUP = ProgramLoader.staticMethod(
+            "librarySystem$BookType", "lookup",
+            MethodType.methodType(ProgramLoader.type("librarySystem$BookType"), int.class))
+            .asType(MethodType.methodType(Object.class, int.class));
+
+    private static final MethodHandle BORROWER_LOOKUP = ProgramLoader.staticMethod(
+            "librarySystem$Borrower", "lookup",
+            MethodType.methodType(ProgramLoader.type("librarySystem$Borrower"), int.class))
+            .asType(MethodType.methodType(Object.class, int.class));
+
+    private static final MethodHandle NEXT_TOKEN = readerMethod("nextToken", boolean.class);
+    private static final MethodHandle NEXT_INT = readerMethod("nextInt", boolean.class);
+    private static final MethodHandle INT_VALUE = readerMethod("intValue", int.class);
+    private static final MethodHandle FIRST_BYTE = readerMethod("firstByte", int.class);
+
+    private byte[] file;
+    private ByteBuffer mapped;
+    private Object reader;
+
+    @Setup
+    public void setUp() throws ReflectiveOperationException {
+        // Mixed-case codes as typed at the desk, mostly short delays
+        SplittableRandom random = new SplittableRandom(Datasets.SEED);
+        String bookCodes = "RGMCTgmc";
+        String borrowerCodes = "STst";
+        StringBuilder sb = new StringBuilder(RECORDS * 12).append(RECORDS).append('\n');
+        for (int i = 0; i < RECORDS; i++) {
+            sb.append(random.nextInt(60)).append(' ')
+              .append(bookCodes.charAt(random.nextInt(bookCodes.length()))).append(' ')
+              .append(borrowerCodes.charAt(random.nextInt(borrowerCodes.length()))).append(' ')
+              .append(random.nextInt(6)).append('\n');
+        }
+        file = sb.toString().getBytes(StandardCharsets.US_ASCII);
+        mapped = ByteBuffer.wrap(file);
+        // the reader is created once, like in a batch run
+        reader = ProgramLoader.type("LoanRecordReader").getConstructor(ByteBuffer.class).newInstance(mapped);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public long scannerFromCode() throws Throwable {
+        Scanner scanner = new Scanner(new ByteArrayInputStream(file));
+        long sum = scanner.nextInt();
+        for (int i = 0; i < RECORDS; i++) {
+            int days = scanner.nextInt();
+            String bookToken = scanner.next();
+            String borrowerToken = scanner.next();
+            int prevLate = scanner.nextInt();
+            Optional<?> book = (Optional<?>) BOOK_FROM_CODE.invokeExact(bookToken.trim().toUpperCase().charAt(0));
+            Optional<?> borrower = (Optional<?>) BORROWER_FROM_CODE.invokeExact(borrowerToken.trim().toUpperCase().charAt(0));
+            sum += days + prevLate + ((Enum<?>) book.get()).ordinal() + ((Enum<?>) borrower.get()).ordinal();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public long readerLookup() throws Throwable {
+        mapped.clear();
+        boolean ok = (boolean) NEXT_INT.invokeExact(reader);
+        long sum = (int) INT_VALUE.invokeExact(reader);
+        for (int i = 0; i < RECORDS; i++) {
+            ok &= (boolean) NEXT_INT.invokeExact(reader);
+            int days = (int) INT_VALUE.invokeExact(reader);
+            ok &= (boolean) NEXT_TOKEN.invokeExact(reader);
+            Object book = (Object) BOOK_LOOKUP.invokeExact((int) FIRST_BYTE.invokeExact(reader));
+            ok &= (boolean) NEXT_TOKEN.invokeExact(reader);
+            Object borrower = (Object) BORROWER_LOOKUP.invokeExact((int) FIRST_BYTE.invokeExact(reader));
+            ok &= (boolean) NEXT_INT.invokeExact(reader);
+            int prevLate = (int) INT_VALUE.invokeExact(reader);
+            sum += days + prevLate + ((Enum<?>) book).ordinal() + ((Enum<?>) borrower).ordinal();
+        }
+        if (!ok) throw new IllegalStateException("Loan file ended early");
+        return sum;
+    }
+
+    private static MethodHandle readerMethod(String name, Class<?> returnType) {
+        return ProgramLoader.virtualMethod("LoanRecordReader", name, MethodType.methodType(returnType))
+                .asType(MethodType.methodType(returnType, Object.class));
+    }
+}
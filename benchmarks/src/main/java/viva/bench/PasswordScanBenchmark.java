@@ -0,0 +1,105 @@
+package viva.bench;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import security.um.CredentialClassifier;
+import security.um.CredentialRules;
+
+/**
+ * The character-class rules of a password (uppercase, lowercase, digit, special, length,
+ * no spaces) from passwords of 16 to 1024 characters: Main's if/else chain per character,
+ * the CredentialClassifier table one byte at a time, and CredentialClassifier.passwordClasses,
+ * which uses VectorPasswordScanner (16-64 bytes per step) from one full vector up. The fork
+ * adds the jdk.incubator.vector module; the scanner itself is only there when the build ran
+ * with -Pvector, otherwise passwordClasses measures the table too.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class PasswordScanBenchmark {
+
+    private static final int PASSWORDS = 256;
+    private static final String CHARACTERS =
+            "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789!@#$%^&* -_.";
+
+    @Param({"16", "64", "256", "1024"})
+    public int length;
+
+    private String[] passwords;
+    private byte[][] bytes;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(Datasets.SEED);
+        passwords = new String[PASSWORDS];
+        bytes = new byte[PASSWORDS][];
+        for (int i = 0; i < PASSWORDS; i++) {
+            StringBuilder sb = new StringBuilder(length);
+            for (int c = 0; c < length; c++) sb.append(CHARACTERS.charAt(random.nextInt(CHARACTERS.length())));
+            passwords[i] = sb.toString();
+            bytes[i] = passwords[i].getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    // Main's loop: one branch per class for every character
+    @Benchmark
+    public int mainBranches() {
+        String password = passwords[next++ & (PASSWORDS - 1)];
+        boolean haveUppercase = false;
+        boolean haveLowercase = false;
+        boolean haveDigit = false;
+        boolean haveSpecialChar = false;
+        for (int i = 0; i < password.length(); i++) {
+            char ch = password.charAt(i);
+            if (Character.isUpperCase(ch)) {
+                haveUppercase = true;
+            } else if (Character.isLowerCase(ch)) {
+                haveLowercase = true;
+            } else if (Character.isDigit(ch)) {
+                haveDigit = true;
+            } else if (CredentialRules.SPECIAL_CHARACTERS.indexOf(ch) != -1) {
+                haveSpecialChar = true;
+            }
+        }
+        int rules = 0;
+        if (haveUppercase) rules |= CredentialRules.UPPERCASE;
+        if (haveLowercase) rules |= CredentialRules.LOWERCASE;
+        if (haveDigit) rules |= CredentialRules.DIGIT;
+        if (haveSpecialChar) rules |= CredentialRules.SPECIAL;
+        if (password.length() >= 8) rules |= CredentialRules.LENGTH;
+        if (!password.contains(" ")) rules |= CredentialRules.NO_SPACE;
+        return rules;
+    }
+
+    @Benchmark
+    public int scalarTable() {
+        byte[] password = bytes[next++ & (PASSWORDS - 1)];
+        return CredentialClassifier.classRules(
+                CredentialClassifier.scalarPasswordClasses(password, 0, password.length), password.length);
+    }
+
+    @Benchmark
+    public int passwordClasses() {
+        byte[] password = bytes[next++ & (PASSWORDS - 1)];
+        return CredentialClassifier.classRules(
+                CredentialClassifier.passwordClasses(password, 0, password.length), password.length);
+    }
+}
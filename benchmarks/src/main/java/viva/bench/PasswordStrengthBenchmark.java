@@ -0,0 +1,62 @@
+package viva.bench;
+
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Username validation and 7-rule password scoring in security.um.Main, one account per operation. */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class PasswordStrengthBenchmark {
+
+    private static final int ACCOUNTS = 4096;
+
+    private static final MethodHandle SECURITY_MAIN;
+    static {
+        try {
+            SECURITY_MAIN = MethodHandles.publicLookup().findStatic(security.um.Main.class, "main",
+                    MethodType.methodType(void.class, String[].class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private byte[][] credentials;
+    private int next;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        credentials = Datasets.credentials(ACCOUNTS);
+        stdout = ProgramLoader.silenceStdout();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(stdout);
+    }
+
+    @Benchmark
+    public void checkOneAccount() throws Throwable {
+        ProgramLoader.runMain(SECURITY_MAIN, credentials[next++ & (ACCOUNTS - 1)]);
+    }
+}
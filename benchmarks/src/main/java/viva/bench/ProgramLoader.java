@@ -0,0 +1,107 @@
+package viva.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Access to the Viva programs from the benchmarks.
+ *
+ * <p>Most programs are default-package classes, which named-package code (and the code JMH
+ * generates) cannot reference, so their methods are looked up by name as MethodHandles.
+ * InvertedBinaryEncoder and Dragon Egg Quest both declare a default-package {@code Main};
+ * their jars are copied to {@code target/programs} by the build and each one gets its own
+ * class loader.
+ */
+final class ProgramLoader {
+
+    private static final PrintStream NULL_OUT = new PrintStream(OutputStream.nullOutputStream());
+
+    private ProgramLoader() { }
+
+    /** Static method of a class on the benchmark classpath, e.g. "librarySystem$LibraryFineCalculator". */
+    static MethodHandle staticMethod(String className, String name, MethodType type) {
+        try {
+            Class<?> owner = Class.forName(className);
+            return MethodHandles.publicLookup().findStatic(owner, name, type);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot find " + className + "." + name, e);
+        }
+    }
+
+    /** Instance method of a class on the benchmark classpath; the receiver is the first argument. */
+    static MethodHandle virtualMethod(String className, String name, MethodType type) {
+        try {
+            Class<?> owner = Class.forName(className);
+            return MethodHandles.publicLookup().findVirtual(owner, name, type);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot find " + className + "." + name, e);
+        }
+    }
+
+    /** Same, but for a program jar in target/programs loaded in its own class loader. */
+    static MethodHandle isolatedStaticMethod(String jarName, String className, String name, MethodType type) {
+        try {
+            URL jar = programsDirectory().resolve(jarName).toUri().toURL();
+            ClassLoader loader = new URLClassLoader(new URL[] {jar}, ProgramLoader.class.getClassLoader());
+            Class<?> owner = Class.forName(className, true, loader);
+            return MethodHandles.publicLookup().findStatic(owner, name, type);
+        } catch (ReflectiveOperationException | java.io.IOException e) {
+            throw new IllegalStateException("Cannot load " + className + " from " + jarName, e);
+        }
+    }
+
+    static Class<?> type(String className) {
+        try {
+            return Class.forName(className);
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static Object[] enumConstants(String className) {
+        return type(className).getEnumConstants();
+    }
+
+    /** Runs a console program's main with the given bytes as standard input. */
+    static void runMain(MethodHandle main, byte[] stdin) throws Throwable {
+        InputStream previous = System.in;
+        System.setIn(new ByteArrayInputStream(stdin));
+        try {
+            main.invokeExact(new String[0]);
+        } finally {
+            System.setIn(previous);
+        }
+    }
+
+    /** Console output of the programs is thrown away while a benchmark runs. */
+    static PrintStream silenceStdout() {
+        PrintStream previous = System.out;
+        System.setOut(NULL_OUT);
+        return previous;
+    }
+
+    /** -Dviva.programs=dir, otherwise "programs" next to the benchmarks jar (or target/classes). */
+    private static Path programsDirectory() throws java.io.IOException {
+        String configured = System.getProperty("viva.programs");
+        if (configured != null) return Path.of(configured);
+        try {
+            Path location = Path.of(ProgramLoader.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            Path programs = location.getParent().resolve("programs");
+            if (!Files.isDirectory(programs)) {
+                throw new java.io.IOException("Program jars not found in " + programs + "; run mvn package first");
+            }
+            return programs;
+        } catch (java.net.URISyntaxException e) {
+            throw new java.io.IOException(e);
+        }
+    }
+}
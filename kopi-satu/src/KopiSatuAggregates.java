@@ -0,0 +1,168 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * End-of-day totals for all tills: revenue, service tax per tier, discounts per type and
+ * cashback owed, updated by many billing threads at once.
+ *
+ * The totals are split into stripes; a thread always adds into the stripe picked by its
+ * thread ID, so with enough stripes two tills hardly ever touch the same one. Each stripe
+ * is a small seqlock: the writer makes the sequence odd, adds the whole order, makes it
+ * even again. A snapshot reads each stripe and retries that stripe if the sequence moved,
+ * so it never blocks a till, and every order is counted completely or not at all. That
+ * keeps the receipt arithmetic true for the day totals in any snapshot:
+ *
+ *     subtotal + tax - discounts = revenue
+ */
+public final class KopiSatuAggregates {
+
+    private static final VarHandle SEQUENCE;
+    static {
+        try {
+            SEQUENCE = MethodHandles.lookup().findVarHandle(Stripe.class, "sequence", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final Stripe[] stripes;
+    private final int mask;
+
+    public KopiSatuAggregates() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public KopiSatuAggregates(int minStripes) {
+        int count = Integer.highestOneBit(Math.max(8, minStripes) - 1) << 1;
+        stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) stripes[i] = new Stripe();
+        mask = count - 1;
+    }
+
+    // One stripe of the totals, padded so two stripes do not share a cache line
+    static final class Stripe {
+        long p01, p02, p03, p04, p05, p06, p07;
+        volatile long sequence;
+        long orders;
+        long subtotalSen;
+        long tax6Sen;
+        long tax8Sen;
+        long tax10Sen;
+        long studentSen;
+        long happyHourSen;
+        long weekendComboSen;
+        long revenueSen;
+        long cashbackSen;
+        long p11, p12, p13, p14, p15, p16, p17;
+    }
+
+    /** Adds one billed order; safe from any number of threads */
+    public void add(KopiSatuEngine.Bill bill) {
+        Stripe s = stripes[stripeIndex()];
+        long sequence;
+        //only two threads on the same stripe ever wait here, and only for one order's adds
+        do {
+            sequence = s.sequence;
+        } while ((sequence & 1) != 0 || !SEQUENCE.compareAndSet(s, sequence, sequence + 1));
+
+        s.orders++;
+        s.subtotalSen += bill.subtotalSen;
+        if (bill.taxPercent == 6) {
+            s.tax6Sen += bill.taxSen;
+        } else if (bill.taxPercent == 8) {
+            s.tax8Sen += bill.taxSen;
+        } else {
+            s.tax10Sen += bill.taxSen;
+        }
+        s.studentSen += bill.studentSen;
+        s.happyHourSen += bill.happyHourSen;
+        s.weekendComboSen += bill.weekendComboSen;
+        s.revenueSen += bill.payableSen;
+        s.cashbackSen += bill.cashbackSen;
+
+        SEQUENCE.setRelease(s, sequence + 2);
+    }
+
+    private int stripeIndex() {
+        long id = Thread.currentThread().getId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+    }
+
+    /** Totals at one moment; never blocks the billing threads */
+    public Snapshot snapshot() {
+        Snapshot total = new Snapshot();
+        for (Stripe s : stripes) {
+            while (true) {
+                long before = (long) SEQUENCE.getAcquire(s);
+                if ((before & 1) != 0) {
+                    Thread.onSpinWait();
+                    continue;
+                }
+                long orders = s.orders;
+                long subtotal = s.subtotalSen;
+                long tax6 = s.tax6Sen;
+                long tax8 = s.tax8Sen;
+                long tax10 = s.tax10Sen;
+                long student = s.studentSen;
+                long happyHour = s.happyHourSen;
+                long weekendCombo = s.weekendComboSen;
+                long revenue = s.revenueSen;
+                long cashback = s.cashbackSen;
+                VarHandle.loadLoadFence();
+                if ((long) SEQUENCE.getAcquire(s) != before) continue; // a till added meanwhile: read again
+
+                total.orders += orders;
+                total.subtotalSen += subtotal;
+                total.tax6Sen += tax6;
+                total.tax8Sen += tax8;
+                total.tax10Sen += tax10;
+                total.studentSen += student;
+                total.happyHourSen += happyHour;
+                total.weekendComboSen += weekendCombo;
+                total.revenueSen += revenue;
+                total.cashbackSen += cashback;
+                break;
+            }
+        }
+        total.takenAtMillis = System.currentTimeMillis();
+        return total;
+    }
+
+    public static final class Snapshot {
+        public long takenAtMillis;
+        public long orders;
+        public long subtotalSen;
+        public long tax6Sen;
+        public long tax8Sen;
+        public long tax10Sen;
+        public long studentSen;
+        public long happyHourSen;
+        public long weekendComboSen;
+        public long revenueSen;
+        public long cashbackSen;
+
+        public long taxSen() { return tax6Sen + tax8Sen + tax10Sen; }
+
+        public long discountSen() { return studentSen + happyHourSen + weekendComboSen; }
+
+        /** The receipt arithmetic holds for the totals (true for every snapshot) */
+        public boolean addsUp() {
+            return subtotalSen + taxSen() - discountSen() == revenueSen;
+        }
+
+        public String toJson() {
+            return "{\"takenAt\":" + takenAtMillis
+                    + ",\"orders\":" + orders
+                    + ",\"subtotal\":" + rm(subtotalSen)
+                    + ",\"serviceTax\":{\"6%\":" + rm(tax6Sen) + ",\"8%\":" + rm(tax8Sen) + ",\"10%\":" + rm(tax10Sen) + "}"
+                    + ",\"discounts\":{\"student\":" + rm(studentSen) + ",\"happyHour\":" + rm(happyHourSen)
+                    + ",\"weekendCombo\":" + rm(weekendComboSen) + "}"
+                    + ",\"revenue\":" + rm(revenueSen)
+                    + ",\"cashbackOwed\":" + rm(cashbackSen) + "}";
+        }
+
+        private static String rm(long sen) {
+            return java.math.BigDecimal.valueOf(sen, 2).toPlainString();
+        }
+    }
+}
@@ -0,0 +1,177 @@
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Formatter;
+
+/**
+ * Batch mode for Q2: re-bills a whole transaction log (every order of every outlet)
+ * with the same tax, discount and cashback rules as the interactive program.
+ *
+ * Usage:
+ *     java Q2 --batch <log file | -> [--out <file>] [--format=receipts|compact]
+ *                 [--engine=sen|double] [--reconcile] [--promotions <file>]
+ *
+ *     receipts : the Q2 receipt for every order, one after another (default)
+ *     compact  : one row per order:
+ *                order outlet subtotal tax totalBeforeDiscount discount payable cashback
+ *                (an order that cannot be billed: order outlet ERROR message)
+ *     sen      : KopiSatuEngine, whole sen with rounding at every step (default)
+ *     double   : the double arithmetic Q2 used before KopiSatuEngine, prints exactly what
+ *                those printf receipts showed
+ *                (always Q2's own discounts; promotions only apply to the sen engine)
+ *     reconcile: bill every order both ways and write a report of where they differ
+ *                (see KopiSatuReconciliation) instead of receipts
+ *     promotions: discounts per outlet (see KopiSatuPromotions); default: Q2's everywhere
+ *
+ * The log format is described in KopiSatuOrderReader; receipts and rows are written by
+ * KopiSatuReceiptRenderer (no printf). Orders per second go to stderr.
+ *
+ * Note: the interactive Q2 only accepts an hour of 23 (the do-while condition), so in the
+ * log any hour 0-23 is accepted, which is what the prompt says.
+ */
+public class KopiSatuBatch {
+
+    public enum Format { RECEIPTS, COMPACT }
+
+    public enum Engine { SEN, DOUBLE }
+
+    private final Format format;
+    private final Engine engine;
+    private final OutputStream out;
+    private final KopiSatuReceiptRenderer renderer = new KopiSatuReceiptRenderer();
+    private final KopiSatuEngine.Bill bill = new KopiSatuEngine.Bill();
+    private final KopiSatuEngine.DoubleBill doubleBill = new KopiSatuEngine.DoubleBill();
+    private byte[] outlet = new byte[64];
+    private KopiSatuReconciliation reconciliation;
+    private KopiSatuPromotions promotions = KopiSatuPromotions.standard();
+    private long orders;
+
+    public KopiSatuBatch(Format format, Engine engine, OutputStream out) {
+        this.format = format;
+        this.engine = engine;
+        this.out = out;
+    }
+
+    // Bills every order both ways and writes only the comparison at the end
+    public void reconcile() {
+        this.reconciliation = new KopiSatuReconciliation();
+    }
+
+    public void promotions(KopiSatuPromotions promotions) {
+        this.promotions = promotions;
+    }
+
+    public long orders() { return orders; }
+
+    public static void run(String[] args) throws IOException {
+        String input = null;
+        String output = null;
+        Format format = Format.RECEIPTS;
+        Engine engine = Engine.SEN;
+        boolean reconcile = false;
+        String promotions = null;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("--batch") && i + 1 < args.length) {
+                input = args[++i];
+            } else if (arg.equals("--out") && i + 1 < args.length) {
+                output = args[++i];
+            } else if (arg.startsWith("--format=")) {
+                format = Format.valueOf(arg.substring("--format=".length()).toUpperCase());
+            } else if (arg.startsWith("--engine=")) {
+                engine = Engine.valueOf(arg.substring("--engine=".length()).toUpperCase());
+            } else if (arg.equals("--promotions") && i + 1 < args.length) {
+                promotions = args[++i];
+            } else if (arg.equals("--reconcile")) {
+                reconcile = true;
+            } else {
+                System.err.println("Unknown option: " + arg);
+                return;
+            }
+        }
+        if (input == null) {
+            System.err.println("Usage: java Q2 --batch <log file | -> [--out <file>] [--format=receipts|compact]"
+                    + " [--engine=sen|double] [--reconcile] [--promotions <file>]");
+            return;
+        }
+
+        KopiSatuPromotions outletPromotions = KopiSatuPromotions.standard();
+        if (promotions != null) {
+            try {
+                outletPromotions = KopiSatuPromotions.load(java.nio.file.Path.of(promotions));
+            } catch (IllegalArgumentException e) {
+                System.err.println(promotions + ": " + e.getMessage());
+                return;
+            }
+        }
+
+        InputStream in = input.equals("-") ? System.in : new FileInputStream(input);
+        OutputStream out = output == null ? System.out : new FileOutputStream(output);
+
+        long start = System.nanoTime();
+        KopiSatuBatch batch = new KopiSatuBatch(format, engine, out);
+        if (reconcile) batch.reconcile();
+        batch.promotions(outletPromotions);
+        try {
+            batch.process(new KopiSatuOrderReader(in));
+        } finally {
+            if (in != System.in) in.close();
+            out.flush();
+            if (out != System.out) out.close();
+        }
+        reportThroughput(batch.orders(), System.nanoTime() - start);
+    }
+
+    public void process(KopiSatuOrderReader reader) throws IOException {
+        while (reader.next()) {
+            orders++;
+            if (reader.error() != null) {
+                if (format == Format.COMPACT) {
+                    renderer.text(orders + " " + reader.outlet() + " ERROR " + reader.error());
+                } else {
+                    renderer.text("Order " + orders + " (line " + reader.lineNumber() + "): " + reader.error());
+                }
+            } else if (reconciliation != null) {
+                reconciliation.add(reader);
+            } else if (engine == Engine.SEN) {
+                KopiSatuEngine.bill(reader, promotions.rules(reader), bill);
+                if (format == Format.COMPACT) {
+                    renderer.compact(orders, outlet, outletBytes(reader), bill);
+                } else {
+                    renderer.render(bill);
+                }
+            } else {
+                KopiSatuEngine.billDouble(reader, doubleBill);
+                if (format == Format.COMPACT) {
+                    renderer.compact(orders, outlet, outletBytes(reader), doubleBill);
+                } else {
+                    renderer.render(doubleBill);
+                }
+            }
+            renderer.flushIfFull(out);
+        }
+        renderer.writeTo(out);
+        if (reconciliation != null) {
+            Formatter report = new Formatter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            reconciliation.writeReport(report, System.lineSeparator());
+            report.flush();
+        }
+        out.flush();
+    }
+
+    private int outletBytes(KopiSatuOrderReader reader) {
+        if (reader.outletLength() > outlet.length) outlet = new byte[reader.outletLength()];
+        return reader.outletBytes(outlet);
+    }
+
+    // Report goes to stderr so it never mixes with the receipts
+    static void reportThroughput(long orders, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        double perSecond = seconds > 0 ? orders / seconds : 0;
+        System.err.printf("Billed %d orders in %.3f s (%.0f orders/s)%n", orders, seconds, perSecond);
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * The Q2 billing rules outside of main, in whole sen (long) with explicit rounding.
+ *
+ * Q2 used to keep the money in doubles and multiply by 1.06/1.08/1.10, 0.9 and 0.95, so a
+ * printed receipt does not always add up (the printed tax is rounded, the total is not)
+ * and a subtotal such as 10.10 + 19.90 = 30.000000000000004 lands in the 8% tier.
+ * Here every amount is a whole number of sen and each step is rounded half-up to the sen
+ * before the next step uses it, so on every receipt:
+ *
+ *     subtotal + tax = total before discount
+ *     total before discount - discounts = total payable
+ *
+ * Rules (same as Q2):
+ *     service tax      : subtotal <= RM 30 -> 6%, <= RM 100 -> 8%, above -> 10%
+ *     Weekend Combo    : Sat/Sun, subtotal >= RM 50 -> 5% off
+ *     Student Saver    : Mon-Fri, total before discount > RM 25 -> 10% off
+ *     Happy Hour       : Mon-Fri, 15:00-16:59 -> a further 5% off
+ *     Loyalty cashback : members get 2% of the total payable back
+ *
+ * Which discounts run at a day and hour comes from a KopiSatuRules index (one lookup);
+ * the discounts above are KopiSatuRules.STANDARD, an outlet can have its own
+ * (see KopiSatuPromotions).
+ *
+ * bill() fills a caller-owned Bill, so billing an order allocates nothing.
+ * Q2.main bills with bill(). billDouble() is the double arithmetic Q2 had before, kept for
+ * --engine=double and the reconciliation report.
+ */
+public final class KopiSatuEngine {
+
+    public static final int SATURDAY = 5; // days are 0 = Monday ... 6 = Sunday
+
+    private KopiSatuEngine() { }
+
+    /** One order billed in sen */
+    public static final class Bill {
+        public long subtotalSen;
+        public int taxPercent;
+        public long taxSen;
+        public long totalBeforeDiscountSen;
+        public long weekendComboSen;   // 0 when not applied
+        public long studentSen;
+        public long happyHourSen;
+        public boolean weekendCombo;
+        public boolean student;
+        public boolean happyHour;
+        public int weekendComboPercent; // for the receipt labels
+        public int studentPercent;
+        public int happyHourPercent;
+        public long payableSen;
+        public boolean member;
+        public long cashbackSen;
+
+        public long discountSen() { return weekendComboSen + studentSen + happyHourSen; }
+    }
+
+    /** The same order billed the way Q2 used to, unrounded doubles */
+    public static final class DoubleBill {
+        public double subtotal;
+        public int taxPercent;
+        public double tax;
+        public double totalBeforeDiscount;
+        public double weekendCombo;
+        public double student;
+        public double happyHour;
+        public boolean weekendComboApplied;
+        public boolean studentApplied;
+        public boolean happyHourApplied;
+        public double payable;
+        public boolean member;
+        public double cashback;
+    }
+
+    public static void bill(KopiSatuOrderReader order, Bill bill) {
+        bill(order, KopiSatuRules.STANDARD, bill);
+    }
+
+    public static void bill(KopiSatuOrderReader order, KopiSatuRules rules, Bill bill) {
+        long subtotal = 0;
+        for (int i = 0; i < order.itemCount(); i++) subtotal += order.priceSen(i);
+        bill(subtotal, order.day(), order.hour(), order.member(), rules, bill);
+    }
+
+    public static void bill(long subtotalSen, int day, int hour, boolean member, Bill bill) {
+        bill(subtotalSen, day, hour, member, KopiSatuRules.STANDARD, bill);
+    }
+
+    public static void bill(long subtotalSen, int day, int hour, boolean member, KopiSatuRules rules, Bill bill) {
+        bill.subtotalSen = subtotalSen;
+        int taxPercent = subtotalSen <= 3000 ? 6 : subtotalSen <= 10000 ? 8 : 10;
+        bill.taxPercent = taxPercent;
+        bill.taxSen = percentOf(subtotalSen, taxPercent);
+        long pay = subtotalSen + bill.taxSen;
+        bill.totalBeforeDiscountSen = pay;
+
+        bill.weekendComboSen = 0;
+        bill.studentSen = 0;
+        bill.happyHourSen = 0;
+        bill.weekendCombo = false;
+        bill.student = false;
+        bill.happyHour = false;
+        int discounts = rules.discounts(day, hour);
+        if ((discounts & KopiSatuRules.WEEKEND_COMBO) != 0 && subtotalSen >= rules.weekendCombo.minimumSen) {
+            bill.weekendCombo = true;
+            bill.weekendComboPercent = rules.weekendCombo.percent;
+            bill.weekendComboSen = percentOf(pay, bill.weekendComboPercent);
+            pay -= bill.weekendComboSen;
+        }
+        if ((discounts & KopiSatuRules.STUDENT) != 0 && pay > rules.student.minimumSen) {
+            bill.student = true;
+            bill.studentPercent = rules.student.percent;
+            bill.studentSen = percentOf(pay, bill.studentPercent);
+            pay -= bill.studentSen;
+        }
+        if ((discounts & KopiSatuRules.HAPPY_HOUR) != 0 && pay > rules.happyHour.minimumSen) {
+            bill.happyHour = true;
+            bill.happyHourPercent = rules.happyHour.percent;
+            bill.happyHourSen = percentOf(pay, bill.happyHourPercent);
+            pay -= bill.happyHourSen;
+        }
+        bill.payableSen = pay;
+        bill.member = member;
+        bill.cashbackSen = member ? percentOf(pay, 2) : 0;
+    }
+
+    /** percent% of an amount in sen, rounded half-up to the sen (amounts are never negative) */
+    public static long percentOf(long sen, int percent) {
+        return (sen * percent + 50) / 100;
+    }
+
+    public static void billDouble(KopiSatuOrderReader order, DoubleBill bill) {
+        double total = 0.0;
+        for (int i = 0; i < order.itemCount(); i++) total += order.price(i);
+        billDouble(total, order.day(), order.hour(), order.member(), bill);
+    }
+
+    // Statement for statement the arithmetic Q2.main had before it used bill()
+    public static void billDouble(double total, int day, int hour, boolean member, DoubleBill bill) {
+        double pay;
+        bill.subtotal = total;
+        if (total <= 30) {
+            bill.taxPercent = 6;
+            bill.tax = total * 0.06;
+            pay = total * 1.06;
+        } else if (30 < total && total <= 100) {
+            bill.taxPercent = 8;
+            bill.tax = total * 0.08;
+            pay = total * 1.08;
+        } else {
+            bill.taxPercent = 10;
+            bill.tax = total * 0.10;
+            pay = total * 1.10;
+        }
+        bill.totalBeforeDiscount = pay;
+
+        bill.weekendCombo = 0;
+        bill.student = 0;
+        bill.happyHour = 0;
+        bill.weekendComboApplied = false;
+        bill.studentApplied = false;
+        bill.happyHourApplied = false;
+        if (day >= SATURDAY) {
+            if (total >= 50) {
+                bill.weekendComboApplied = true;
+                bill.weekendCombo = pay * 0.05;
+                pay -= pay * 0.05;
+            }
+        } else {
+            if (pay > 25) {
+                bill.studentApplied = true;
+                bill.student = pay * 0.1;
+                pay -= pay * 0.1;
+            }
+            if (15 <= hour && hour < 17) {
+                bill.happyHourApplied = true;
+                bill.happyHour = pay * 0.05;
+                pay -= pay * 0.05;
+            }
+        }
+        bill.payable = pay;
+        bill.member = member;
+        bill.cashback = member ? pay * 0.02 : 0;
+    }
+}
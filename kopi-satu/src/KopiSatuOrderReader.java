@@ -0,0 +1,323 @@
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads a Kopi-Satu transaction log for the batch mode, one order per line:
+ *
+ *     outlet day hour member price [price ...]
+ *     KL-SENTRAL Monday 15 Y 12.50 8.00 3.20
+ *
+ * Blank lines and lines starting with '#' are skipped. A price of 0 is ignored
+ * (it only meant "finish" at the interactive prompt).
+ *
+ * The reader works on raw bytes: no Scanner, no String per token, and the arrays are
+ * reused from one order to the next, so reading an order allocates nothing. Prices are
+ * kept both as the double Q2 would have read and as whole sen.
+ */
+public final class KopiSatuOrderReader {
+
+    public static final String[] DAY_NAMES = {
+        "Monday", "Tuesday", "Wednesday", "Thursday", "Friday", "Saturday", "Sunday"
+    };
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    private final InputStream in;
+    private final byte[] buf = new byte[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+
+    // current line
+    private byte[] line = new byte[256];
+    private int lineLength;
+    private long lineNumber;
+
+    // current order
+    private int outletFrom;
+    private int outletTo;
+    private int day;
+    private int hour;
+    private boolean member;
+    private int itemCount;
+    private double[] prices = new double[16];
+    private long[] pricesSen = new long[16];
+    private String error;
+
+    public KopiSatuOrderReader(InputStream in) {
+        this.in = in;
+    }
+
+    /** Reads the next order; false at the end of the log. Check {@link #error()} first. */
+    public boolean next() throws IOException {
+        do {
+            if (!readLine()) return false;
+        } while (blank());
+        parse();
+        return true;
+    }
+
+    /** null when the order is valid, otherwise the reason it cannot be billed */
+    public String error() { return error; }
+
+    public long lineNumber() { return lineNumber; }
+
+    /** 0 = Monday ... 6 = Sunday */
+    public int day() { return day; }
+
+    public boolean weekend() { return day >= 5; }
+
+    public int hour() { return hour; }
+
+    public boolean member() { return member; }
+
+    public int itemCount() { return itemCount; }
+
+    public double price(int i) { return prices[i]; }
+
+    public long priceSen(int i) { return pricesSen[i]; }
+
+    /** Outlet ID as a String (allocates; for reports and error rows) */
+    public String outlet() {
+        return new String(line, outletFrom, outletTo - outletFrom, java.nio.charset.StandardCharsets.UTF_8);
+    }
+
+    public int outletLength() { return outletTo - outletFrom; }
+
+    /** true when the first token of the line is {@code word} and nothing follows it */
+    public boolean isCommand(String word) {
+        if (outletTo - outletFrom != word.length() || skipSpaces(outletTo) != lineLength) return false;
+        for (int i = 0; i < word.length(); i++) {
+            if (line[outletFrom + i] != word.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    /** true when more input is already buffered (a server flushes its answers when it is not) */
+    public boolean buffered() { return pos < limit; }
+
+    /** Hash of the outlet ID bytes (see KopiSatuPromotions.hash) */
+    public int outletHash() {
+        return KopiSatuPromotions.hash(line, outletFrom, outletTo);
+    }
+
+    /** true when the outlet ID is exactly these bytes */
+    public boolean outletEquals(byte[] name) {
+        return java.util.Arrays.equals(line, outletFrom, outletTo, name, 0, name.length);
+    }
+
+    /** Copies the outlet ID bytes into {@code out}, returns the length */
+    public int outletBytes(byte[] out) {
+        int length = Math.min(out.length, outletTo - outletFrom);
+        System.arraycopy(line, outletFrom, out, 0, length);
+        return length;
+    }
+
+    // --- parsing ---
+
+    private void parse() {
+        error = null;
+        itemCount = 0;
+        int i = skipSpaces(0);
+
+        outletFrom = i;
+        i = skipToken(i);
+        outletTo = i;
+
+        i = skipSpaces(i);
+        int dayFrom = i;
+        i = skipToken(i);
+        day = parseDay(line, dayFrom, i);
+
+        i = skipSpaces(i);
+        int hourFrom = i;
+        i = skipToken(i);
+        hour = (int) parseWhole(hourFrom, i);
+
+        i = skipSpaces(i);
+        int memberFrom = i;
+        i = skipToken(i);
+        //same test as member.equalsIgnoreCase("Y")
+        member = i - memberFrom == 1 && (line[memberFrom] == 'Y' || line[memberFrom] == 'y');
+
+        if (memberFrom == i) {
+            error = "Incomplete order: expected outlet, day, hour, member and prices";
+            return;
+        }
+        if (day < 0) {
+            error = "Not a valid day";
+            return;
+        }
+        if (hour < 0 || hour > 23) {
+            error = "Invalid hour";
+            return;
+        }
+        while (true) {
+            i = skipSpaces(i);
+            if (i == lineLength) break;
+            int priceFrom = i;
+            i = skipToken(i);
+            if (!parsePrice(priceFrom, i)) {
+                error = "Invalid amount";
+                return;
+            }
+        }
+        if (itemCount == 0) {
+            error = "Please enter at least one valid item";
+        }
+    }
+
+    /** Case-insensitive day name to 0-6 without creating a String; -1 if not a day */
+    public static int parseDay(byte[] text, int from, int to) {
+        int length = to - from;
+        if (length < 6) return -1;
+        for (int d = 0; d < DAY_NAMES.length; d++) {
+            String name = DAY_NAMES[d];
+            if (name.length() != length) continue;
+            int k = 0;
+            while (k < length && (text[from + k] | 0x20) == (name.charAt(k) | 0x20)) k++;
+            if (k == length) return d;
+        }
+        return -1;
+    }
+
+    /** The same for a String (Q2's prompt), still without creating another one */
+    public static int parseDay(CharSequence text) {
+        int length = text.length();
+        if (length < 6) return -1;
+        for (int d = 0; d < DAY_NAMES.length; d++) {
+            String name = DAY_NAMES[d];
+            if (name.length() != length) continue;
+            int k = 0;
+            while (k < length && (text.charAt(k) | 0x20) == (name.charAt(k) | 0x20)) k++;
+            if (k == length) return d;
+        }
+        return -1;
+    }
+
+    // non-negative whole number, -1 if it is not one
+    private long parseWhole(int from, int to) {
+        if (from == to || to - from > 9) return -1;
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9) return -1;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    // Decimal price such as 12, 12.5 or 12.50; false if negative or not a number
+    private boolean parsePrice(int from, int to) {
+        long digits = 0;
+        int digitCount = 0;
+        int significant = 0;
+        int scale = -1;
+        for (int i = from; i < to; i++) {
+            byte b = line[i];
+            if (b == '.' && scale < 0) {
+                scale = 0;
+                continue;
+            }
+            int digit = b - '0';
+            if (digit < 0 || digit > 9) return false;
+            digitCount++;
+            if (significant > 0 || digit != 0) significant++;
+            if (significant > 15) return parseLongPrice(from, to);
+            digits = digits * 10 + digit;
+            if (scale >= 0) scale++;
+        }
+        if (digitCount == 0) return false;
+        if (scale < 0) scale = 0;
+        if (scale >= POWERS_OF_TEN.length) return parseLongPrice(from, to);
+        if (digits == 0) return true; // a 0 price only ended the list at the prompt
+
+        //digits < 10^15 < 2^53 and 10^scale is exact, so the division is correctly rounded:
+        //the same double Double.parseDouble (and Scanner.nextDouble) would give
+        add(digits / POWERS_OF_TEN[scale], toSen(digits, scale));
+        return true;
+    }
+
+    // rare: more than 15 significant digits
+    private boolean parseLongPrice(int from, int to) {
+        try {
+            java.math.BigDecimal value = new java.math.BigDecimal(
+                    new String(line, from, to - from, java.nio.charset.StandardCharsets.US_ASCII));
+            if (value.signum() < 0) return false;
+            if (value.signum() == 0) return true;
+            add(value.doubleValue(), value.movePointRight(2)
+                    .setScale(0, java.math.RoundingMode.HALF_UP).longValueExact());
+            return true;
+        } catch (NumberFormatException | ArithmeticException e) {
+            return false;
+        }
+    }
+
+    // digits * 10^-scale in sen, half-up past the second decimal
+    private static long toSen(long digits, int scale) {
+        if (scale <= 2) {
+            long sen = digits;
+            for (int s = scale; s < 2; s++) sen *= 10;
+            return sen;
+        }
+        long divisor = 1;
+        for (int s = 2; s < scale; s++) divisor *= 10;
+        return (digits + divisor / 2) / divisor;
+    }
+
+    private void add(double price, long sen) {
+        if (itemCount == prices.length) {
+            prices = java.util.Arrays.copyOf(prices, itemCount * 2);
+            pricesSen = java.util.Arrays.copyOf(pricesSen, itemCount * 2);
+        }
+        prices[itemCount] = price;
+        pricesSen[itemCount] = sen;
+        itemCount++;
+    }
+
+    private int skipSpaces(int i) {
+        while (i < lineLength && (line[i] == ' ' || line[i] == '\t' || line[i] == ',')) i++;
+        return i;
+    }
+
+    private int skipToken(int i) {
+        while (i < lineLength && line[i] != ' ' && line[i] != '\t' && line[i] != ',') i++;
+        return i;
+    }
+
+    private boolean blank() {
+        int i = skipSpaces(0);
+        return i == lineLength || line[i] == '#';
+    }
+
+    // --- input ---
+
+    private boolean readLine() throws IOException {
+        lineLength = 0;
+        int b = read();
+        if (b < 0) return false;
+        while (b >= 0 && b != '\n') {
+            if (b != '\r') {
+                if (lineLength == line.length) line = java.util.Arrays.copyOf(line, line.length * 2);
+                line[lineLength++] = (byte) b;
+            }
+            b = read();
+        }
+        lineNumber++;
+        return true;
+    }
+
+    private int read() throws IOException {
+        if (pos == limit) {
+            limit = in.read(buf, 0, buf.length);
+            pos = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buf[pos++] & 0xFF;
+    }
+}
@@ -0,0 +1,223 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Promotions per outlet, read from a properties file so an outlet can change its
+ * discounts without a code change.
+ *
+ * Keys are <outlet>.<promotion>.<setting>; "default" applies to every outlet and an
+ * outlet only lists what it does differently. Anything not in the file is Q2's rule.
+ *
+ *     # happy hour runs longer at KL-SENTRAL, no weekend combo at OUT7
+ *     default.happyHour.hours       = 15-16
+ *     KL-SENTRAL.happyHour.hours    = 14-17
+ *     KL-SENTRAL.happyHour.days     = Mon-Sat
+ *     OUT7.weekendCombo.enabled     = false
+ *     OUT9.student.percent          = 15
+ *     OUT9.student.minimum          = 20.00
+ *
+ *     promotions : weekendCombo, student, happyHour
+ *     settings   : days    (Mon-Fri, Sat-Sun, Monday,Wednesday ... full names or 3 letters)
+ *                  hours   (15-16, 7-9,15-16 ... from:00 to to:59)
+ *                  percent (0-100)
+ *                  minimum (RM; see KopiSatuRules for what it is compared with, -1 = none)
+ *                  enabled (true/false)
+ *
+ * Every outlet's KopiSatuRules index is built once when the file is loaded. rules(order)
+ * finds the outlet from the raw bytes of the order line (open addressing on a byte hash),
+ * so the lookup does not create a String either.
+ */
+public final class KopiSatuPromotions {
+
+    private static final String[] PROMOTIONS = { "weekendCombo", "student", "happyHour" };
+    private static final String[] SETTINGS = { "days", "hours", "percent", "minimum", "enabled" };
+
+    private final KopiSatuRules defaults;
+    private final byte[][] outlets;
+    private final KopiSatuRules[] rules;
+    private final int mask;
+
+    private KopiSatuPromotions(KopiSatuRules defaults, String[] names, KopiSatuRules[] outletRules) {
+        this.defaults = defaults;
+        int size = Integer.highestOneBit(Math.max(4, names.length * 2) - 1) << 1;
+        outlets = new byte[size][];
+        rules = new KopiSatuRules[size];
+        mask = size - 1;
+        for (int i = 0; i < names.length; i++) {
+            byte[] name = names[i].getBytes(StandardCharsets.UTF_8);
+            int slot = hash(name, 0, name.length) & mask;
+            while (outlets[slot] != null) slot = (slot + 1) & mask;
+            outlets[slot] = name;
+            rules[slot] = outletRules[i];
+        }
+    }
+
+    /** Q2's rules everywhere */
+    public static KopiSatuPromotions standard() {
+        return new KopiSatuPromotions(KopiSatuRules.STANDARD, new String[0], new KopiSatuRules[0]);
+    }
+
+    public static KopiSatuPromotions load(Path file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return of(properties);
+    }
+
+    public static KopiSatuPromotions of(Properties properties) {
+        Set<String> outletNames = new TreeSet<>();
+        for (String key : properties.stringPropertyNames()) {
+            int promotionDot = key.lastIndexOf('.', key.lastIndexOf('.') - 1);
+            if (promotionDot <= 0) throw new IllegalArgumentException("Promotion key must be outlet.promotion.setting: " + key);
+            String promotion = key.substring(promotionDot + 1, key.lastIndexOf('.'));
+            String setting = key.substring(key.lastIndexOf('.') + 1);
+            if (indexOf(PROMOTIONS, promotion) < 0) throw new IllegalArgumentException("Unknown promotion: " + key);
+            if (indexOf(SETTINGS, setting) < 0) throw new IllegalArgumentException("Unknown setting: " + key);
+            String outlet = key.substring(0, promotionDot);
+            if (!outlet.equals("default")) outletNames.add(outlet);
+        }
+
+        KopiSatuRules defaults = rules(properties, null);
+        String[] names = outletNames.toArray(new String[0]);
+        KopiSatuRules[] outletRules = new KopiSatuRules[names.length];
+        for (int i = 0; i < names.length; i++) outletRules[i] = rules(properties, names[i]);
+        return new KopiSatuPromotions(defaults, names, outletRules);
+    }
+
+    /** The rules for the outlet of this order */
+    public KopiSatuRules rules(KopiSatuOrderReader order) {
+        int slot = order.outletHash() & mask;
+        byte[] name;
+        while ((name = outlets[slot]) != null) {
+            if (order.outletEquals(name)) return rules[slot];
+            slot = (slot + 1) & mask;
+        }
+        return defaults;
+    }
+
+    public KopiSatuRules rules(String outlet) {
+        byte[] bytes = outlet.getBytes(StandardCharsets.UTF_8);
+        int slot = hash(bytes, 0, bytes.length) & mask;
+        while (outlets[slot] != null) {
+            if (java.util.Arrays.equals(outlets[slot], bytes)) return rules[slot];
+            slot = (slot + 1) & mask;
+        }
+        return defaults;
+    }
+
+    public int outletCount() {
+        int count = 0;
+        for (byte[] name : outlets) if (name != null) count++;
+        return count;
+    }
+
+    // FNV-1a, then the high bits mixed down so the low bits can pick the slot
+    static int hash(byte[] bytes, int from, int to) {
+        int h = 0x811C9DC5;
+        for (int i = from; i < to; i++) h = (h ^ bytes[i]) * 0x01000193;
+        return h ^ (h >>> 16);
+    }
+
+    // --- reading the file ---
+
+    private static KopiSatuRules rules(Properties properties, String outlet) {
+        KopiSatuRules standard = KopiSatuRules.STANDARD;
+        return new KopiSatuRules(
+                promotion(properties, outlet, "weekendCombo", standard.weekendCombo),
+                promotion(properties, outlet, "student", standard.student),
+                promotion(properties, outlet, "happyHour", standard.happyHour));
+    }
+
+    private static KopiSatuRules.Promotion promotion(Properties properties, String outlet, String name,
+                                                     KopiSatuRules.Promotion standard) {
+        String days = setting(properties, outlet, name, "days");
+        String hours = setting(properties, outlet, name, "hours");
+        String percent = setting(properties, outlet, name, "percent");
+        String minimum = setting(properties, outlet, name, "minimum");
+        String enabled = setting(properties, outlet, name, "enabled");
+        String where = (outlet == null ? "default" : outlet) + "." + name;
+        try {
+            KopiSatuRules.Promotion promotion = new KopiSatuRules.Promotion(
+                    days == null ? standard.days : days(days),
+                    hours == null ? standard.hours : hours(hours),
+                    percent == null ? standard.percent : Integer.parseInt(percent),
+                    minimum == null ? standard.minimumSen : sen(minimum));
+            if (enabled != null && !Boolean.parseBoolean(enabled)) {
+                if (!enabled.equalsIgnoreCase("false")) throw new IllegalArgumentException("enabled must be true or false");
+                promotion = promotion.disabled();
+            }
+            return promotion;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Promotion " + where + ": " + e.getMessage(), e);
+        }
+    }
+
+    // the outlet's own value, else the default one, else null (Q2's)
+    private static String setting(Properties properties, String outlet, String promotion, String setting) {
+        String value = outlet == null ? null : properties.getProperty(outlet + "." + promotion + "." + setting);
+        if (value == null) value = properties.getProperty("default." + promotion + "." + setting);
+        return value == null ? null : value.trim();
+    }
+
+    // "Mon-Fri", "Saturday,Sunday", "Fri-Mon" (wraps round the week)
+    static int days(String text) {
+        int bits = 0;
+        for (String part : text.split(",")) {
+            String[] range = part.trim().split("-");
+            if (range.length > 2) throw new IllegalArgumentException("Not a valid day range: " + part);
+            int from = day(range[0]);
+            int to = range.length == 2 ? day(range[1]) : from;
+            for (int d = from; ; d = (d + 1) % 7) {
+                bits |= 1 << d;
+                if (d == to) break;
+            }
+        }
+        return bits;
+    }
+
+    private static int day(String text) {
+        String name = text.trim();
+        int day = KopiSatuOrderReader.parseDay(name);
+        if (day < 0 && name.length() == 3) {
+            for (int d = 0; d < 7; d++) {
+                if (KopiSatuOrderReader.DAY_NAMES[d].regionMatches(true, 0, name, 0, 3)) day = d;
+            }
+        }
+        if (day < 0) throw new IllegalArgumentException("Not a valid day: " + text);
+        return day;
+    }
+
+    // "15-16", "7-9,15-16", "12"
+    static int hours(String text) {
+        int bits = 0;
+        for (String part : text.split(",")) {
+            String[] range = part.trim().split("-");
+            if (range.length > 2) throw new IllegalArgumentException("Not a valid hour range: " + part);
+            int from = Integer.parseInt(range[0].trim());
+            int to = range.length == 2 ? Integer.parseInt(range[1].trim()) : from;
+            bits |= KopiSatuRules.hours(from, to);
+        }
+        return bits;
+    }
+
+    // "25", "25.00", "-1"
+    private static long sen(String rm) {
+        if (rm.equals("-1")) return -1;
+        BigDecimal amount = new BigDecimal(rm);
+        if (amount.signum() < 0) throw new IllegalArgumentException("minimum must be an amount or -1");
+        return amount.movePointRight(2).setScale(0, java.math.RoundingMode.UNNECESSARY).longValueExact();
+    }
+
+    private static int indexOf(String[] names, String name) {
+        for (int i = 0; i < names.length; i++) if (names[i].equals(name)) return i;
+        return -1;
+    }
+}
@@ -0,0 +1,249 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Writes Q2 receipts (and compact rows) into one reusable byte buffer without printf.
+ *
+ * Every receipt line is a fixed label, padding and "RM " followed by an amount, so the
+ * label part is formatted once with Q2's own format strings when the class loads and
+ * copied from then on. Amounts are written by hand from whole sen. The output is byte for
+ * byte what Q2's System.out.printf calls printed, including the decimal separator of the
+ * default locale ("12,50" where %.2f prints a comma). Compact rows are read by programs
+ * (the till clients), so they always use a point.
+ *
+ * For the double path, money(double) gives the same digits as %.2f: Formatter rounds
+ * the Double.toString digits half-up. amount * 100 is rounded directly unless it lies
+ * within 0.0001 of a half sen, where that shortcut could go the wrong way; those few
+ * amounts go through BigDecimal exactly like Formatter.
+ *
+ * Usage: render() as many receipts as needed, then writeTo() and reset(); or let
+ * flushIfFull() write to the stream every 64 KB.
+ */
+public final class KopiSatuReceiptRenderer {
+
+    private static final int FLUSH_AT = 1 << 16;
+    private static final String NEWLINE = System.lineSeparator();
+
+    // Q2 ends the printf lines with "\n" and the println lines with the line separator
+    private static final byte[] HEADER = ascii("------ Kopi-Satu Receipt ------------" + NEWLINE);
+    private static final byte[] SEPARATOR = ascii("-------------------------------------" + NEWLINE);
+    private static final byte[] SUBTOTAL = ascii(String.format("Subtotal:%22s", "RM "));
+    private static final byte[] TAX_6 = ascii(String.format("Service Tax (6%%)%15s", "RM "));
+    private static final byte[] TAX_8 = ascii(String.format("Service Tax (8%%)%15s", "RM "));
+    private static final byte[] TAX_10 = ascii(String.format("Service Tax (10%%)%15s", "RM "));
+    private static final byte[] BEFORE_DISCOUNT = ascii(String.format("Total before discount:%9s", "RM "));
+    private static final byte[] WEEKEND_COMBO = ascii(String.format("Weekend Combo Discount (5%%):RM "));
+    private static final byte[] STUDENT = ascii(String.format("Student Discount (10%%):%8s", "RM "));
+    private static final byte[] HAPPY_HOUR = ascii(String.format("Happy Hour Discount (5%%):%6s", "RM "));
+    private static final byte[] PAYABLE = ascii(String.format("Total Payable: %16s", "RM "));
+    private static final byte[] CASHBACK = ascii(String.format("Loyalty Cashback (2%%):%9s", "RM "));
+    private static final byte[] FINAL = ascii(String.format("Final Amount to Collect: %6s", "RM "));
+    private static final byte[] NEWLINE_BYTES = ascii(NEWLINE);
+
+    // what %.2f puts between ringgit and sen on a receipt, in the charset System.out writes
+    private static final byte[] DECIMAL_SEPARATOR = String.valueOf(
+            DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT)).getDecimalSeparator())
+            .getBytes(Charset.defaultCharset());
+    private static final byte[] POINT = ascii(".");
+
+    // outlets may run a discount at another percent (KopiSatuPromotions): one label per percent
+    private static final byte[][] WEEKEND_COMBO_LABELS = discountLabels("Weekend Combo Discount", 5, WEEKEND_COMBO);
+    private static final byte[][] STUDENT_LABELS = discountLabels("Student Discount", 10, STUDENT);
+    private static final byte[][] HAPPY_HOUR_LABELS = discountLabels("Happy Hour Discount", 5, HAPPY_HOUR);
+
+    private byte[] buf = new byte[FLUSH_AT + 4096];
+    private int size;
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // Same layout as Q2's labels, "RM " ending in column 31; Q2's own label for its percent
+    private static byte[][] discountLabels(String name, int q2Percent, byte[] q2Label) {
+        byte[][] labels = new byte[101][];
+        for (int percent = 0; percent <= 100; percent++) {
+            String label = name + " (" + percent + "%):";
+            labels[percent] = ascii(label + " ".repeat(Math.max(0, 28 - label.length())) + "RM ");
+        }
+        labels[q2Percent] = q2Label;
+        return labels;
+    }
+
+    public int size() { return size; }
+
+    public void reset() { size = 0; }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buf, 0, size);
+        size = 0;
+    }
+
+    // Writes the buffer out once it holds 64 KB
+    public void flushIfFull(OutputStream out) throws IOException {
+        if (size >= FLUSH_AT) writeTo(out);
+    }
+
+    // --- receipts ---
+
+    public void render(KopiSatuEngine.Bill b) {
+        bytes(HEADER);
+        line(SUBTOTAL, b.subtotalSen);
+        line(taxLabel(b.taxPercent), b.taxSen);
+        line(BEFORE_DISCOUNT, b.totalBeforeDiscountSen);
+        if (b.weekendCombo) line(WEEKEND_COMBO_LABELS[b.weekendComboPercent], b.weekendComboSen);
+        if (b.student) line(STUDENT_LABELS[b.studentPercent], b.studentSen);
+        if (b.happyHour) line(HAPPY_HOUR_LABELS[b.happyHourPercent], b.happyHourSen);
+        bytes(SEPARATOR);
+        line(PAYABLE, b.payableSen);
+        if (b.member) line(CASHBACK, b.cashbackSen);
+        bytes(SEPARATOR);
+        line(FINAL, b.payableSen);
+    }
+
+    public void render(KopiSatuEngine.DoubleBill b) {
+        bytes(HEADER);
+        line(SUBTOTAL, printedSen(b.subtotal));
+        line(taxLabel(b.taxPercent), printedSen(b.tax));
+        line(BEFORE_DISCOUNT, printedSen(b.totalBeforeDiscount));
+        if (b.weekendComboApplied) line(WEEKEND_COMBO, printedSen(b.weekendCombo));
+        if (b.studentApplied) line(STUDENT, printedSen(b.student));
+        if (b.happyHourApplied) line(HAPPY_HOUR, printedSen(b.happyHour));
+        bytes(SEPARATOR);
+        long payable = printedSen(b.payable);
+        line(PAYABLE, payable);
+        if (b.member) line(CASHBACK, printedSen(b.cashback));
+        bytes(SEPARATOR);
+        line(FINAL, payable);
+    }
+
+    // --- compact rows: order outlet subtotal tax totalBeforeDiscount discount payable cashback ---
+
+    public void compact(long orderNumber, byte[] outlet, int outletLength, KopiSatuEngine.Bill b) {
+        number(orderNumber);
+        space();
+        bytes(outlet, outletLength);
+        space();
+        money(b.subtotalSen);
+        space();
+        money(b.taxSen);
+        space();
+        money(b.totalBeforeDiscountSen);
+        space();
+        money(b.discountSen());
+        space();
+        money(b.payableSen);
+        space();
+        money(b.cashbackSen);
+        bytes(NEWLINE_BYTES);
+    }
+
+    public void compact(long orderNumber, byte[] outlet, int outletLength, KopiSatuEngine.DoubleBill b) {
+        number(orderNumber);
+        space();
+        bytes(outlet, outletLength);
+        space();
+        money(printedSen(b.subtotal));
+        space();
+        money(printedSen(b.tax));
+        space();
+        money(printedSen(b.totalBeforeDiscount));
+        space();
+        money(printedSen(b.totalBeforeDiscount - b.payable));
+        space();
+        money(printedSen(b.payable));
+        space();
+        money(printedSen(b.cashback));
+        bytes(NEWLINE_BYTES);
+    }
+
+    // Any other line (error rows); rare, so a String is fine here
+    public void text(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        bytes(bytes, bytes.length);
+        bytes(NEWLINE_BYTES);
+    }
+
+    // --- pieces ---
+
+    private static byte[] taxLabel(int percent) {
+        return percent == 6 ? TAX_6 : percent == 8 ? TAX_8 : TAX_10;
+    }
+
+    private void line(byte[] label, long sen) {
+        bytes(label);
+        money(sen, DECIMAL_SEPARATOR);
+        ensure(1);
+        buf[size++] = '\n';
+    }
+
+    /** The sen %.2f prints for a non-negative double (see the class comment) */
+    public static long printedSen(double amount) {
+        double scaled = amount * 100;
+        double fraction = scaled - Math.floor(scaled);
+        if (scaled < 1e12 && Math.abs(fraction - 0.5) > 1e-4) {
+            return (long) Math.floor(scaled + 0.5);
+        }
+        return BigDecimal.valueOf(amount).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    // sen as "R.SS", for the compact rows
+    private void money(long sen) {
+        money(sen, POINT);
+    }
+
+    // sen as "R.SS" with that separator, like %.2f
+    private void money(long sen, byte[] separator) {
+        if (sen < 0) {
+            ensure(1);
+            buf[size++] = '-';
+            sen = -sen;
+        }
+        number(sen / 100);
+        bytes(separator);
+        ensure(2);
+        int cents = (int) (sen % 100);
+        buf[size++] = (byte) ('0' + cents / 10);
+        buf[size++] = (byte) ('0' + cents % 10);
+    }
+
+    private void number(long value) {
+        ensure(20);
+        if (value == 0) {
+            buf[size++] = '0';
+            return;
+        }
+        int digits = 0;
+        for (long v = value; v > 0; v /= 10) digits++;
+        int end = size + digits;
+        for (int i = end - 1; i >= size; i--) {
+            buf[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        size = end;
+    }
+
+    private void space() {
+        ensure(1);
+        buf[size++] = ' ';
+    }
+
+    private void bytes(byte[] bytes) {
+        bytes(bytes, bytes.length);
+    }
+
+    private void bytes(byte[] bytes, int length) {
+        ensure(length);
+        System.arraycopy(bytes, 0, buf, size, length);
+        size += length;
+    }
+
+    private void ensure(int more) {
+        if (size + more > buf.length) buf = java.util.Arrays.copyOf(buf, Math.max(buf.length * 2, size + more));
+    }
+}
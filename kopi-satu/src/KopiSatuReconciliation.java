@@ -0,0 +1,127 @@
+import java.math.BigDecimal;
+import java.util.Formatter;
+
+/**
+ * Bills every order with both the original double arithmetic of Q2 and the fixed-point
+ * KopiSatuEngine, and reports where they differ.
+ *
+ * For each receipt line it counts the orders whose printed amount (the double rounded by
+ * %.2f, as Q2 prints it) is not the engine's amount, and adds up the differences. It also
+ * counts the double receipts that do not add up on paper (printed subtotal + printed tax is
+ * not the printed total, and so on) - the engine's receipts always do - and compares the
+ * day totals: the exact sum of the unrounded doubles, the sum of what was printed, and the
+ * engine's sum.
+ *
+ * Usage: java Q2 --batch orders.log --reconcile [--out report.txt]
+ */
+public final class KopiSatuReconciliation {
+
+    private static final String[] FIELDS = {
+        "Subtotal", "Service tax", "Total before discount", "Discounts", "Total payable", "Cashback"
+    };
+
+    private final KopiSatuEngine.Bill bill = new KopiSatuEngine.Bill();
+    private final KopiSatuEngine.DoubleBill doubleBill = new KopiSatuEngine.DoubleBill();
+    private final long[] printed = new long[FIELDS.length];
+    private final long[] exact = new long[FIELDS.length];
+
+    private long orders;
+    private final long[] mismatches = new long[FIELDS.length];
+    private final long[] differenceSen = new long[FIELDS.length];
+    private final long[] largestDifferenceSen = new long[FIELDS.length];
+    private long tierDiffers;
+    private long discountsDiffer;
+    private long doubleReceiptsNotAddingUp;
+    private long exactReceiptsNotAddingUp;
+
+    // day totals: unrounded doubles (summed exactly), printed doubles, engine
+    private BigDecimal unroundedPayable = BigDecimal.ZERO;
+    private BigDecimal unroundedCashback = BigDecimal.ZERO;
+    private long printedPayableSen;
+    private long printedCashbackSen;
+    private long payableSen;
+    private long cashbackSen;
+
+    public void add(KopiSatuOrderReader order) {
+        KopiSatuEngine.billDouble(order, doubleBill);
+        KopiSatuEngine.bill(order, bill);
+        orders++;
+
+        KopiSatuEngine.DoubleBill d = doubleBill;
+        printed[0] = printedSen(d.subtotal);
+        printed[1] = printedSen(d.tax);
+        printed[2] = printedSen(d.totalBeforeDiscount);
+        printed[3] = printedSen(d.weekendCombo) + printedSen(d.student) + printedSen(d.happyHour);
+        printed[4] = printedSen(d.payable);
+        printed[5] = d.member ? printedSen(d.cashback) : 0;
+
+        KopiSatuEngine.Bill b = bill;
+        exact[0] = b.subtotalSen;
+        exact[1] = b.taxSen;
+        exact[2] = b.totalBeforeDiscountSen;
+        exact[3] = b.discountSen();
+        exact[4] = b.payableSen;
+        exact[5] = b.cashbackSen;
+
+        for (int f = 0; f < FIELDS.length; f++) {
+            long difference = printed[f] - exact[f];
+            if (difference != 0) {
+                mismatches[f]++;
+                differenceSen[f] += difference;
+                largestDifferenceSen[f] = Math.max(largestDifferenceSen[f], Math.abs(difference));
+            }
+        }
+        if (d.taxPercent != b.taxPercent) tierDiffers++;
+        if (d.weekendComboApplied != b.weekendCombo || d.studentApplied != b.student
+                || d.happyHourApplied != b.happyHour) {
+            discountsDiffer++;
+        }
+        if (!addsUp(printed)) doubleReceiptsNotAddingUp++;
+        if (!addsUp(exact)) exactReceiptsNotAddingUp++;
+
+        unroundedPayable = unroundedPayable.add(new BigDecimal(d.payable));
+        unroundedCashback = unroundedCashback.add(new BigDecimal(d.cashback));
+        printedPayableSen += printed[4];
+        printedCashbackSen += printed[5];
+        payableSen += b.payableSen;
+        cashbackSen += b.cashbackSen;
+    }
+
+    // subtotal + tax = total before discount, and total before discount - discounts = payable
+    private static boolean addsUp(long[] amounts) {
+        return amounts[0] + amounts[1] == amounts[2] && amounts[2] - amounts[3] == amounts[4];
+    }
+
+    // the sen Q2 prints for a double with %.2f: Formatter rounds the Double.toString digits
+    // half-up, so 1.005 (stored as 1.00499999...) still prints 1.01
+    static long printedSen(double amount) {
+        return BigDecimal.valueOf(amount).setScale(2, java.math.RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public void writeReport(Formatter out, String newline) {
+        out.format("Kopi-Satu reconciliation: Q2 double arithmetic vs fixed-point sen%s", newline);
+        out.format("Orders billed: %d%s%s", orders, newline, newline);
+        out.format("%-22s %12s %16s %12s%s", "Receipt line", "Orders off", "Net diff (RM)", "Worst (RM)", newline);
+        for (int f = 0; f < FIELDS.length; f++) {
+            out.format("%-22s %12d %16s %12s%s", FIELDS[f], mismatches[f], rm(differenceSen[f]),
+                    rm(largestDifferenceSen[f]), newline);
+        }
+        out.format("%s", newline);
+        out.format("%-36s %d%s", "Tax tier differs:", tierDiffers, newline);
+        out.format("%-36s %d%s", "Discounts applied differ:", discountsDiffer, newline);
+        out.format("%-36s %d%s", "Double receipts not adding up:", doubleReceiptsNotAddingUp, newline);
+        out.format("%-36s %d%s", "Fixed-point receipts not adding up:", exactReceiptsNotAddingUp, newline);
+        out.format("%s", newline);
+        out.format("%-22s %20s %20s %20s%s", "Day total", "double (unrounded)", "double (printed)", "fixed-point", newline);
+        out.format("%-22s %20s %20s %20s%s", "Total payable",
+                unroundedPayable.setScale(4, java.math.RoundingMode.HALF_UP).toPlainString(),
+                rm(printedPayableSen), rm(payableSen), newline);
+        out.format("%-22s %20s %20s %20s%s", "Cashback",
+                unroundedCashback.setScale(4, java.math.RoundingMode.HALF_UP).toPlainString(),
+                rm(printedCashbackSen), rm(cashbackSen), newline);
+    }
+
+    private static String rm(long sen) {
+        return BigDecimal.valueOf(sen, 2).toPlainString();
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * The discount rules of one outlet as a (day of week x hour) index.
+ *
+ * Q2 decides the discounts by comparing the day name again ("saturday"? "sunday"?) and
+ * then checking the hour. Here every promotion says on which days and in which hours it
+ * runs, and the constructor folds all of them into one table of 7 x 24 bitmasks, so
+ * finding the discounts for an order is one array lookup:
+ *
+ *     discounts(day, hour) -> WEEKEND_COMBO | STUDENT | HAPPY_HOUR  (any combination)
+ *
+ * The amount conditions stay with the promotion (KopiSatuEngine checks them):
+ *     Weekend Combo : subtotal >= minimum
+ *     Student Saver : total before discount > minimum
+ *     Happy Hour    : total payable so far > minimum (-1 = always)
+ *
+ * Discounts are applied in that order, each on what is left after the previous one.
+ * STANDARD is exactly Q2; other outlets get theirs from KopiSatuPromotions.
+ */
+public final class KopiSatuRules {
+
+    public static final int WEEKEND_COMBO = 1;
+    public static final int STUDENT = 2;
+    public static final int HAPPY_HOUR = 4;
+
+    public static final int ALL_DAYS = 0x7F;       // bit 0 = Monday ... bit 6 = Sunday
+    public static final int WEEKDAYS = 0x1F;
+    public static final int WEEKEND = 0x60;
+    public static final int ALL_HOURS = 0xFFFFFF;  // bit 0 = 00:00-00:59 ... bit 23 = 23:00-23:59
+
+    /** The Q2 rules */
+    public static final KopiSatuRules STANDARD = new KopiSatuRules(
+            new Promotion(WEEKEND, ALL_HOURS, 5, 5000),
+            new Promotion(WEEKDAYS, ALL_HOURS, 10, 2500),
+            new Promotion(WEEKDAYS, hours(15, 16), 5, -1));
+
+    /** One promotion: when it runs, how much it takes off and from which amount (in sen) */
+    public static final class Promotion {
+        public final int days;
+        public final int hours;
+        public final int percent;
+        public final long minimumSen;
+
+        public Promotion(int days, int hours, int percent, long minimumSen) {
+            if ((days & ~ALL_DAYS) != 0) throw new IllegalArgumentException("days must be bits 0-6");
+            if ((hours & ~ALL_HOURS) != 0) throw new IllegalArgumentException("hours must be bits 0-23");
+            if (percent < 0 || percent > 100) throw new IllegalArgumentException("percent must be 0-100");
+            this.days = days;
+            this.hours = hours;
+            this.percent = percent;
+            this.minimumSen = minimumSen;
+        }
+
+        // The same promotion switched off
+        public Promotion disabled() {
+            return new Promotion(0, 0, percent, minimumSen);
+        }
+    }
+
+    private final byte[] index = new byte[7 * 24];
+    public final Promotion weekendCombo;
+    public final Promotion student;
+    public final Promotion happyHour;
+
+    public KopiSatuRules(Promotion weekendCombo, Promotion student, Promotion happyHour) {
+        this.weekendCombo = weekendCombo;
+        this.student = student;
+        this.happyHour = happyHour;
+        for (int day = 0; day < 7; day++) {
+            for (int hour = 0; hour < 24; hour++) {
+                int mask = 0;
+                if (runs(weekendCombo, day, hour)) mask |= WEEKEND_COMBO;
+                if (runs(student, day, hour)) mask |= STUDENT;
+                if (runs(happyHour, day, hour)) mask |= HAPPY_HOUR;
+                index[day * 24 + hour] = (byte) mask;
+            }
+        }
+    }
+
+    private static boolean runs(Promotion promotion, int day, int hour) {
+        return (promotion.days >>> day & 1) != 0 && (promotion.hours >>> hour & 1) != 0;
+    }
+
+    /** The discounts that run on this day (0 = Monday) at this hour (0-23), as a bitmask */
+    public int discounts(int day, int hour) {
+        return index[day * 24 + hour];
+    }
+
+    /** Hour bits for from:00 to to:59 (both 0-23) */
+    public static int hours(int from, int to) {
+        if (from < 0 || to > 23 || from > to) throw new IllegalArgumentException("hours must be 0-23, from <= to");
+        return (ALL_HOURS >>> (23 - to)) & ~((1 << from) - 1);
+    }
+}
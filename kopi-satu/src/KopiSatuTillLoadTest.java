@@ -0,0 +1,281 @@
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load test for KopiSatuTillServer: hundreds of simulated tills bill orders at the same
+ * time while snapshots of the day totals are taken continuously.
+ *
+ * Each till checks every answer against KopiSatuEngine and keeps its own totals. During
+ * the run every snapshot must add up (subtotal + tax - discounts = revenue) and never go
+ * backwards; at the end the final snapshot must equal the sum of all tills' totals.
+ *
+ * Usage: java KopiSatuTillLoadTest [--embedded | --port=7979] [--tills=300] [--orders=2000]
+ *                                  [--pipeline=1]
+ *   embedded : starts the server in this JVM (snapshots are read directly from it);
+ *              otherwise snapshots are requested with the SNAPSHOT command
+ */
+public class KopiSatuTillLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        boolean embedded = false;
+        int port = KopiSatuTillServer.DEFAULT_PORT;
+        int tills = 300;
+        int ordersPerTill = 2000;
+        int pipeline = 1;
+        for (String arg : args) {
+            if (arg.equals("--embedded")) {
+                embedded = true;
+            } else if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--tills=")) {
+                tills = Integer.parseInt(arg.substring("--tills=".length()));
+            } else if (arg.startsWith("--orders=")) {
+                ordersPerTill = Integer.parseInt(arg.substring("--orders=".length()));
+            } else if (arg.startsWith("--pipeline=")) {
+                pipeline = Math.max(1, Integer.parseInt(arg.substring("--pipeline=".length())));
+            } else {
+                System.err.println("Usage: java KopiSatuTillLoadTest [--embedded | --port=p] [--tills=n]"
+                        + " [--orders=n] [--pipeline=n]");
+                return;
+            }
+        }
+
+        KopiSatuTillServer server = null;
+        if (embedded) {
+            server = new KopiSatuTillServer(0, InetAddress.getLoopbackAddress());
+            KopiSatuTillServer started = server;
+            Thread acceptor = new Thread(() -> {
+                try {
+                    started.serve();
+                } catch (IOException e) {
+                    System.err.println("Server stopped: " + e.getMessage());
+                }
+            }, "till-acceptor");
+            acceptor.setDaemon(true);
+            acceptor.start();
+            port = server.port();
+        }
+        InetSocketAddress address = new InetSocketAddress("127.0.0.1", port);
+        KopiSatuAggregates.Snapshot before = snapshot(server, address);
+
+        Till[] tillList = new Till[tills];
+        CountDownLatch done = new CountDownLatch(tills);
+        AtomicLong failures = new AtomicLong();
+        ExecutorService executor = KopiSatuTillServer.tillExecutor();
+        long start = System.nanoTime();
+        for (int t = 0; t < tills; t++) {
+            Till till = new Till(t, address, ordersPerTill, pipeline);
+            tillList[t] = till;
+            executor.execute(() -> {
+                try {
+                    till.run();
+                } catch (IOException e) {
+                    failures.incrementAndGet();
+                    System.err.println("Till failed: " + e.getMessage());
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        // snapshots while the tills are billing
+        long snapshots = 0;
+        long snapshotsNotAddingUp = 0;
+        long snapshotsGoingBack = 0;
+        long snapshotNanos = 0;
+        long lastOrders = before.orders;
+        while (!done.await(20, TimeUnit.MILLISECONDS)) {
+            long t0 = System.nanoTime();
+            KopiSatuAggregates.Snapshot s = snapshot(server, address);
+            snapshotNanos += System.nanoTime() - t0;
+            snapshots++;
+            if (!s.addsUp()) snapshotsNotAddingUp++;
+            if (s.orders < lastOrders) snapshotsGoingBack++;
+            lastOrders = s.orders;
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+
+        // the tills' own totals against the server's final numbers
+        KopiSatuAggregates.Snapshot after = snapshot(server, address);
+        long orders = 0, revenue = 0, tax = 0, discounts = 0, cashback = 0, wrongAnswers = 0;
+        long[] latencies = new long[tills * ordersPerTill];
+        int latencyCount = 0;
+        for (Till till : tillList) {
+            orders += till.orders;
+            revenue += till.revenueSen;
+            tax += till.taxSen;
+            discounts += till.discountSen;
+            cashback += till.cashbackSen;
+            wrongAnswers += till.wrongAnswers;
+            System.arraycopy(till.latencies, 0, latencies, latencyCount, till.orders);
+            latencyCount += till.orders;
+        }
+        boolean totalsMatch = after.orders - before.orders == orders
+                && after.revenueSen - before.revenueSen == revenue
+                && after.taxSen() - before.taxSen() == tax
+                && after.discountSen() - before.discountSen() == discounts
+                && after.cashbackSen - before.cashbackSen == cashback;
+        if (server != null) server.close();
+
+        Arrays.sort(latencies, 0, latencyCount);
+        double seconds = elapsed / 1e9;
+        System.out.printf("tills=%d orders=%d failedTills=%d wrongAnswers=%d%n", tills, orders, failures.get(), wrongAnswers);
+        System.out.printf("elapsed=%.3f s throughput=%.0f orders/s%n", seconds, orders / seconds);
+        System.out.printf("latency us: p50=%.1f p99=%.1f p99.9=%.1f max=%.1f%n",
+                percentile(latencies, latencyCount, 50) / 1e3, percentile(latencies, latencyCount, 99) / 1e3,
+                percentile(latencies, latencyCount, 99.9) / 1e3,
+                (latencyCount == 0 ? 0 : latencies[latencyCount - 1]) / 1e3);
+        System.out.printf("snapshots=%d (avg %.1f us) notAddingUp=%d goingBackwards=%d%n", snapshots,
+                snapshots == 0 ? 0 : snapshotNanos / 1e3 / snapshots, snapshotsNotAddingUp, snapshotsGoingBack);
+        System.out.printf("final totals %s the tills' own totals%n", totalsMatch ? "match" : "DO NOT MATCH");
+        System.out.println(after.toJson());
+        if (!totalsMatch || snapshotsNotAddingUp > 0 || snapshotsGoingBack > 0 || wrongAnswers > 0) System.exit(1);
+    }
+
+    private static KopiSatuAggregates.Snapshot snapshot(KopiSatuTillServer server, InetSocketAddress address)
+            throws IOException {
+        if (server != null) return server.aggregates().snapshot();
+        //remote server: ask for the JSON and read back the numbers the checks need
+        try (Socket socket = new Socket()) {
+            socket.connect(address, 10_000);
+            socket.getOutputStream().write("SNAPSHOT\n".getBytes(StandardCharsets.US_ASCII));
+            socket.getOutputStream().flush();
+            String json = new String(readLine(new BufferedInputStream(socket.getInputStream())), StandardCharsets.UTF_8);
+            KopiSatuAggregates.Snapshot s = new KopiSatuAggregates.Snapshot();
+            s.orders = Long.parseLong(field(json, "\"orders\":"));
+            s.subtotalSen = sen(field(json, "\"subtotal\":"));
+            s.tax6Sen = sen(field(json, "\"6%\":"));
+            s.tax8Sen = sen(field(json, "\"8%\":"));
+            s.tax10Sen = sen(field(json, "\"10%\":"));
+            s.studentSen = sen(field(json, "\"student\":"));
+            s.happyHourSen = sen(field(json, "\"happyHour\":"));
+            s.weekendComboSen = sen(field(json, "\"weekendCombo\":"));
+            s.revenueSen = sen(field(json, "\"revenue\":"));
+            s.cashbackSen = sen(field(json, "\"cashbackOwed\":"));
+            return s;
+        }
+    }
+
+    private static String field(String json, String name) {
+        int from = json.indexOf(name) + name.length();
+        int to = from;
+        while (to < json.length() && json.charAt(to) != ',' && json.charAt(to) != '}') to++;
+        return json.substring(from, to);
+    }
+
+    private static long sen(String rm) {
+        return new java.math.BigDecimal(rm).movePointRight(2).longValueExact();
+    }
+
+    private static long percentile(long[] sorted, int count, double percentile) {
+        if (count == 0) return 0;
+        int rank = (int) Math.ceil(percentile / 100.0 * count);
+        return sorted[Math.max(0, Math.min(count - 1, rank - 1))];
+    }
+
+    private static byte[] readLine(InputStream in) throws IOException {
+        java.io.ByteArrayOutputStream line = new java.io.ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) >= 0 && b != '\n') line.write(b);
+        if (b < 0 && line.size() == 0) throw new IOException("server closed the connection");
+        return line.toByteArray();
+    }
+
+    // One till: sends its orders and checks every answer
+    private static final class Till {
+        private static final String[] DAYS = KopiSatuOrderReader.DAY_NAMES;
+
+        private final String outlet;
+        private final InetSocketAddress address;
+        private final int ordersToSend;
+        private final int pipeline;
+        private final SplittableRandom random;
+        private final KopiSatuEngine.Bill bill = new KopiSatuEngine.Bill();
+        final long[] latencies;
+
+        int orders;
+        long revenueSen;
+        long taxSen;
+        long discountSen;
+        long cashbackSen;
+        long wrongAnswers;
+
+        Till(int id, InetSocketAddress address, int ordersToSend, int pipeline) {
+            this.outlet = "OUT" + (id % 40 + 1);
+            this.address = address;
+            this.ordersToSend = ordersToSend;
+            this.pipeline = pipeline;
+            this.random = new SplittableRandom(id);
+            this.latencies = new long[ordersToSend];
+        }
+
+        void run() throws IOException {
+            try (Socket socket = new Socket()) {
+                socket.setTcpNoDelay(true);
+                socket.connect(address, 30_000);
+                OutputStream out = socket.getOutputStream();
+                InputStream in = new BufferedInputStream(socket.getInputStream());
+                StringBuilder round = new StringBuilder();
+                String[] expected = new String[pipeline];
+
+                while (orders < ordersToSend) {
+                    int n = Math.min(pipeline, ordersToSend - orders);
+                    round.setLength(0);
+                    for (int i = 0; i < n; i++) expected[i] = nextOrder(round, orders + i + 1);
+                    long roundStart = System.nanoTime();
+                    out.write(round.toString().getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                    for (int i = 0; i < n; i++) {
+                        String answer = new String(readLine(in), StandardCharsets.US_ASCII);
+                        latencies[orders] = System.nanoTime() - roundStart;
+                        orders++;
+                        if (!answer.equals(expected[i])) wrongAnswers++;
+                    }
+                }
+            }
+        }
+
+        // Appends one order line, adds it to this till's totals and returns the expected answer
+        private String nextOrder(StringBuilder round, int orderNumber) {
+            int day = random.nextInt(7);
+            int hour = random.nextInt(7, 23);
+            boolean member = random.nextBoolean();
+            int items = random.nextInt(1, 6);
+            long subtotal = 0;
+            round.append(outlet).append(' ').append(DAYS[day]).append(' ').append(hour).append(' ')
+                 .append(member ? 'Y' : 'N');
+            for (int i = 0; i < items; i++) {
+                int sen = random.nextInt(150, 3000);
+                subtotal += sen;
+                round.append(' ').append(sen / 100).append('.').append(sen % 100 < 10 ? "0" : "").append(sen % 100);
+            }
+            round.append('\n');
+
+            KopiSatuEngine.bill(subtotal, day, hour, member, bill);
+            revenueSen += bill.payableSen;
+            taxSen += bill.taxSen;
+            discountSen += bill.discountSen();
+            cashbackSen += bill.cashbackSen;
+            return orderNumber + " " + outlet + " " + rm(bill.subtotalSen) + " " + rm(bill.taxSen) + " "
+                    + rm(bill.totalBeforeDiscountSen) + " " + rm(bill.discountSen()) + " "
+                    + rm(bill.payableSen) + " " + rm(bill.cashbackSen);
+        }
+
+        private static String rm(long sen) {
+            return java.math.BigDecimal.valueOf(sen, 2).toPlainString();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Billing service for all the tills of an outlet (or of the whole chain) at once.
+ *
+ * Every till keeps a TCP connection open and sends one order per line, in the transaction
+ * log format (see KopiSatuOrderReader); each order is billed with KopiSatuEngine, added to
+ * the shared end-of-day KopiSatuAggregates and answered with one compact row:
+ *
+ *     till  : OUT1 Monday 15 Y 12.50 8.00
+ *     answer: 1 OUT1 20.50 1.23 21.73 1.09 20.64 0.41
+ *             (order subtotal tax totalBeforeDiscount discount payable cashback)
+ *     till  : SNAPSHOT
+ *     answer: {"orders":..., "serviceTax":{...}, "discounts":{...}, "revenue":..., ...}
+ *
+ * Tills may send several orders before reading; answers are flushed once everything that
+ * has arrived is billed. One thread per till: virtual threads on Java 21+, small-stack
+ * platform threads on older JDKs.
+ *
+ * Usage: java KopiSatuTillServer [--port=7979] [--bind=127.0.0.1] [--promotions=<file>]
+ *   promotions: discounts per outlet (see KopiSatuPromotions)
+ *   load test: java KopiSatuTillLoadTest --embedded --tills=300
+ */
+public final class KopiSatuTillServer {
+
+    public static final int DEFAULT_PORT = 7979;
+
+    private final ServerSocket serverSocket;
+    private final KopiSatuAggregates aggregates = new KopiSatuAggregates();
+    private final ExecutorService tills = tillExecutor();
+    private final KopiSatuPromotions promotions;
+
+    public KopiSatuTillServer(int port, InetAddress bind) throws IOException {
+        this(port, bind, KopiSatuPromotions.standard());
+    }
+
+    public KopiSatuTillServer(int port, InetAddress bind, KopiSatuPromotions promotions) throws IOException {
+        this.serverSocket = new ServerSocket(port, 4096, bind);
+        this.promotions = promotions;
+    }
+
+    public int port() { return serverSocket.getLocalPort(); }
+
+    public KopiSatuAggregates aggregates() { return aggregates; }
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        String bind = "127.0.0.1";
+        KopiSatuPromotions promotions = KopiSatuPromotions.standard();
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--bind=")) {
+                bind = arg.substring("--bind=".length());
+            } else if (arg.startsWith("--promotions=")) {
+                promotions = KopiSatuPromotions.load(java.nio.file.Path.of(arg.substring("--promotions=".length())));
+            } else {
+                System.err.println("Usage: java KopiSatuTillServer [--port=7979] [--bind=127.0.0.1]"
+                        + " [--promotions=<file>]");
+                return;
+            }
+        }
+        KopiSatuTillServer server = new KopiSatuTillServer(port, InetAddress.getByName(bind), promotions);
+        System.err.println("Kopi-Satu till server on " + bind + ":" + server.port());
+        server.serve();
+    }
+
+    // Accept loop; returns when the server is closed
+    public void serve() throws IOException {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (serverSocket.isClosed()) break;
+                throw e;
+            }
+            tills.execute(() -> {
+                try (Socket s = socket) {
+                    s.setTcpNoDelay(true);
+                    handle(s.getInputStream(), s.getOutputStream());
+                } catch (IOException e) {
+                    //till disconnected
+                }
+            });
+        }
+    }
+
+    public void close() throws IOException {
+        serverSocket.close();
+        tills.shutdownNow();
+    }
+
+    // Bills the orders of one till until it disconnects
+    void handle(InputStream in, OutputStream socketOut) throws IOException {
+        OutputStream out = new BufferedOutputStream(socketOut, 8192);
+        KopiSatuOrderReader reader = new KopiSatuOrderReader(in);
+        KopiSatuReceiptRenderer renderer = new KopiSatuReceiptRenderer();
+        KopiSatuEngine.Bill bill = new KopiSatuEngine.Bill();
+        byte[] outlet = new byte[64];
+        long orders = 0;
+
+        while (reader.next()) {
+            if (reader.isCommand("SNAPSHOT")) {
+                renderer.text(aggregates.snapshot().toJson());
+            } else if (reader.error() != null) {
+                renderer.text("ERROR " + reader.error());
+            } else {
+                KopiSatuEngine.bill(reader, promotions.rules(reader), bill);
+                aggregates.add(bill);
+                if (reader.outletLength() > outlet.length) outlet = new byte[reader.outletLength()];
+                renderer.compact(++orders, outlet, reader.outletBytes(outlet), bill);
+            }
+            if (!reader.buffered() && in.available() == 0) {
+                renderer.writeTo(out);
+                out.flush();
+            } else {
+                renderer.flushIfFull(out);
+            }
+        }
+        renderer.writeTo(out);
+        out.flush();
+    }
+
+    // A virtual thread per till when the JDK has them (21+), else a cached pool of platform
+    // threads with 256 KB stacks; looked up by reflection so it still compiles on Java 17
+    static ExecutorService tillExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            ThreadFactory factory = task -> {
+                Thread thread = new Thread(null, task, "till-" + count.incrementAndGet(), 256 * 1024);
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newCachedThreadPool(factory);
+        }
+    }
+}